@@ -0,0 +1,93 @@
+package io.streamdata.benchmarks;
+
+import io.streamdata.sdk.DispatchExecutors;
+import io.streamdata.sdk.EventSourceClient;
+import io.streamdata.sdk.StreamdataClient;
+import io.streamdata.sdk.TransportConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the whole event path of {@link EventSourceClient} : parsing, patching and callbacks, the recorded stream
+ * being pushed by an in-process source. One operation is one event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    // events of the fixture
+    static final int EVENTS = 301;
+
+    @Param({"stockmarket"})
+    public String fixture;
+
+    @Param({"inline", "executor"})
+    public String dispatch;
+
+    private List<Fixtures.RecordedEvent> events;
+    private InMemorySseTransport transport;
+    private StreamdataClient streamdata;
+    private EventSourceClient client;
+    private ExecutorService executor;
+    private final AtomicLong notified = new AtomicLong();
+    private long expected;
+
+    @Setup
+    public void setUp() throws URISyntaxException {
+        this.events = Fixtures.stream(fixture);
+        if (events.size() != EVENTS) {
+            throw new IllegalStateException("Expected " + EVENTS + " events in the fixture, got " + events.size());
+        }
+        this.transport = new InMemorySseTransport();
+        this.streamdata = StreamdataClient.create(TransportConfig.DEFAULT, transport);
+        this.client = streamdata.newClient("http://localhost/benchmark", "benchmark")
+                .onSnapshot(snapshot -> notified.incrementAndGet())
+                .onPatch(patch -> notified.incrementAndGet())
+                .onChange("/0/last", change -> {
+                });
+        if ("executor".equals(dispatch)) {
+            this.executor = DispatchExecutors.cachedDaemonPool();
+            client.dispatchOn(executor);
+        }
+        client.open();
+    }
+
+    @TearDown
+    public void tearDown() {
+        streamdata.close();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void events() {
+        expected += events.size();
+        transport.push(events);
+        // with an executor, wait for the callbacks of the pushed events
+        while (notified.get() < expected) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.streamdata.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Data fed to the benchmarks : streams recorded from the stock market demo API, and generated snapshots of a given size
+ * with the same shape.
+ */
+public final class Fixtures {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    /**
+     * An event of a recorded stream
+     */
+    public static final class RecordedEvent {
+
+        public final String name;
+        public final String id;
+        public final byte[] data;
+
+        RecordedEvent(String name, String id, byte[] data) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    /**
+     * @param name the name of the fixture under <code>fixtures/</code>, without extension
+     * @return the events of the recorded stream, a snapshot followed by patches
+     */
+    public static List<RecordedEvent> stream(String name) {
+        String resource = "/fixtures/" + name + ".sse";
+        InputStream input = Fixtures.class.getResourceAsStream(resource);
+        if (input == null) {
+            throw new IllegalArgumentException("No fixture " + resource);
+        }
+        List<RecordedEvent> events = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String event = null;
+            String id = null;
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (event != null) {
+                        events.add(new RecordedEvent(event, id, data.toString().getBytes(StandardCharsets.UTF_8)));
+                    }
+                    event = null;
+                    data.setLength(0);
+                } else if (line.startsWith("event: ")) {
+                    event = line.substring(7);
+                } else if (line.startsWith("id: ")) {
+                    id = line.substring(4);
+                } else if (line.startsWith("data: ")) {
+                    data.append(line, 6, line.length());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return events;
+    }
+
+    /**
+     * @param bytes approximate size of the snapshot once serialized
+     * @return an array of quotes, like the stock market demo API
+     */
+    public static ArrayNode snapshot(int bytes) {
+        Random random = new Random(42);
+        ArrayNode quotes = JsonNodeFactory.instance.arrayNode();
+        int size = 2;
+        for (int i = 0; size < bytes; i++) {
+            ObjectNode quote = quotes.addObject()
+                    .put("title", "Company " + i + " Inc.")
+                    .put("company", "Company " + i)
+                    .put("ticker", "C" + i)
+                    .put("source", "NASDAQ")
+                    .put("last", Math.round(random.nextDouble() * 100000) / 100.0)
+                    .put("dt", "2019-06-14T15:30:00.000Z")
+                    .put("volume", random.nextInt(1000000));
+            size += quote.toString().length() + 1;
+        }
+        return quotes;
+    }
+
+    /**
+     * @param snapshot   the snapshot to patch, as returned by {@link #snapshot(int)}
+     * @param operations the number of replaced values
+     * @return a patch replacing prices and volumes of random quotes
+     */
+    public static JsonNode patch(JsonNode snapshot, int operations) {
+        Random random = new Random(7);
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i < operations; i++) {
+            int index = random.nextInt(snapshot.size());
+            boolean price = random.nextBoolean();
+            ObjectNode operation = patch.addObject()
+                    .put("op", "replace")
+                    .put("path", "/" + index + (price ? "/last" : "/volume"));
+            if (price) {
+                operation.put("value", Math.round(random.nextDouble() * 100000) / 100.0);
+            } else {
+                operation.put("value", random.nextInt(1000000));
+            }
+        }
+        return patch;
+    }
+
+    /**
+     * @param size a size such as <code>10KB</code> or <code>50MB</code>
+     * @return the size in bytes
+     */
+    public static int parseSize(String size) {
+        String unit = size.substring(size.length() - 2);
+        int value = Integer.parseInt(size.substring(0, size.length() - 2));
+        switch (unit) {
+            case "KB":
+                return value * 1024;
+            case "MB":
+                return value * 1024 * 1024;
+            default:
+                throw new IllegalArgumentException("Unknown unit in " + size);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.streamdata.benchmarks;
+
+import io.streamdata.sdk.transport.SseConnection;
+import io.streamdata.sdk.transport.SseEventHandler;
+import io.streamdata.sdk.transport.SseRequest;
+import io.streamdata.sdk.transport.SseTransport;
+
+import java.util.List;
+
+/**
+ * In-process SSE source : events are pushed by the benchmark thread straight into the handlers of the open connections,
+ * so nothing but the SDK is measured.
+ */
+public final class InMemorySseTransport implements SseTransport {
+
+    private volatile SseEventHandler handler;
+
+    @Override
+    public SseConnection connect(SseRequest request, SseEventHandler handler) {
+        this.handler = handler;
+        handler.onOpen();
+        return () -> this.handler = null;
+    }
+
+    /**
+     * Push events to the last opened connection, on the calling thread
+     *
+     * @param events the events
+     */
+    public void push(List<Fixtures.RecordedEvent> events) {
+        SseEventHandler current = this.handler;
+        for (Fixtures.RecordedEvent event : events) {
+            // the handler owns the data
+            current.onEvent(event.name, event.id, event.data.clone());
+        }
+    }
+
+    @Override
+    public void close() {
+        this.handler = null;
+    }
+}
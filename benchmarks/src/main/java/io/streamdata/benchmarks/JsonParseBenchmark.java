@@ -0,0 +1,53 @@
+package io.streamdata.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a snapshot from the raw bytes of an event, as done for every <code>data</code> event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JsonParseBenchmark {
+
+    @Param({"10KB", "1MB", "10MB", "50MB"})
+    public String size;
+
+    // the reader the SDK builds once for every event
+    private final ObjectReader reader = Fixtures.MAPPER.readerFor(JsonNode.class);
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.bytes = Fixtures.MAPPER.writeValueAsBytes(Fixtures.snapshot(Fixtures.parseSize(size)));
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return Fixtures.MAPPER.readTree(bytes);
+    }
+
+    @Benchmark
+    public JsonNode prebuiltReader() throws IOException {
+        return reader.readValue(bytes);
+    }
+}
@@ -0,0 +1,73 @@
+package io.streamdata.benchmarks;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.streamdata.sdk.BackpressureMode;
+import io.streamdata.sdk.RxJavaEventSourceClient;
+import io.streamdata.sdk.StreamdataClient;
+import io.streamdata.sdk.TransportConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emission path of {@link RxJavaEventSourceClient#toFlowable()}, the recorded stream being pushed by an in-process source
+ * and observed on the pushing thread. One operation is one event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RxFlowableBenchmark {
+
+    @Param({"stockmarket"})
+    public String fixture;
+
+    @Param({"DROP", "BUFFER", "CONFLATE"})
+    public BackpressureMode backpressure;
+
+    private List<Fixtures.RecordedEvent> events;
+    private InMemorySseTransport transport;
+    private StreamdataClient streamdata;
+    private Disposable subscription;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws URISyntaxException {
+        this.events = Fixtures.stream(fixture);
+        this.transport = new InMemorySseTransport();
+        this.streamdata = StreamdataClient.create(TransportConfig.DEFAULT, transport);
+        RxJavaEventSourceClient client = streamdata.newRxJavaClient("http://localhost/benchmark", "benchmark")
+                .backpressure(backpressure);
+        this.subscription = client.toFlowable(Schedulers.trampoline())
+                .subscribe(blackhole::consume);
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscription.dispose();
+        streamdata.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EndToEndBenchmark.EVENTS)
+    public void events() {
+        transport.push(events);
+    }
+}
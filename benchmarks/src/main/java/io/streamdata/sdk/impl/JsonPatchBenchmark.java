@@ -0,0 +1,65 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flipkart.zjsonpatch.JsonPatch;
+import io.streamdata.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Application of a small patch to snapshots of increasing size : the deep copying <code>JsonPatch.apply</code> of
+ * zjsonpatch, which the SDK used to call, against the path copying engine of the SDK.</p>
+ * <p>In the package of the engine as it is internal to the SDK.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JsonPatchBenchmark {
+
+    @Param({"10KB", "1MB", "10MB", "50MB"})
+    public String size;
+
+    @Param({"10"})
+    public int operations;
+
+    private JsonNode snapshot;
+    private JsonNode patch;
+    private List<PatchOperation> parsedPatch;
+
+    @Setup
+    public void setUp() {
+        this.snapshot = Fixtures.snapshot(Fixtures.parseSize(size));
+        this.patch = Fixtures.patch(snapshot, operations);
+        this.parsedPatch = PatchOperation.parse(patch);
+    }
+
+    @Benchmark
+    public JsonNode zjsonpatch() {
+        return JsonPatch.apply(patch, snapshot);
+    }
+
+    @Benchmark
+    public JsonNode engine() {
+        return JsonPatchEngine.apply(snapshot, PatchOperation.parse(patch));
+    }
+
+    @Benchmark
+    public JsonNode enginePreParsed() {
+        return JsonPatchEngine.apply(snapshot, parsedPatch);
+    }
+}
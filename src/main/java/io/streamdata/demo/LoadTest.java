@@ -0,0 +1,159 @@
+package io.streamdata.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.streamdata.sdk.StreamdataClient;
+import io.streamdata.sdk.TransportConfig;
+import io.streamdata.sdk.metrics.LatencyHistogram;
+import io.streamdata.sdk.metrics.MetricsRecorder;
+import io.streamdata.sdk.metrics.StreamMetrics;
+import io.streamdata.sdk.transport.SseTransport;
+import io.streamdata.sdk.transport.SseTransports;
+import io.streamdata.standin.StandInProxy;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Opens many clients against a {@link StandInProxy}, embedded unless <code>--proxy</code> is given, and reports the
+ * events per second, the latency of the patches (from the <code>dt</code> set by the stand-in to the
+ * <code>onPatch</code> callback), the heap use and the thread count. Connections are established and the code is
+ * compiled during a warmup, which is left out of the results.</p>
+ * <p><b>Usage</b></p>
+ * <pre>
+ * java -cp target/streamdataio-java-sdk-1.0.jar io.streamdata.demo.LoadTest --clients 1000 --topics 10 --rate 20
+ * </pre>
+ * <p>Options, with their defaults : <code>--clients 100</code>, <code>--topics 10</code> (clients are spread over the
+ * feeds, each feed being shared by <code>clients / topics</code> streams), <code>--warmup 5</code> and
+ * <code>--duration 30</code> seconds, <code>--rate 10</code> events per second and per feed, <code>--items 100</code> quotes per snapshot,
+ * <code>--operations 3</code> per patch, <code>--errors 0</code> (an error event every n events),
+ * <code>--transport jersey</code> or <code>nio</code>, <code>--proxy</code> the URL of an already running stand-in.</p>
+ */
+public class LoadTest {
+
+    public static void main(String... args) throws IOException, URISyntaxException, InterruptedException {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "100"));
+        int topics = Integer.parseInt(options.getOrDefault("topics", "10"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String transportName = options.getOrDefault("transport", "jersey");
+
+        StandInProxy proxy = null;
+        String proxyUrl = options.get("proxy");
+        if (proxyUrl == null) {
+            proxy = StandInProxy.builder()
+                    .eventsPerSecond(Double.parseDouble(options.getOrDefault("rate", "10")))
+                    .items(Integer.parseInt(options.getOrDefault("items", "100")))
+                    .operationsPerPatch(Integer.parseInt(options.getOrDefault("operations", "3")))
+                    .errorEvery(Integer.parseInt(options.getOrDefault("errors", "0")))
+                    .start();
+            proxyUrl = proxy.getUrl();
+        }
+
+        TransportConfig config = TransportConfig.builder().proxyUrl(proxyUrl).build();
+        SseTransport transport = "nio".equals(transportName) ? SseTransports.nio(config) : SseTransports.jersey(config);
+        StreamdataClient streamdata = StreamdataClient.create(config, transport);
+
+        LongAdder events = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder exceptions = new LongAdder();
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        MetricsRecorder metrics = new MetricsRecorder();
+        for (int i = 0; i < clients; i++) {
+            streamdata.newClient("http://load.test/topic-" + (i % topics), "load-test")
+                    .onSnapshot(snapshot -> events.increment())
+                    .onPatch(patch -> {
+                        events.increment();
+                        if (measuring.get()) {
+                            recordLatency(patch, latencies);
+                        }
+                    })
+                    .onError(error -> errors.increment())
+                    .onException(exception -> exceptions.increment())
+                    .metrics(metrics)
+                    .open();
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%d clients on %d feeds of %s through the %s transport, for %d s after %d s of warmup%n",
+                clients, topics, proxyUrl, transportName, duration, warmup);
+        long start = System.nanoTime();
+        long previous = 0;
+        long measuredFrom = 0;
+        long maxHeap = 0;
+        for (int second = 1; second <= warmup + duration; second++) {
+            TimeUnit.NANOSECONDS.sleep(start + TimeUnit.SECONDS.toNanos(second) - System.nanoTime());
+            long total = events.sum();
+            long heap = memory.getHeapMemoryUsage().getUsed();
+            if (second > warmup) {
+                maxHeap = Math.max(maxHeap, heap);
+            }
+            System.out.printf("%4d s %10d events/s   heap %6d MB   threads %5d%s%n", second, total - previous,
+                    heap >> 20, threads.getThreadCount(), second <= warmup ? "   (warmup)" : "");
+            previous = total;
+            if (second == warmup) {
+                // connections are established and the code is compiled, measuring from now
+                measuredFrom = total;
+                measuring.set(true);
+                for (StreamMetrics.Stage stage : StreamMetrics.Stage.values()) {
+                    metrics.getHistogram(stage).reset();
+                }
+            }
+        }
+        measuring.set(false);
+        long measured = events.sum() - measuredFrom;
+
+        streamdata.close();
+        if (proxy != null) {
+            proxy.close();
+        }
+
+        System.out.printf("events       %d (%.0f events/s)%n", measured, (double) measured / duration);
+        System.out.printf("errors       %d error events, %d exceptions%n", errors.sum(), exceptions.sum());
+        System.out.printf("latency      p50 %.3f ms   p99 %.3f ms   p999 %.3f ms   max %.3f ms (%d patches)%n",
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMax() / 1000.0, latencies.getCount());
+        System.out.printf("heap         %d MB max used%n", maxHeap >> 20);
+        System.out.printf("threads      %d peak%n", threads.getPeakThreadCount());
+        System.out.println(metrics);
+    }
+
+    private static Map<String, String> parse(String... args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static void recordLatency(JsonNode patch, LatencyHistogram latencies) {
+        // the stand-in sets the dt of a quote with the time the patch is sent
+        for (JsonNode operation : patch) {
+            if (operation.path("path").asText().endsWith("/dt")) {
+                try {
+                    Instant sent = Instant.parse(operation.path("value").asText());
+                    latencies.record(ChronoUnit.MICROS.between(sent, Instant.now()));
+                } catch (DateTimeParseException e) {
+                    // not sent by the stand-in
+                }
+                return;
+            }
+        }
+    }
+}
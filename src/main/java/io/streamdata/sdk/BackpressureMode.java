@@ -0,0 +1,30 @@
+package io.streamdata.sdk;
+
+/**
+ * How a {@link RxJavaEventSourceClient} behaves when its subscriber cannot keep up with the events pushed by streamdata.
+ *
+ * @see RxJavaEventSourceClient#backpressure(BackpressureMode)
+ */
+public enum BackpressureMode {
+
+    /**
+     * Events are dropped while the subscriber is busy (default). Each event still carries the snapshot it results from,
+     * but the patches of the dropped events are lost.
+     */
+    DROP,
+
+    /**
+     * While the subscriber is busy, events are merged : the subscriber then gets the latest snapshot along with a patch
+     * made of all the operations received since the last delivered event. Slow subscribers get fewer, larger updates without gaps.
+     * Errors are never merged and are delivered in order.
+     */
+    CONFLATE,
+
+    /**
+     * Events are buffered up to a bounded capacity. When the buffer overflows, the overflow callback is run and the flowable
+     * fails with a {@link io.reactivex.exceptions.MissingBackpressureException}.
+     *
+     * @see RxJavaEventSourceClient#bufferCapacity(int, Runnable)
+     */
+    BUFFER
+}
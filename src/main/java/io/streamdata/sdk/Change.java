@@ -0,0 +1,57 @@
+package io.streamdata.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A change notified to the listeners registered with {@link EventSourceClient#onChange(String, java.util.function.Consumer)}.
+ * It is one operation of a patch : <code>add</code>, <code>remove</code>, <code>replace</code>, <code>move</code> or <code>copy</code>.
+ * A snapshot is notified as a <code>replace</code> of the whole document (path <code>""</code>).
+ */
+public final class Change {
+
+    private final String operation;
+    private final String path;
+    private final String from;
+    private final JsonNode value;
+
+    public Change(String operation, String path, String from, JsonNode value) {
+        this.operation = operation;
+        this.path = path;
+        this.from = from;
+        this.value = value;
+    }
+
+    /**
+     * @return the name of the patch operation (<code>add</code>, <code>remove</code>, <code>replace</code>, <code>move</code> or <code>copy</code>)
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the JSON Pointer of the changed node, as sent in the patch
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the JSON Pointer the node has been moved or copied from, null for other operations
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the new value of the node, null when it has been removed. For a move or a copy, the node as the operation
+     * left it, a later operation of the same patch changing it being notified on its own.
+     */
+    public JsonNode getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + path + (from == null ? "" : " from " + from);
+    }
+}
@@ -0,0 +1,51 @@
+package io.streamdata.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors suited to {@link EventSourceClient#dispatchOn(java.util.concurrent.Executor)}.
+ */
+public final class DispatchExecutors {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatchExecutors.class);
+
+    private DispatchExecutors() {
+    }
+
+    /**
+     * Gets an executor starting a virtual thread per task when the JVM supports them (JDK 21+),
+     * otherwise falls back on {@link #cachedDaemonPool()}.
+     *
+     * @return a new executor
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.info("Virtual threads are not available on this JVM, using a cached thread pool");
+            return cachedDaemonPool();
+        }
+    }
+
+    /**
+     * @return a new cached thread pool of daemon threads
+     */
+    public static ExecutorService cachedDaemonPool() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "streamdata-dispatch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+}
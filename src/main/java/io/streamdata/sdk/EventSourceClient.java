@@ -1,8 +1,13 @@
 package io.streamdata.sdk;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.streamdata.sdk.metrics.MetricsRecorder;
+import io.streamdata.sdk.metrics.StreamMetrics;
 
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * This class allows to call the proxy and get the result of polling.
@@ -31,6 +36,203 @@ public interface EventSourceClient {
      */
     EventSourceClient useJsonPatch(boolean useJsonPatch);
 
+    /**
+     * <p>When incremental cache is disabled with {@link #useJsonPatch(boolean)}, compares every snapshot sent by the proxy with the previous one. Default is false.</p>
+     * <p>A snapshot identical to the previous one is skipped without even being parsed. Otherwise the first snapshot is still notified with
+     * {@link #onSnapshot(Consumer)}, but the following ones are turned into a JSON Patch computed locally and notified with
+     * {@link #onPatch(Consumer)} and {@link #onChange(String, Consumer)}, so downstream work is proportional to what has changed.</p>
+     * <p>Unchanged subtrees are detected through 64 bits hashes.</p>
+     *
+     * @param diffSnapshots true to compute patches locally
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient diffSnapshots(boolean diffSnapshots);
+
+    /**
+     * <p>Runs the parsing and patching of the events, then the callbacks, on the given executor instead of the thread reading the stream.
+     * Each stage has its own queue, the events of the stream being processed and notified one at a time, in order.
+     * The reading thread blocks when 1024 events are waiting to be processed.</p>
+     * <p>{@link DispatchExecutors#virtualThreadPerTask()} gives an executor using virtual threads when available.
+     * <b>This must be called before {@link #open()}</b></p>
+     *
+     * @param executor the executor, null to run everything on the reading thread (default)
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient dispatchOn(Executor executor);
+
+    /**
+     * Same as {@link #dispatchOn(Executor)} with a custom queue capacity
+     *
+     * @param executor      the executor, null to run everything on the reading thread (default)
+     * @param queueCapacity number of events waiting to be processed above which the reading thread blocks, and waiting
+     *                      to be notified above which processing pauses
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient dispatchOn(Executor executor, int queueCapacity);
+
+    /**
+     * <p>Applies patches lazily, for streams patched far more often than their snapshot is read. The operations of the
+     * patches are appended to a log where successive operations on the same path collapse, several <code>replace</code>
+     * of a same field ending up as a single one. The log is applied when {@link #getSnapshot()} or
+     * {@link #getCurrentSnapshot()} is called, or once it holds <code>maxOperations</code> operations or its oldest
+     * patch is <code>maxDelayMillis</code> old.</p>
+     * <p>{@link #onPatch(Consumer)} and {@link #onChange(String, Consumer)} are only notified when a threshold is hit,
+     * with a single patch equivalent to every patch received since the previous notification. As the delay may expire
+     * without a new patch, the callbacks run one at a time on the dispatch executor, the default one of the
+     * {@link StreamdataClient} unless {@link #dispatchOn(Executor)} is used, so that they stay in order.
+     * Snapshot versions still count every patch received.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param maxOperations  number of collapsed operations above which the log is applied
+     * @param maxDelayMillis delay after which a patch is applied and notified, even if nobody reads the snapshot
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient lazyPatches(int maxOperations, long maxDelayMillis);
+
+    /**
+     * <p>Notifies patches at most once per interval, for consumers such as dashboards which cannot handle every update.
+     * Patches are still applied as they are received, so the snapshot stays exact, but {@link #onPatch(Consumer)} and
+     * {@link #onChange(String, Consumer)} are called with the latest snapshot and a single patch equivalent to every
+     * patch received since the previous call.</p>
+     * <p>A patch arriving after a quiet interval is notified right away, the following ones at the end of the next
+     * interval. So that they stay in order, the callbacks then run one at a time on the dispatch executor, the default
+     * one of the {@link StreamdataClient} unless {@link #dispatchOn(Executor)} is used.
+     * Snapshots are notified right away, replacing the patches not notified yet.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param intervalMillis minimum delay between two notifications of patches
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient throttle(long intervalMillis);
+
+    /**
+     * <p>Stores the snapshot in a compact form, for large snapshots or many similar streams. Default is false.</p>
+     * <p>Field names are interned along with short texts, across all the streams : an object only holds its values,
+     * and arrays of objects having the same fields, such as a price list, are stored column by column with numbers in
+     * primitive arrays. Patches are applied to the compact form directly.</p>
+     * <p>The snapshot is still a <code>JsonNode</code> made of <code>ObjectNode</code> and <code>ArrayNode</code>, which
+     * can be read, bound and serialized as usual but is read-only : call <code>deepCopy()</code> to modify it.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param compactSnapshots true to store the snapshot in a compact form
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient compactSnapshots(boolean compactSnapshots);
+
+    /**
+     * <p>Keeps only a part of the data : the nodes outside the projection are skipped while the snapshot is parsed, and
+     * the patch operations touching them only are not applied, which saves the memory held by the snapshot and the time
+     * spent patching it. Patches changing nothing in the projection are not notified.</p>
+     * <p>Array elements outside the projection are kept as <code>null</code> so the patches still apply by index, see
+     * {@link Projection}. A patch that cannot be applied to the projection, such as a move of a partially kept node,
+     * gets a fresh snapshot as a patch failure does.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param projection the projection, null to keep everything (default)
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient projection(Projection projection);
+
+    /**
+     * <p>Stores an array of the snapshot as a keyed array, for large arrays patched by index and read by a business key.
+     * Elements are kept in a B-tree of chunks, so adding or removing one in the middle does not shift the following
+     * ones, and are indexed by the value of <code>keyField</code>, the index being updated as patches are applied.
+     * Elements are looked up with {@link #getByKey(String, String)}.</p>
+     * <p>Keys are expected to be unique. The array is still a read-only <code>ArrayNode</code> of the snapshot.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param arrayPointer the JSON Pointer of the array, such as <code>/items</code>
+     * @param keyField     the field of the elements holding their key, such as <code>id</code>
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient keyBy(String arrayPointer, String keyField);
+
+    /**
+     * <p>Sets how the stream is reconnected when it fails or is closed by the server, {@link ReconnectPolicy#DEFAULT} by default.</p>
+     * <p>On reconnection the id of the last event applied is sent in the <code>Last-Event-ID</code> header and the current
+     * snapshot is kept, so the proxy can resume with patches instead of sending the whole snapshot again.
+     * Failures are only notified with {@link #onException(Consumer)} once the policy gives up.</p>
+     *
+     * @param policy the policy, {@link ReconnectPolicy#NONE} to close the client on the first failure
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient reconnect(ReconnectPolicy policy);
+
+    /**
+     * <p>Watches the liveness of the stream : a connection that silently stalled looks like a quiet API, so when nothing,
+     * neither event nor heartbeat comment, has been received for longer than the delay, the stream is stalled. The stall
+     * is notified with {@link #onStall(LongConsumer)} and {@link StreamMetrics#onStall(long)}, once per silence, and the
+     * stream is reconnected as on a failure if asked, following the {@link #reconnect(ReconnectPolicy)} policy.</p>
+     * <p>The streams of a {@link StreamdataClient} are watched by a single thread on a timer wheel, receiving an event only
+     * recording its time, so thousands of streams can be watched. A stall is detected within about 100 ms after the delay.
+     * The delay should be a few times the heartbeat interval of the proxy.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param stallAfterMillis the silence after which the stream is stalled, 0 not to watch it (default)
+     * @param reconnect        true to reconnect a stalled stream
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient stallAfter(long stallAfterMillis, boolean reconnect);
+
+    /**
+     * <p>Starts from a snapshot kept from a previous run, for instance after a restart : the first connection sends
+     * <code>Last-Event-ID</code> so the proxy can resume with patches, which are applied to this snapshot.
+     * The snapshot is notified with {@link #onSnapshot(Consumer)} when the client is opened.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param snapshot    the snapshot to start from
+     * @param lastEventId the id of the last event applied to this snapshot, see {@link #getLastEventId()}
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient resumeFrom(Snapshot snapshot, String lastEventId);
+
+    /**
+     * <p>Periodically saves the snapshot and the id of the last event applied to it in a local file, written only when the
+     * snapshot changed. The snapshot is encoded in Smile, a binary JSON format, and the file is memory-mapped.</p>
+     * <p>On {@link #open()}, the snapshot of an existing file is restored as with {@link #resumeFrom(Snapshot, String)} :
+     * consumers get it right away and the stream resumes from its last event. A last checkpoint is written on {@link #close()}.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param file           the checkpoint file, one per stream
+     * @param intervalMillis the delay between two checkpoints
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient checkpointTo(Path file, long intervalMillis);
+
+    /**
+     * <p>Records the raw <code>data</code>, <code>patch</code> and <code>error</code> events, with the time they were
+     * received, in an append-only journal of memory-mapped segments. The journal can be replayed with
+     * {@link StreamdataClient#createReplayClient(Path, boolean)} to reproduce an incident or load-test consumers.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param directory the directory of the journal, a new segment being started after the existing ones
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient recordTo(Path directory);
+
+    /**
+     * <p>Sets where the measures of the stream go : events and bytes received, size of the snapshots, durations of the
+     * dispatch, parsing, patching and callbacks of each event, patch failures and reconnections.</p>
+     * <p>By default nothing is recorded nor even timed, see {@link MetricsRecorder} for a built-in implementation.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param metrics the recorder of the measures, {@link StreamMetrics#NOOP} by default
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient metrics(StreamMetrics metrics);
+
+    /**
+     * <p>Locates the timestamps carried by the data, with a JSON Pointer pattern where any token can be <code>*</code>, for
+     * instance <code>/prices/&#42;/dt</code>, to record the age of the events : the delay from the newest timestamp set by
+     * a patch, or held by a snapshot, to the end of its callbacks, as the {@link StreamMetrics.Stage#EVENT_AGE} stage.
+     * A timestamp is an epoch in milliseconds or an ISO-8601 date-time with an offset, events without any being ignored.</p>
+     * <b>This must be called before {@link #open()}</b>
+     *
+     * @param pattern the JSON Pointer pattern of the timestamps, null to record no age (default)
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient timestampAt(String pattern);
+
     /**
      * Sets a optionnal callback to be called after the event source has been successfully started.
      *
@@ -58,13 +260,26 @@ public interface EventSourceClient {
 
     /**
      * Sets a callback to be called every time streamdata pushes a patch. The patch is applied behind the scenes and can be accessed in a thread safe fashion using {@link #getCurrentSnapshot()}
-     * * <b>This callback must be set before calling {@link #open()}</b>
+     * <b>This callback must be set before calling {@link #open()}</b>, unless {@link #onChange(String, Consumer)} listeners are
+     * registered instead : patches are then read straight into operations without building their json tree.
      *
      * @param onOpen the callback
      * @return this client instance for nice fluent api call
      */
     EventSourceClient onPatch(Consumer<JsonNode> onOpen);
 
+    /**
+     * <p>Adds a listener notified of the changes under a JSON Pointer pattern, where any token can be <code>*</code>, for instance <code>/prices/&#42;/last</code>.</p>
+     * <p>The listener is called, once the patch has been applied, for each operation whose path matches the pattern, is below it
+     * or is above it (a parent has been replaced or removed). Every received snapshot is notified as a replace of the whole document.
+     * Operations are dispatched through a prefix trie of the patterns, so hundreds of listeners can be registered on a same stream.</p>
+     *
+     * @param pathPattern the JSON Pointer pattern
+     * @param listener    the listener
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient onChange(String pathPattern, Consumer<Change> listener);
+
     /**
      * Sets a callback to be called every time streamdata pushes an error. By default if no action is made except logging.
      *
@@ -78,7 +293,7 @@ public interface EventSourceClient {
      * <ul>
      * <li>The data cannot be parsed</li>
      * <li>The patch cannot be parsed</li>
-     * <li>The event source fails to start</li>
+     * <li>The event source fails and cannot be reconnected, see {@link #reconnect(ReconnectPolicy)}</li>
      * </ul>
      *
      * @param callback the callback
@@ -87,16 +302,50 @@ public interface EventSourceClient {
     EventSourceClient onException(Consumer<Throwable> callback);
 
     /**
-     * Get the snapshot (initial or after a patch is received and applied)
+     * Sets a callback called when the stream is stalled, see {@link #stallAfter(long, boolean)}, with how long it has been
+     * silent in milliseconds. It is called from the watchdog thread unless the dispatch is asynchronous, so it must
+     * return quickly.
+     *
+     * @param callback the callback
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClient onStall(LongConsumer callback);
+
+    /**
+     * Get the snapshot (initial or after a patch is received and applied).
+     * Patches do not modify a snapshot once it has been published, unchanged parts are shared with the next snapshots : <b>it must be treated as read-only</b>.
      *
      * @return the most fresh snapshot available
      */
     JsonNode getCurrentSnapshot();
 
+    /**
+     * Get the snapshot along with its version, as an immutable tree sharing its unchanged parts with the previous versions.
+     * Holding several versions costs only the nodes modified in between.
+     *
+     * @return the most fresh snapshot available, with a null json node if no data has been received yet
+     */
+    Snapshot getSnapshot();
+
+    /**
+     * Looks an element up in an array declared with {@link #keyBy(String, String)}, in the current snapshot
+     *
+     * @param arrayPointer the JSON Pointer of the array, as given to {@link #keyBy(String, String)}
+     * @param key          the value of the key field, as text (<code>"42"</code> for the number 42)
+     * @return the element, null if there is none or no snapshot yet
+     */
+    JsonNode getByKey(String arrayPointer, String key);
+
+    /**
+     * @return the id of the last event applied to {@link #getSnapshot()}, null if the proxy did not send any id
+     */
+    String getLastEventId();
+
 
     /**
      * Opens the connections with streamdata proxy that will poll data for you.
-     * {@link #onSnapshot(Consumer)} must have called before and {@link #onPatch(Consumer)} is incremental cache is on (default is yes unless you call {@link #useJsonPatch(boolean)} with false.
+     * {@link #onSnapshot(Consumer)} must have called before, as well as {@link #onPatch(Consumer)} or
+     * {@link #onChange(String, Consumer)} when patches are received.
      *
      * @return a future to get hints on the thread status
      */
@@ -0,0 +1,65 @@
+package io.streamdata.sdk;
+
+import java.util.Set;
+
+/**
+ * <p>A version of the typed model of a {@link TypedEventSourceClient}, along with the JSON Pointers of the nodes changed
+ * since the previous version.</p>
+ * <p>The model is updated in place by the next patches : it must be read from the callback, on the thread notifying it.</p>
+ *
+ * @param <T> the type of the model
+ */
+public final class ModelUpdate<T> {
+
+    private final long version;
+    private final T model;
+    private final Set<String> changedPaths;
+    private final boolean snapshot;
+
+    /**
+     * @param version      the version of the snapshot the model is bound from
+     * @param model        the model
+     * @param changedPaths the JSON Pointers of the changed nodes, not copied
+     * @param snapshot     true if the model has been bound from a whole snapshot
+     */
+    public ModelUpdate(long version, T model, Set<String> changedPaths, boolean snapshot) {
+        this.version = version;
+        this.model = model;
+        this.changedPaths = changedPaths;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the version of the snapshot the model is bound from, see {@link Snapshot#getVersion()}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the model, the same instance as the previous update unless the root itself has been replaced
+     */
+    public T getModel() {
+        return model;
+    }
+
+    /**
+     * @return the JSON Pointers of the nodes changed by the patch, as sent in the patch (paths and <code>from</code> of
+     * the operations), only <code>""</code> for a whole snapshot
+     */
+    public Set<String> getChangedPaths() {
+        return changedPaths;
+    }
+
+    /**
+     * @return true if the model has been bound from a whole snapshot, the first one or after a reconnection
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelUpdate{version=" + version + ", changedPaths=" + changedPaths + "}";
+    }
+}
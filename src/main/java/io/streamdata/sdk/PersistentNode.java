@@ -0,0 +1,159 @@
+package io.streamdata.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.Iterator;
+
+/**
+ * <p>Read-only view of a node of a {@link Snapshot}. Snapshots are persistent trees : a patch copies the nodes on the path of
+ * the modified values only and shares all the other ones with the previous version. Holding many versions then costs the
+ * changed nodes only, and no defensive copy is needed to keep a snapshot across threads.</p>
+ * <p>{@link #isSameAs(PersistentNode)} tells in constant time whether a subtree has been left untouched between two versions.</p>
+ */
+public final class PersistentNode {
+
+    private static final PersistentNode MISSING = new PersistentNode(MissingNode.getInstance());
+
+    private final JsonNode node;
+
+    private PersistentNode(JsonNode node) {
+        this.node = node;
+    }
+
+    static PersistentNode of(JsonNode node) {
+        return node == null || node.isMissingNode() ? MISSING : new PersistentNode(node);
+    }
+
+    /**
+     * @param fieldName the name of a field
+     * @return the value of the field, or a missing node if this is not an object or has no such field
+     */
+    public PersistentNode get(String fieldName) {
+        return of(node.get(fieldName));
+    }
+
+    /**
+     * @param index the index of an element
+     * @return the element, or a missing node if this is not an array or the index is out of bounds
+     */
+    public PersistentNode get(int index) {
+        return of(node.get(index));
+    }
+
+    /**
+     * @param pointer a JSON Pointer relative to this node
+     * @return the node the pointer leads to, or a missing node
+     */
+    public PersistentNode at(String pointer) {
+        return of(node.at(pointer));
+    }
+
+    /**
+     * @return the number of fields or elements of an object or an array, 0 otherwise
+     */
+    public int size() {
+        return node.size();
+    }
+
+    public Iterator<String> fieldNames() {
+        return node.fieldNames();
+    }
+
+    public Iterator<PersistentNode> elements() {
+        Iterator<JsonNode> elements = node.elements();
+        return new Iterator<PersistentNode>() {
+            @Override
+            public boolean hasNext() {
+                return elements.hasNext();
+            }
+
+            @Override
+            public PersistentNode next() {
+                return of(elements.next());
+            }
+        };
+    }
+
+    public boolean isMissing() {
+        return node.isMissingNode();
+    }
+
+    public boolean isObject() {
+        return node.isObject();
+    }
+
+    public boolean isArray() {
+        return node.isArray();
+    }
+
+    public boolean isNull() {
+        return node.isNull();
+    }
+
+    public boolean isNumber() {
+        return node.isNumber();
+    }
+
+    public boolean isTextual() {
+        return node.isTextual();
+    }
+
+    public boolean isBoolean() {
+        return node.isBoolean();
+    }
+
+    public String asText() {
+        return node.asText();
+    }
+
+    public long asLong() {
+        return node.asLong();
+    }
+
+    public double asDouble() {
+        return node.asDouble();
+    }
+
+    public boolean asBoolean() {
+        return node.asBoolean();
+    }
+
+    /**
+     * @param other a node, possibly from another version of the snapshot
+     * @return true if both nodes are the same instance, i.e. the subtree has not been modified between the two versions
+     */
+    public boolean isSameAs(PersistentNode other) {
+        return other != null && this.node == other.node;
+    }
+
+    /**
+     * @return a mutable deep copy of this node
+     */
+    public JsonNode toJsonNode() {
+        return node.deepCopy();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PersistentNode)) {
+            return false;
+        }
+        // shared subtrees are equal without walking them
+        JsonNode other = ((PersistentNode) o).node;
+        return node == other || node.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return node.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return node.toString();
+    }
+}
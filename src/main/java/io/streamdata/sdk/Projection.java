@@ -0,0 +1,90 @@
+package io.streamdata.sdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>The part of the data a client keeps, set with {@link EventSourceClient#projection(Projection)} : the other nodes
+ * are dropped while the snapshot is parsed and the patch operations touching them only are not applied.</p>
+ * <p>Rules are JSON Pointers where a token can be <code>*</code>, matching any single token, or <code>**</code>,
+ * matching any number of tokens. A node is kept when a rule matches it or one of its ancestors, along with the
+ * ancestors themselves, unless an exclude rule matches it or one of its ancestors. Without include rules, everything
+ * that is not excluded is kept.</p>
+ * <p>Array elements outside the projection are kept as <code>null</code>, so the indexes of the patches still match,
+ * and so are the nodes kept for their descendants which are not objects or arrays. As rules with an index select a
+ * position, inserting or removing elements of an array selected this way requires a fresh snapshot : use
+ * <code>*</code> for arrays whose elements move.</p>
+ * <p><b>Usage</b></p>
+ * <pre>
+ * client.projection(Projection.include("/items/&#42;/price", "/total").exclude("/items/&#42;/price/history"));
+ * client.projection(Projection.all().exclude("/&#42;&#42;/description"));
+ * </pre>
+ */
+public final class Projection {
+
+    private final List<String> includes;
+    private final List<String> excludes;
+
+    private Projection(List<String> includes, List<String> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * @param patterns the nodes to keep
+     * @return a projection of the given nodes
+     */
+    public static Projection include(String... patterns) {
+        return all().and(patterns, true);
+    }
+
+    /**
+     * @return a projection of everything, to be narrowed with {@link #exclude(String...)}
+     */
+    public static Projection all() {
+        return new Projection(Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * @param patterns nodes to drop
+     * @return a new projection with these rules added
+     */
+    public Projection exclude(String... patterns) {
+        return and(patterns, false);
+    }
+
+    private Projection and(String[] patterns, boolean include) {
+        checkNotNull(patterns, "patterns cannot be null");
+        List<String> rules = new ArrayList<>(include ? includes : excludes);
+        for (String pattern : patterns) {
+            checkNotNull(pattern, "pattern cannot be null");
+            checkArgument(pattern.isEmpty() || pattern.startsWith("/"), "pattern must be a JSON Pointer : %s", pattern);
+            rules.add(pattern);
+        }
+        rules = Collections.unmodifiableList(rules);
+        return include ? new Projection(rules, excludes) : new Projection(includes, rules);
+    }
+
+    /**
+     * @return the include rules, empty to keep everything that is not excluded
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * @return the exclude rules
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{includes=" + includes + ", excludes=" + excludes + "}";
+    }
+}
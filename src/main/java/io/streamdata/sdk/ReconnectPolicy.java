@@ -0,0 +1,131 @@
+package io.streamdata.sdk;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>How an {@link EventSourceClient} reconnects when its stream fails or is closed by the server.
+ * Use {@link #builder()} to get an instance, {@link #DEFAULT} for the default settings or {@link #NONE} to never reconnect.</p>
+ * <p>Delays grow exponentially from the initial delay up to the maximum delay. Each delay is randomly picked between
+ * half and all of its exponential value, so thousands of clients dropped at once do not reconnect at once.</p>
+ */
+public final class ReconnectPolicy {
+
+    /**
+     * Default settings : unlimited attempts, delays from 500 milliseconds up to 30 seconds, doubling at each attempt.
+     */
+    public static final ReconnectPolicy DEFAULT = builder().build();
+
+    /**
+     * Never reconnect : a failure of the stream is notified with {@link EventSourceClient#onException(java.util.function.Consumer)}
+     * and the client is closed.
+     */
+    public static final ReconnectPolicy NONE = builder().maxAttempts(0).build();
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final int maxAttempts;
+
+    private ReconnectPolicy(Builder builder) {
+        this.initialDelayMillis = builder.initialDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.multiplier = builder.multiplier;
+        this.maxAttempts = builder.maxAttempts;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the delay before the first attempt, before jitter
+     */
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    /**
+     * @return the maximum delay between two attempts, before jitter
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @return the factor applied to the delay after each attempt
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * @return the number of consecutive attempts before giving up, -1 meaning no limit
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt the number of the attempt, starting at 1
+     * @return true if this attempt is allowed
+     */
+    public boolean allows(int attempt) {
+        return maxAttempts < 0 || attempt <= maxAttempts;
+    }
+
+    /**
+     * @param attempt the number of the attempt, starting at 1
+     * @return the delay to wait before the attempt, jitter included
+     */
+    public long delayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+        long capped = (long) Math.min(delay, maxDelayMillis);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    public static final class Builder {
+
+        private long initialDelayMillis = 500;
+        private long maxDelayMillis = 30000;
+        private double multiplier = 2;
+        private int maxAttempts = -1;
+
+        private Builder() {
+        }
+
+        public Builder initialDelayMillis(long initialDelayMillis) {
+            checkArgument(initialDelayMillis >= 0, "initialDelayMillis must be positive");
+            this.initialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        public Builder maxDelayMillis(long maxDelayMillis) {
+            checkArgument(maxDelayMillis >= 0, "maxDelayMillis must be positive");
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder multiplier(double multiplier) {
+            checkArgument(multiplier >= 1, "multiplier must be greater or equal to 1");
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param maxAttempts the number of consecutive attempts before giving up, -1 for no limit
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts >= -1, "maxAttempts must be positive or -1");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public ReconnectPolicy build() {
+            checkArgument(maxDelayMillis >= initialDelayMillis, "maxDelayMillis must be greater or equal to initialDelayMillis");
+            return new ReconnectPolicy(this);
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import io.reactivex.Flowable;
 import io.reactivex.Scheduler;
 import io.reactivex.schedulers.Schedulers;
+import io.streamdata.sdk.metrics.StreamMetrics;
+
+import java.nio.file.Path;
 
 public interface RxJavaEventSourceClient {
 
@@ -34,6 +37,28 @@ public interface RxJavaEventSourceClient {
      */
     Flowable<Event> toFlowable();
 
+    /**
+     * <p>Expose the arrival of data as a hot flowable shared by any number of subscribers : a single connection is
+     * opened with the first subscriber, patches are applied once whatever the number of subscribers, and the connection
+     * is closed with the last one.</p>
+     * <p>A subscriber joining an opened stream first gets the current snapshot, then the live events. Each subscriber
+     * gets its own {@link #backpressure(BackpressureMode)}, so that a slow one does not hold the others up.</p>
+     * <p><b>The shared flowable and {@link #toFlowable()} cannot be used on the same client</b></p>
+     *
+     * @param scheduler the scheduler to use
+     * @return an observable that triggers realtime data
+     * @see Event
+     */
+    Flowable<Event> toSharedFlowable(Scheduler scheduler);
+
+    /**
+     * Expose the arrival of data as a hot flowable using {@link Schedulers#computation()}
+     *
+     * @return an observable that triggers realtime data
+     * @see #toSharedFlowable(Scheduler)
+     */
+    Flowable<Event> toSharedFlowable();
+
 
     /**
      * <p>Allow to enable or disable incremental cache. <b>By default incremental cache is enabled</b> thus the following happens : a Snapshot is sent back to the user followed by successive patches of this snapshot.</p>
@@ -44,6 +69,108 @@ public interface RxJavaEventSourceClient {
      */
     RxJavaEventSourceClient useJsonPatch(boolean useJsonPatch);
 
+    /**
+     * When incremental cache is disabled, turns the snapshots following the first one into locally computed patches and skips the identical ones.
+     *
+     * @param diffSnapshots true to compute patches locally
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#diffSnapshots(boolean)
+     */
+    RxJavaEventSourceClient diffSnapshots(boolean diffSnapshots);
+
+    /**
+     * Stores the snapshot in a compact, read-only, form where field names and short texts are interned across streams.
+     *
+     * @param compactSnapshots true to store the snapshot in a compact form
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#compactSnapshots(boolean)
+     */
+    RxJavaEventSourceClient compactSnapshots(boolean compactSnapshots);
+
+    /**
+     * Keeps only a part of the data, the patches changing nothing in it being skipped.
+     *
+     * @param projection the projection, null to keep everything (default)
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#projection(Projection)
+     */
+    RxJavaEventSourceClient projection(Projection projection);
+
+    /**
+     * Emits patch events at most once per interval, each one carrying the latest snapshot and a patch merging every
+     * patch received since the previous event.
+     *
+     * @param intervalMillis minimum delay between two patch events
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#throttle(long)
+     */
+    RxJavaEventSourceClient throttle(long intervalMillis);
+
+    /**
+     * Sets how the stream is reconnected when it fails, the flowable only failing once the policy gives up.
+     *
+     * @param policy the policy, {@link ReconnectPolicy#DEFAULT} by default
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#reconnect(ReconnectPolicy)
+     */
+    RxJavaEventSourceClient reconnect(ReconnectPolicy policy);
+
+    /**
+     * Detects a stream receiving nothing, neither event nor heartbeat, for longer than the delay, and reconnects it if asked.
+     * Stalls are reported to {@link StreamMetrics#onStall(long)}.
+     *
+     * @param stallAfterMillis the silence after which the stream is stalled, 0 not to watch it (default)
+     * @param reconnect        true to reconnect a stalled stream
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#stallAfter(long, boolean)
+     */
+    RxJavaEventSourceClient stallAfter(long stallAfterMillis, boolean reconnect);
+
+    /**
+     * Periodically saves the snapshot in a local file, and restores it on subscription.
+     *
+     * @param file           the checkpoint file, one per stream
+     * @param intervalMillis the delay between two checkpoints
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#checkpointTo(Path, long)
+     */
+    RxJavaEventSourceClient checkpointTo(Path file, long intervalMillis);
+
+    /**
+     * Sets where the measures of the stream go, including the events dropped by {@link BackpressureMode#DROP}.
+     *
+     * @param metrics the recorder of the measures, {@link StreamMetrics#NOOP} by default
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#metrics(StreamMetrics)
+     */
+    RxJavaEventSourceClient metrics(StreamMetrics metrics);
+
+    /**
+     * Locates the timestamps carried by the data to record the age of the events in the metrics.
+     *
+     * @param pattern the JSON Pointer pattern of the timestamps, null to record no age (default)
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#timestampAt(String)
+     */
+    RxJavaEventSourceClient timestampAt(String pattern);
+
+    /**
+     * Selects what happens when the subscriber cannot keep up with the events. Default is {@link BackpressureMode#DROP}.
+     * <b>This must be called before {@link #toFlowable()}</b>
+     *
+     * @param mode the backpressure mode
+     * @return this client instance for nice fluent api call
+     */
+    RxJavaEventSourceClient backpressure(BackpressureMode mode);
+
+    /**
+     * Sets the capacity of the buffer used by {@link BackpressureMode#BUFFER} (default : 1024 events) and an optional callback run when it overflows.
+     *
+     * @param capacity   the maximum number of events waiting for the subscriber
+     * @param onOverflow the callback run before the flowable fails, can be null
+     * @return this client instance for nice fluent api call
+     */
+    RxJavaEventSourceClient bufferCapacity(int capacity, Runnable onOverflow);
 
     /**
      * This represent an SSE Event processed by stream snapshot. This no generic implementation of an SSE event, for instance it does not contains the id field.
@@ -57,21 +184,19 @@ public interface RxJavaEventSourceClient {
     class Event {
 
         private EventType type;
+        private long version;
         private JsonNode snapshot;
         private JsonNode patch;
         private JsonNode error;
 
-        private Event(EventType type, JsonNode snapshot, JsonNode patch, JsonNode error) {
+        private Event(EventType type, long version, JsonNode snapshot, JsonNode patch, JsonNode error) {
             this.type = type;
+            this.version = version;
             this.snapshot = snapshot;
             this.patch = patch;
             this.error = error;
         }
 
-        private Event(EventType type, JsonNode snapshot, JsonNode patch) {
-            this(type, snapshot, patch, null);
-        }
-
         /**
          * Build a event that contains the snapshot.
          *
@@ -79,7 +204,18 @@ public interface RxJavaEventSourceClient {
          * @return an Event object
          */
         public static Event forSnapshot(JsonNode snapshot) {
-            return new Event(EventType.SNAPSHOT, snapshot, null);
+            return forSnapshot(0, snapshot);
+        }
+
+        /**
+         * Build a event that contains a versioned snapshot.
+         *
+         * @param version  the version of the snapshot
+         * @param snapshot snapshot as a json node
+         * @return an Event object
+         */
+        public static Event forSnapshot(long version, JsonNode snapshot) {
+            return new Event(EventType.SNAPSHOT, version, snapshot, null, null);
         }
 
         /**
@@ -90,7 +226,19 @@ public interface RxJavaEventSourceClient {
          * @return an Event object
          */
         public static Event forPatch(JsonNode snapshot, JsonNode patch) {
-            return new Event(EventType.PATCH, snapshot, patch);
+            return forPatch(0, snapshot, patch);
+        }
+
+        /**
+         * Build a event that contains a patch.
+         *
+         * @param version  the version of the snapshot
+         * @param snapshot last know snapshot with patch applied
+         * @param patch    patch as a json node
+         * @return an Event object
+         */
+        public static Event forPatch(long version, JsonNode snapshot, JsonNode patch) {
+            return new Event(EventType.PATCH, version, snapshot, patch, null);
         }
 
         /**
@@ -100,7 +248,7 @@ public interface RxJavaEventSourceClient {
          * @return an Event object
          */
         public static Event forError(JsonNode error) {
-            return new Event(EventType.ERROR, null, null, error);
+            return new Event(EventType.ERROR, 0, null, null, error);
         }
 
 
@@ -117,6 +265,24 @@ public interface RxJavaEventSourceClient {
             return snapshot;
         }
 
+        /**
+         * Gets the version of the snapshot, which increases with every snapshot or patch received by the client. It is 0 for errors.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the snapshot as an immutable tree, that can be kept and compared with other versions without any defensive copy.
+         *
+         * @return the versioned snapshot, null for errors
+         */
+        public Snapshot getPersistentSnapshot() {
+            return isError() ? null : new Snapshot(version, snapshot);
+        }
+
         /**
          * Gets the patch if any. There are two cases where <b>the patch can be null</b>
          * <ul>
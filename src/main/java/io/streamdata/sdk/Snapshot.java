@@ -0,0 +1,57 @@
+package io.streamdata.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>A version of the data streamed by the proxy. The version is incremented every time a snapshot or a patch is received,
+ * so it can be used to order or compare the snapshots of a same client.</p>
+ * <p>A Snapshot never changes once published : see {@link PersistentNode}.</p>
+ */
+public final class Snapshot {
+
+    private final long version;
+    private final JsonNode root;
+
+    /**
+     * @param version the version
+     * @param root    the data, it is not copied and must not be modified afterwards
+     */
+    public Snapshot(long version, JsonNode root) {
+        this.version = version;
+        this.root = root;
+    }
+
+    /**
+     * @return the version, strictly increasing for a same client
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a read-only view of the data
+     */
+    public PersistentNode getRoot() {
+        return PersistentNode.of(root);
+    }
+
+    /**
+     * @param pointer a JSON Pointer
+     * @return a read-only view of the node the pointer leads to, or a missing node
+     */
+    public PersistentNode at(String pointer) {
+        return getRoot().at(pointer);
+    }
+
+    /**
+     * @return the data as a JsonNode, the same instance as {@link EventSourceClient#getCurrentSnapshot()} : <b>it must be treated as read-only</b>
+     */
+    public JsonNode getJsonNode() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot{version=" + version + "}";
+    }
+}
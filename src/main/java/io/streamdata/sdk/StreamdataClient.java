@@ -1,14 +1,20 @@
 package io.streamdata.sdk;
 
-import io.streamdata.sdk.impl.EventSourceClientImpl;
-import io.streamdata.sdk.impl.RxJavaEventSourceClientImpl;
+import io.streamdata.sdk.impl.StreamdataClientImpl;
+import io.streamdata.sdk.transport.SseTransport;
+import io.streamdata.sdk.transport.SseTransports;
 
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 /**
- * Entrypoint interface to
+ * <p>Entrypoint of the SDK. A StreamdataClient owns an HTTP transport that is shared by all the clients it creates, so opening
+ * thousands of event sources does not build thousands of HTTP clients.</p>
+ * <p>The static methods {@link #createClient(String, String)} and {@link #createRxJavaClient(String, String)} use a
+ * process wide instance built with {@link TransportConfig#DEFAULT}. Use {@link #create(TransportConfig)} to get an
+ * instance with its own settings and lifecycle.</p>
  */
-public interface StreamdataClient {
+public interface StreamdataClient extends AutoCloseable {
 
     /**
      * Create an event source client for an apiUrl
@@ -19,7 +25,7 @@ public interface StreamdataClient {
      * @throws URISyntaxException if the URL to poll is not a valid URL
      */
     static EventSourceClient createClient(String apiUrl, String appKey) throws URISyntaxException {
-        return new EventSourceClientImpl(apiUrl, appKey);
+        return StreamdataClientImpl.shared().newClient(apiUrl, appKey);
     }
 
     /**
@@ -31,6 +37,120 @@ public interface StreamdataClient {
      * @throws URISyntaxException if the URL to poll is not a valid URL
      */
     static RxJavaEventSourceClient createRxJavaClient(String apiUrl, String appKey) throws URISyntaxException {
-        return new RxJavaEventSourceClientImpl(apiUrl, appKey);
+        return StreamdataClientImpl.shared().newRxJavaClient(apiUrl, appKey);
     }
+
+    /**
+     * Create a client keeping a model of the given type in sync with the stream, using the process wide instance
+     *
+     * @param apiUrl the url to be polled
+     * @param appKey the app key that will be passed to the proxy
+     * @param type   the type the snapshots are bound to with Jackson
+     * @param <T>    the type of the model
+     * @return a client to be configured and opened
+     * @throws URISyntaxException if the URL to poll is not a valid URL
+     */
+    static <T> TypedEventSourceClient<T> createTypedClient(String apiUrl, String appKey, Class<T> type) throws URISyntaxException {
+        return StreamdataClientImpl.shared().newTypedClient(apiUrl, appKey, type);
+    }
+
+    /**
+     * <p>Create a client replaying a journal recorded with {@link EventSourceClient#recordTo(Path)} instead of connecting
+     * to the proxy. The events go through the same parsing, patching and dispatch as live events, and the client is closed
+     * once the whole journal has been replayed. Closing the client releases everything the replay holds, it cannot be
+     * opened again.</p>
+     *
+     * @param journalDirectory the directory of the journal
+     * @param realTime         true to replay the events at the pace they were recorded, false to replay them as fast as possible
+     * @return a client to be configured and opened
+     */
+    static EventSourceClient createReplayClient(Path journalDirectory, boolean realTime) {
+        return StreamdataClientImpl.replayClient(journalDirectory, realTime);
+    }
+
+    /**
+     * Create a new StreamdataClient owning its own transport
+     *
+     * @param config the transport settings
+     * @return a new StreamdataClient that must be closed when no longer used
+     */
+    static StreamdataClient create(TransportConfig config) {
+        return new StreamdataClientImpl(config);
+    }
+
+    /**
+     * Create a new StreamdataClient using the given transport, for instance {@link SseTransports#nio(TransportConfig)}
+     * to read thousands of streams without a thread per stream.
+     *
+     * @param config    the settings
+     * @param transport the transport, closed along with the StreamdataClient
+     * @return a new StreamdataClient that must be closed when no longer used
+     */
+    static StreamdataClient create(TransportConfig config, SseTransport transport) {
+        return new StreamdataClientImpl(config, transport);
+    }
+
+    /**
+     * Create a new StreamdataClient owning its own transport built with {@link TransportConfig#DEFAULT}
+     *
+     * @return a new StreamdataClient that must be closed when no longer used
+     */
+    static StreamdataClient create() {
+        return create(TransportConfig.DEFAULT);
+    }
+
+    /**
+     * Create an event source client for an apiUrl that uses the transport of this instance
+     *
+     * @param apiUrl the url to be polled
+     * @param appKey the app key that will be passed to the proxy
+     * @return a client to be
+     * @throws URISyntaxException if the URL to poll is not a valid URL
+     */
+    EventSourceClient newClient(String apiUrl, String appKey) throws URISyntaxException;
+
+    /**
+     * Create a RxJava event source client for an apiUrl that uses the transport of this instance
+     *
+     * @param apiUrl the url to be polled
+     * @param appKey the app key that will be passed to the proxy
+     * @return a client to be
+     * @throws URISyntaxException if the URL to poll is not a valid URL
+     */
+    RxJavaEventSourceClient newRxJavaClient(String apiUrl, String appKey) throws URISyntaxException;
+
+    /**
+     * Create a client keeping a model of the given type in sync with the stream, that uses the transport of this instance
+     *
+     * @param apiUrl the url to be polled
+     * @param appKey the app key that will be passed to the proxy
+     * @param type   the type the snapshots are bound to with Jackson
+     * @param <T>    the type of the model
+     * @return a client to be configured and opened
+     * @throws URISyntaxException if the URL to poll is not a valid URL
+     */
+    <T> TypedEventSourceClient<T> newTypedClient(String apiUrl, String appKey, Class<T> type) throws URISyntaxException;
+
+    /**
+     * Create a manager of many streams using the transport of this instance, partitioned across a worker thread per
+     * available processor
+     *
+     * @return a new manager that must be closed when no longer used, it is closed along with this instance otherwise
+     */
+    SubscriptionManager newSubscriptionManager();
+
+    /**
+     * Create a manager of many streams using the transport of this instance
+     *
+     * @param shards the number of worker threads the streams are partitioned across
+     * @return a new manager that must be closed when no longer used, it is closed along with this instance otherwise
+     */
+    SubscriptionManager newSubscriptionManager(int shards);
+
+    /**
+     * Closes every event source still opened by a client of this instance, then releases the shared transport.
+     * No client can be opened afterwards.
+     */
+    @Override
+    void close();
 }
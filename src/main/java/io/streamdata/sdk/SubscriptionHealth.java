@@ -0,0 +1,81 @@
+package io.streamdata.sdk;
+
+/**
+ * The aggregate health of the streams of a {@link SubscriptionManager}, at the time it was computed.
+ */
+public final class SubscriptionHealth {
+
+    private final int streams;
+    private final int open;
+    private final int reconnecting;
+    private final int stale;
+    private final long oldestEventAgeMillis;
+    private final int[] streamsPerShard;
+
+    /**
+     * @param streams              the registered streams
+     * @param open                 the opened ones
+     * @param reconnecting         the opened ones that failed and are being reconnected
+     * @param stale                the opened ones without events for longer than the stale delay
+     * @param oldestEventAgeMillis the longest delay without events among the opened streams
+     * @param streamsPerShard      the registered streams of each shard
+     */
+    public SubscriptionHealth(int streams, int open, int reconnecting, int stale, long oldestEventAgeMillis, int[] streamsPerShard) {
+        this.streams = streams;
+        this.open = open;
+        this.reconnecting = reconnecting;
+        this.stale = stale;
+        this.oldestEventAgeMillis = oldestEventAgeMillis;
+        this.streamsPerShard = streamsPerShard.clone();
+    }
+
+    public int getStreams() {
+        return streams;
+    }
+
+    public int getOpen() {
+        return open;
+    }
+
+    /**
+     * @return the registered streams that are not opened : never opened, closed, or given up by their reconnect policy
+     */
+    public int getClosed() {
+        return streams - open;
+    }
+
+    public int getReconnecting() {
+        return reconnecting;
+    }
+
+    public int getStale() {
+        return stale;
+    }
+
+    /**
+     * @return the longest delay without events among the opened streams, since they were opened when they got none
+     */
+    public long getOldestEventAgeMillis() {
+        return oldestEventAgeMillis;
+    }
+
+    /**
+     * @return the registered streams of each shard
+     */
+    public int[] getStreamsPerShard() {
+        return streamsPerShard.clone();
+    }
+
+    /**
+     * @return true when every registered stream is opened, connected and receiving events
+     */
+    public boolean isHealthy() {
+        return open == streams && reconnecting == 0 && stale == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionHealth{streams=" + streams + ", open=" + open + ", reconnecting=" + reconnecting
+                + ", stale=" + stale + ", oldestEventAgeMillis=" + oldestEventAgeMillis + "}";
+    }
+}
@@ -0,0 +1,95 @@
+package io.streamdata.sdk;
+
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>Manages many streams at once, each one keyed by its API URL. Streams are registered, opened and closed in bulk, and
+ * partitioned across a fixed set of worker threads, one per core by default : the events of a stream are always parsed,
+ * patched and notified on the worker of its shard, so streams of different shards never contend with each other.</p>
+ * <p>Get one with {@link StreamdataClient#newSubscriptionManager()}. Along with the non-blocking transport, a few threads
+ * follow thousands of streams.</p>
+ * <p><b>Usage</b></p>
+ * <pre>
+ * try (SubscriptionManager manager = streamdata.newSubscriptionManager()) {
+ *     manager.registerAll(apiUrls, appKey, client -&gt; client.onSnapshot(...).onPatch(...));
+ *     manager.openAll();
+ *     ...
+ *     LOGGER.info("{}", manager.getHealth(30000));
+ * }
+ * </pre>
+ */
+public interface SubscriptionManager extends AutoCloseable {
+
+    /**
+     * Registers a stream, to be configured then opened with {@link EventSourceClient#open()} or {@link #openAll()}.
+     * <b>{@link EventSourceClient#dispatchOn(java.util.concurrent.Executor)} must not be called on the returned client</b>,
+     * the manager dispatches it on its shard.
+     *
+     * @param apiUrl the url to be polled, the key of the stream
+     * @param appKey the app key that will be passed to the proxy
+     * @return the client of the stream
+     * @throws URISyntaxException       if the URL to poll is not a valid URL
+     * @throws IllegalArgumentException if a stream is already registered for this URL
+     */
+    EventSourceClient register(String apiUrl, String appKey) throws URISyntaxException;
+
+    /**
+     * Registers streams sharing a same app key and configuration.
+     *
+     * @param apiUrls   the urls to be polled
+     * @param appKey    the app key that will be passed to the proxy
+     * @param configure called with the client of each stream, to set its callbacks
+     * @return the clients of the streams, in the order of the urls
+     * @throws URISyntaxException if one of the URLs is not valid, no stream being registered in that case
+     */
+    List<EventSourceClient> registerAll(Collection<String> apiUrls, String appKey, Consumer<EventSourceClient> configure) throws URISyntaxException;
+
+    /**
+     * @param apiUrl the key of the stream
+     * @return the client of the stream, null when not registered
+     */
+    EventSourceClient get(String apiUrl);
+
+    /**
+     * Closes a stream and forgets it.
+     *
+     * @param apiUrl the key of the stream
+     * @return true if the stream was registered
+     */
+    boolean unregister(String apiUrl);
+
+    /**
+     * Opens every registered stream that is not opened yet.
+     */
+    void openAll();
+
+    /**
+     * Closes every opened stream, they stay registered and can be opened again.
+     */
+    void closeAll();
+
+    /**
+     * @return the number of registered streams
+     */
+    int size();
+
+    /**
+     * @return the number of worker threads the streams are partitioned across
+     */
+    int getShardCount();
+
+    /**
+     * @param staleAfterMillis the delay without events after which an opened stream is considered stale
+     * @return the aggregate health of the registered streams
+     */
+    SubscriptionHealth getHealth(long staleAfterMillis);
+
+    /**
+     * Closes every stream and stops the workers, no stream can be registered afterwards.
+     */
+    @Override
+    void close();
+}
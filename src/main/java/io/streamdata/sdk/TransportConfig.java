@@ -0,0 +1,155 @@
+package io.streamdata.sdk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Settings of the HTTP transport shared by every client created from a same {@link StreamdataClient}.
+ * Use {@link #builder()} to get an instance, or {@link #DEFAULT} for the default settings.
+ */
+public final class TransportConfig {
+
+    /**
+     * Default settings : the {@link EventSourceClient#SD_PROXY_URL} proxy, no connect nor read timeout, a 5 seconds close
+     * timeout, no limit of connections and compressed streams.
+     */
+    public static final TransportConfig DEFAULT = builder().build();
+
+    private final String proxyUrl;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxConnections;
+    private final long closeTimeoutMillis;
+    private final boolean compression;
+
+    private TransportConfig(Builder builder) {
+        this.proxyUrl = builder.proxyUrl;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.maxConnections = builder.maxConnections;
+        this.closeTimeoutMillis = builder.closeTimeoutMillis;
+        this.compression = builder.compression;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the base URL of the proxy the API URLs are appended to, ending with a <code>/</code>
+     */
+    public String getProxyUrl() {
+        return proxyUrl;
+    }
+
+    /**
+     * @return the connect timeout in milliseconds, 0 meaning no timeout
+     */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @return the read timeout in milliseconds, 0 meaning no timeout (the usual value for a long lived event stream)
+     */
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * @return the maximum number of streams the Jersey transport reads at once, 0 meaning no limit
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return how long {@link EventSourceClient#close()} waits for the underlying event source to shut down
+     */
+    public long getCloseTimeoutMillis() {
+        return closeTimeoutMillis;
+    }
+
+    /**
+     * @return true if the event streams are requested with <code>Accept-Encoding: gzip, deflate</code>
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public static final class Builder {
+
+        private String proxyUrl = EventSourceClient.SD_PROXY_URL;
+        private int connectTimeoutMillis = 0;
+        private int readTimeoutMillis = 0;
+        private int maxConnections = 0;
+        private long closeTimeoutMillis = 5000;
+        private boolean compression = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Target another proxy than {@link EventSourceClient#SD_PROXY_URL}, a local stand-in for instance.
+         *
+         * @param proxyUrl the base URL of the proxy, a trailing <code>/</code> being added when missing
+         * @return this builder
+         */
+        public Builder proxyUrl(String proxyUrl) {
+            checkNotNull(proxyUrl, "proxyUrl cannot be null");
+            checkArgument(proxyUrl.startsWith("http://") || proxyUrl.startsWith("https://"),
+                          "proxyUrl must be an http or https URL");
+            this.proxyUrl = proxyUrl.endsWith("/") ? proxyUrl : proxyUrl + "/";
+            return this;
+        }
+
+        public Builder connectTimeoutMillis(int connectTimeoutMillis) {
+            checkArgument(connectTimeoutMillis >= 0, "connectTimeoutMillis must be positive");
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public Builder readTimeoutMillis(int readTimeoutMillis) {
+            checkArgument(readTimeoutMillis >= 0, "readTimeoutMillis must be positive");
+            this.readTimeoutMillis = readTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Bounds the pooled connections of the Jersey transport, which reads each stream on a thread of its own holding
+         * one connection : the same bound applies to its threads. The streams opened beyond it wait for a stream to be
+         * closed. Use {@link io.streamdata.sdk.transport.SseTransports#nio(TransportConfig)} to read thousands of streams
+         * without a thread per stream.
+         *
+         * @param maxConnections the maximum number of streams read at once, 0 for no limit (default)
+         * @return this builder
+         */
+        public Builder maxConnections(int maxConnections) {
+            checkArgument(maxConnections >= 0, "maxConnections must be positive");
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder closeTimeoutMillis(long closeTimeoutMillis) {
+            checkArgument(closeTimeoutMillis >= 0, "closeTimeoutMillis must be positive");
+            this.closeTimeoutMillis = closeTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Request the event streams compressed with gzip or deflate, which the transports decode with inflaters reused
+         * across connections. Streams are received as is when the proxy does not compress them.
+         *
+         * @param compression true by default, false to request uncompressed streams
+         * @return this builder
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public TransportConfig build() {
+            return new TransportConfig(this);
+        }
+    }
+}
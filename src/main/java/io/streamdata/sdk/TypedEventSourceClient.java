@@ -0,0 +1,105 @@
+package io.streamdata.sdk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.streamdata.sdk.metrics.StreamMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * <p>An event source keeping a model of a given type in sync with the stream. The first snapshot is bound once, then
+ * every operation of a patch only updates the object, field or collection element it targets : the unchanged
+ * instances are kept, and the model is updated in place.</p>
+ * <p>An operation targeting a node that cannot be updated in place, such as a property without setter or an immutable
+ * collection, rebinds the closest enclosing object that can be.</p>
+ *
+ * @param <T> the type of the model
+ */
+public interface TypedEventSourceClient<T> {
+
+    /**
+     * Add a header to the polling request (those header will be passed to the request when SD.io will poll the API)
+     *
+     * @param name  name of the header
+     * @param value value of the header
+     * @return this client instance for nice fluent api call
+     */
+    TypedEventSourceClient<T> addHeader(String name, String value);
+
+    /**
+     * Sets the mapper binding the model, configured with the modules and features the type needs
+     *
+     * @param mapper the mapper, a default <code>ObjectMapper</code> otherwise
+     * @return this client instance for nice fluent api call
+     */
+    TypedEventSourceClient<T> mapper(ObjectMapper mapper);
+
+    /**
+     * Sets how the stream is reconnected when it fails, the model being bound again from the snapshot sent on reconnection.
+     *
+     * @param policy the policy, {@link ReconnectPolicy#DEFAULT} by default
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#reconnect(ReconnectPolicy)
+     */
+    TypedEventSourceClient<T> reconnect(ReconnectPolicy policy);
+
+    /**
+     * Runs the parsing, patching, binding and callbacks on the given executor instead of the thread reading the stream.
+     *
+     * @param executor the executor, null to run everything on the reading thread (default)
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#dispatchOn(Executor)
+     */
+    TypedEventSourceClient<T> dispatchOn(Executor executor);
+
+    /**
+     * Updates the model at most once per interval, with every patch received in between.
+     *
+     * @param intervalMillis minimum delay between two updates
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#throttle(long)
+     */
+    TypedEventSourceClient<T> throttle(long intervalMillis);
+
+    /**
+     * Records measures of the stream.
+     *
+     * @param metrics the recorder
+     * @return this client instance for nice fluent api call
+     * @see EventSourceClient#metrics(StreamMetrics)
+     */
+    TypedEventSourceClient<T> metrics(StreamMetrics metrics);
+
+    /**
+     * Sets the callback notified with the model every time it is bound or updated
+     *
+     * @param listener the callback
+     * @return this client instance for nice fluent api call
+     */
+    TypedEventSourceClient<T> onUpdate(Consumer<ModelUpdate<T>> listener);
+
+    /**
+     * Sets a callback that is called when a exception is raised, see {@link EventSourceClient#onException(Consumer)}
+     *
+     * @param callback the callback
+     * @return this client instance for nice fluent api call
+     */
+    TypedEventSourceClient<T> onException(Consumer<Throwable> callback);
+
+    /**
+     * @return the last model notified, null before the first snapshot. <b>It is updated in place by the next patches.</b>
+     */
+    T getModel();
+
+    /**
+     * Open the connection.
+     *
+     * @return this client instance for nice fluent api call
+     */
+    TypedEventSourceClient<T> open();
+
+    /**
+     * Close the connection
+     */
+    void close();
+}
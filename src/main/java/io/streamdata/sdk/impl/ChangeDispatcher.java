@@ -0,0 +1,160 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.streamdata.sdk.Change;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <p>Dispatches patch operations to the listeners registered on JSON Pointer patterns. Patterns are stored in a prefix trie,
+ * a <code>*</code> token matching any single token, so dispatching an operation costs the depth of its path and not the
+ * number of listeners.</p>
+ * <p>A listener is notified when the operation path matches its pattern, is a descendant of a matching path (a field
+ * below has changed) or an ancestor of it (the whole parent has been replaced or removed).</p>
+ */
+public final class ChangeDispatcher {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    private volatile boolean empty = true;
+
+    /**
+     * Register a listener
+     *
+     * @param pattern  a JSON Pointer where any token can be <code>*</code>
+     * @param listener the listener
+     */
+    public void register(String pattern, Consumer<Change> listener) {
+        Node node = root;
+        for (String token : PatchOperation.parsePointer(pattern)) {
+            node = node.child(token);
+        }
+        node.listeners.add(listener);
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Notify the listeners concerned by the operations of a patch
+     *
+     * @param operations the operations, already applied
+     */
+    public void dispatch(List<PatchOperation> operations) {
+        if (empty) {
+            return;
+        }
+        List<Consumer<Change>> matched = new ArrayList<>();
+        for (PatchOperation operation : operations) {
+            Change change;
+            switch (operation.getOp()) {
+                case TEST:
+                    continue;
+                case REMOVE:
+                    change = new Change("remove", operation.getPath(), null, null);
+                    break;
+                case MOVE:
+                case COPY:
+                    // the node as the operation left it, the following operations of the patch may have changed it since
+                    change = new Change(operation.getOp().name().toLowerCase(), operation.getPath(),
+                            operation.getFrom(), operation.getMovedValue());
+                    break;
+                default:
+                    change = new Change(operation.getOp().name().toLowerCase(), operation.getPath(), null, operation.getValue());
+            }
+
+            matched.clear();
+            collect(root, operation.getPathTokens(), 0, matched);
+            if (operation.getOp() == PatchOperation.Op.MOVE) {
+                // the source of a move has been removed, listeners matching both paths are notified once
+                collect(root, operation.getFromTokens(), 0, matched);
+                dedup(matched);
+            }
+            for (Consumer<Change> listener : matched) {
+                listener.accept(change);
+            }
+        }
+    }
+
+    /**
+     * Notify every listener that the whole document has been replaced
+     *
+     * @param snapshot the new snapshot
+     */
+    public void dispatchSnapshot(JsonNode snapshot) {
+        if (empty) {
+            return;
+        }
+        Change change = new Change("replace", "", null, snapshot);
+        List<Consumer<Change>> matched = new ArrayList<>();
+        collectAll(root, matched);
+        for (Consumer<Change> listener : matched) {
+            listener.accept(change);
+        }
+    }
+
+    private static void collect(Node node, String[] path, int depth, List<Consumer<Change>> matched) {
+        if (depth == path.length) {
+            // the operation replaced this node : every pattern at or below it is concerned
+            collectAll(node, matched);
+            return;
+        }
+        // the operation is below a pattern
+        matched.addAll(node.listeners);
+
+        Node child = node.children.get(path[depth]);
+        if (child != null) {
+            collect(child, path, depth + 1, matched);
+        }
+        Node wildcard = node.wildcard;
+        if (wildcard != null) {
+            collect(wildcard, path, depth + 1, matched);
+        }
+    }
+
+    private static void collectAll(Node node, List<Consumer<Change>> matched) {
+        matched.addAll(node.listeners);
+        for (Node child : node.children.values()) {
+            collectAll(child, matched);
+        }
+        if (node.wildcard != null) {
+            collectAll(node.wildcard, matched);
+        }
+    }
+
+    private static void dedup(List<Consumer<Change>> matched) {
+        Set<Consumer<Change>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        matched.removeIf(listener -> !seen.add(listener));
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private volatile Node wildcard;
+        private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+
+        private Node child(String token) {
+            if (WILDCARD.equals(token)) {
+                synchronized (this) {
+                    if (wildcard == null) {
+                        wildcard = new Node();
+                    }
+                    return wildcard;
+                }
+            }
+            return children.computeIfAbsent(token, t -> new Node());
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A persistent list of nodes stored as a B-tree of chunks : reading, setting, inserting or removing an element costs a
+ * few copies of arrays of at most {@value #MAX_CHUNK} elements along the path from the root, whatever the size of the
+ * list, where an <code>ArrayList</code> shifts every following element.</p>
+ * <p>A modification returns a new list sharing every untouched chunk with the previous one, which is left as is.
+ * Chunks are split when full but never merged : removals leave them smaller, empty ones being dropped.</p>
+ */
+final class ChunkedList implements Iterable<JsonNode> {
+
+    static final int MAX_CHUNK = 64;
+    private static final int MAX_CHILDREN = 32;
+
+    static final ChunkedList EMPTY = new ChunkedList(new Leaf(new JsonNode[0]));
+
+    private final Node root;
+
+    private ChunkedList(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param elements the elements, in order
+     * @return a list of these elements, chunks and branches being filled to three quarters so the first insertions
+     * do not split them
+     */
+    static ChunkedList of(List<JsonNode> elements) {
+        if (elements.isEmpty()) {
+            return EMPTY;
+        }
+        int chunk = MAX_CHUNK * 3 / 4;
+        Node[] level = new Node[(elements.size() + chunk - 1) / chunk];
+        for (int i = 0; i < level.length; i++) {
+            int from = i * chunk;
+            level[i] = new Leaf(elements.subList(from, Math.min(from + chunk, elements.size())).toArray(new JsonNode[0]));
+        }
+        int children = MAX_CHILDREN * 3 / 4;
+        while (level.length > 1) {
+            Node[] parents = new Node[(level.length + children - 1) / children];
+            for (int i = 0; i < parents.length; i++) {
+                int from = i * children;
+                Node[] group = new Node[Math.min(children, level.length - from)];
+                System.arraycopy(level, from, group, 0, group.length);
+                parents[i] = new Branch(group);
+            }
+            level = parents;
+        }
+        return new ChunkedList(level[0]);
+    }
+
+    int size() {
+        return root.size();
+    }
+
+    JsonNode get(int index) {
+        checkIndex(index, size());
+        return root.get(index);
+    }
+
+    ChunkedList set(int index, JsonNode value) {
+        checkIndex(index, size());
+        return new ChunkedList(root.set(index, value));
+    }
+
+    /**
+     * @param index the position of the new element, the size to append it
+     */
+    ChunkedList insert(int index, JsonNode value) {
+        checkIndex(index, size() + 1);
+        Node[] split = root.insert(index, value);
+        return new ChunkedList(split.length == 1 ? split[0] : new Branch(split));
+    }
+
+    ChunkedList remove(int index) {
+        checkIndex(index, size());
+        Node node = root.remove(index);
+        if (node == null) {
+            return EMPTY;
+        }
+        // a root with a single child is useless
+        while (node instanceof Branch && ((Branch) node).children.length == 1) {
+            node = ((Branch) node).children[0];
+        }
+        return new ChunkedList(node);
+    }
+
+    /**
+     * Iterates chunk by chunk, without looking each element up from the root
+     */
+    @Override
+    public Iterator<JsonNode> iterator() {
+        return new Iterator<JsonNode>() {
+            // branches being walked and the next child of each
+            private final Branch[] branches = new Branch[depth()];
+            private final int[] nextChild = new int[branches.length];
+            private int depth;
+            private JsonNode[] chunk;
+            private int next;
+
+            {
+                descend(root);
+            }
+
+            private void descend(Node node) {
+                while (node instanceof Branch) {
+                    branches[depth] = (Branch) node;
+                    nextChild[depth] = 1;
+                    depth++;
+                    node = ((Branch) node).children[0];
+                }
+                chunk = ((Leaf) node).elements;
+                next = 0;
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (next >= chunk.length) {
+                    // climb to the first branch having children left
+                    while (depth > 0 && nextChild[depth - 1] >= branches[depth - 1].children.length) {
+                        depth--;
+                    }
+                    if (depth == 0) {
+                        return false;
+                    }
+                    Node node = branches[depth - 1].children[nextChild[depth - 1]++];
+                    descend(node);
+                }
+                return true;
+            }
+
+            @Override
+            public JsonNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk[next++];
+            }
+        };
+    }
+
+    private int depth() {
+        int depth = 0;
+        for (Node node = root; node instanceof Branch; node = ((Branch) node).children[0]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    private abstract static class Node {
+
+        abstract int size();
+
+        abstract JsonNode get(int index);
+
+        abstract Node set(int index, JsonNode value);
+
+        /**
+         * @return the node holding the new element, or two nodes when it had to be split
+         */
+        abstract Node[] insert(int index, JsonNode value);
+
+        /**
+         * @return the node without the element, null when it is empty
+         */
+        abstract Node remove(int index);
+    }
+
+    private static final class Leaf extends Node {
+
+        private final JsonNode[] elements;
+
+        private Leaf(JsonNode[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        int size() {
+            return elements.length;
+        }
+
+        @Override
+        JsonNode get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        Node set(int index, JsonNode value) {
+            JsonNode[] copy = elements.clone();
+            copy[index] = value;
+            return new Leaf(copy);
+        }
+
+        @Override
+        Node[] insert(int index, JsonNode value) {
+            JsonNode[] extended = new JsonNode[elements.length + 1];
+            System.arraycopy(elements, 0, extended, 0, index);
+            extended[index] = value;
+            System.arraycopy(elements, index, extended, index + 1, elements.length - index);
+            if (extended.length <= MAX_CHUNK) {
+                return new Node[]{new Leaf(extended)};
+            }
+            int half = extended.length / 2;
+            JsonNode[] left = new JsonNode[half];
+            JsonNode[] right = new JsonNode[extended.length - half];
+            System.arraycopy(extended, 0, left, 0, left.length);
+            System.arraycopy(extended, half, right, 0, right.length);
+            return new Node[]{new Leaf(left), new Leaf(right)};
+        }
+
+        @Override
+        Node remove(int index) {
+            if (elements.length == 1) {
+                return null;
+            }
+            JsonNode[] reduced = new JsonNode[elements.length - 1];
+            System.arraycopy(elements, 0, reduced, 0, index);
+            System.arraycopy(elements, index + 1, reduced, index, reduced.length - index);
+            return new Leaf(reduced);
+        }
+    }
+
+    private static final class Branch extends Node {
+
+        private final Node[] children;
+        // offsets[i] is the index of the first element of children[i], offsets[children.length] the size
+        private final int[] offsets;
+
+        private Branch(Node[] children) {
+            this.children = children;
+            this.offsets = new int[children.length + 1];
+            for (int i = 0; i < children.length; i++) {
+                offsets[i + 1] = offsets[i] + children[i].size();
+            }
+        }
+
+        @Override
+        int size() {
+            return offsets[children.length];
+        }
+
+        /**
+         * @return the child holding the index, the last one for the size
+         */
+        private int locate(int index) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (offsets[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        JsonNode get(int index) {
+            int child = locate(index);
+            return children[child].get(index - offsets[child]);
+        }
+
+        @Override
+        Node set(int index, JsonNode value) {
+            int child = locate(index);
+            Node[] copy = children.clone();
+            copy[child] = children[child].set(index - offsets[child], value);
+            return new Branch(copy);
+        }
+
+        @Override
+        Node[] insert(int index, JsonNode value) {
+            int child = locate(index);
+            Node[] split = children[child].insert(index - offsets[child], value);
+            Node[] copy = new Node[children.length + split.length - 1];
+            System.arraycopy(children, 0, copy, 0, child);
+            System.arraycopy(split, 0, copy, child, split.length);
+            System.arraycopy(children, child + 1, copy, child + split.length, children.length - child - 1);
+            if (copy.length <= MAX_CHILDREN) {
+                return new Node[]{new Branch(copy)};
+            }
+            int half = copy.length / 2;
+            Node[] left = new Node[half];
+            Node[] right = new Node[copy.length - half];
+            System.arraycopy(copy, 0, left, 0, left.length);
+            System.arraycopy(copy, half, right, 0, right.length);
+            return new Node[]{new Branch(left), new Branch(right)};
+        }
+
+        @Override
+        Node remove(int index) {
+            int child = locate(index);
+            Node reduced = children[child].remove(index - offsets[child]);
+            if (reduced != null) {
+                Node[] copy = children.clone();
+                copy[child] = reduced;
+                return new Branch(copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Node[] copy = new Node[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, child);
+            System.arraycopy(children, child + 1, copy, child, copy.length - child);
+            return new Branch(copy);
+        }
+    }
+}
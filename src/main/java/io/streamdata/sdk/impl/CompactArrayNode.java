@@ -0,0 +1,79 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>A JSON array stored as an array of elements sized to fit, for arrays that are not made of objects of a same shape.
+ * It is a regular, read-only, <code>ArrayNode</code> whose children are a list view rejecting any modification.</p>
+ * <p>The package-private mutators are only called by {@link CompactPatchEngine} on nodes that are not published yet.</p>
+ */
+final class CompactArrayNode extends ArrayNode {
+
+    // the children of ArrayNode are private
+    private final Elements storage;
+
+    /**
+     * @param elements the elements, not copied
+     */
+    CompactArrayNode(JsonNode[] elements) {
+        this(new Elements(elements));
+    }
+
+    private CompactArrayNode(Elements storage) {
+        super(JsonNodeFactory.instance, storage);
+        this.storage = storage;
+    }
+
+    CompactArrayNode copy() {
+        return new CompactArrayNode(storage.elements.clone());
+    }
+
+    void setElement(int index, JsonNode value) {
+        storage.elements[index] = value;
+    }
+
+    /**
+     * Inserts an element, index being the size to append it
+     */
+    void insertElement(int index, JsonNode value) {
+        JsonNode[] extended = new JsonNode[storage.elements.length + 1];
+        System.arraycopy(storage.elements, 0, extended, 0, index);
+        extended[index] = value;
+        System.arraycopy(storage.elements, index, extended, index + 1, storage.elements.length - index);
+        storage.elements = extended;
+    }
+
+    void removeElement(int index) {
+        JsonNode[] reduced = new JsonNode[storage.elements.length - 1];
+        System.arraycopy(storage.elements, 0, reduced, 0, index);
+        System.arraycopy(storage.elements, index + 1, reduced, index, reduced.length - index);
+        storage.elements = reduced;
+    }
+
+    /**
+     * Read-only list over an array
+     */
+    private static final class Elements extends AbstractList<JsonNode> implements RandomAccess {
+
+        private JsonNode[] elements;
+
+        private Elements(JsonNode[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
+}
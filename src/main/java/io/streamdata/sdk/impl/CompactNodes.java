@@ -0,0 +1,99 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <p>Turns Jackson trees into compact ones :</p>
+ * <ul>
+ * <li>objects become a {@link CompactShape}, interned across all the streams, and an array of values,</li>
+ * <li>arrays of objects of a same shape become a {@link CompactTableNode}, numbers being held in primitive columns,</li>
+ * <li>short texts are interned across all the streams, so values repeated in many snapshots such as currencies or
+ * statuses are stored once.</li>
+ * </ul>
+ * <p>Compact trees are made of read-only <code>ObjectNode</code> and <code>ArrayNode</code>, so they can be read, bound
+ * and serialized like any other tree, and are patched with {@link CompactPatchEngine}. Use <code>deepCopy()</code> to
+ * get a mutable tree.</p>
+ */
+final class CompactNodes {
+
+    private static final Interner<JsonNode> TEXTS = Interners.newWeakInterner();
+
+    // longer texts are unlikely to be repeated, interning them would cost more than it saves
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private CompactNodes() {
+    }
+
+    /**
+     * @param node a node, compact or not
+     * @return the compact equivalent of the node, the node itself when already compact
+     */
+    static JsonNode encode(JsonNode node) {
+        if (node instanceof CompactRowNode) {
+            // a view must not outlive the version of the table it reads
+            CompactRowNode row = (CompactRowNode) node;
+            return row.table().row(row.row());
+        }
+        if (node instanceof CompactObjectNode || node instanceof CompactArrayNode || node instanceof CompactTableNode
+                || node instanceof KeyedArrayNode) {
+            return node;
+        }
+        if (node.isObject()) {
+            String[] names = new String[node.size()];
+            JsonNode[] values = new JsonNode[names.length];
+            int i = 0;
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); i++) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                names[i] = field.getKey();
+                values[i] = encode(field.getValue());
+            }
+            return new CompactObjectNode(CompactShape.of(names), values);
+        }
+        if (node.isArray()) {
+            JsonNode[] elements = new JsonNode[node.size()];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = encode(node.get(i));
+            }
+            CompactShape shape = commonShape(elements);
+            if (shape != null) {
+                CompactObjectNode[] rows = new CompactObjectNode[elements.length];
+                System.arraycopy(elements, 0, rows, 0, rows.length);
+                return CompactTableNode.of(shape, rows);
+            }
+            return new CompactArrayNode(elements);
+        }
+        return intern(node);
+    }
+
+    /**
+     * @return the shape of the elements if there are several and they are all objects of this shape, otherwise null
+     */
+    private static CompactShape commonShape(JsonNode[] elements) {
+        if (elements.length < 2 || !(elements[0] instanceof CompactObjectNode)) {
+            return null;
+        }
+        CompactShape shape = ((CompactObjectNode) elements[0]).shape();
+        if (shape.size() == 0) {
+            return null;
+        }
+        for (JsonNode element : elements) {
+            // shapes are interned
+            if (!(element instanceof CompactObjectNode) || ((CompactObjectNode) element).shape() != shape) {
+                return null;
+            }
+        }
+        return shape;
+    }
+
+    private static JsonNode intern(JsonNode value) {
+        if (value.isTextual() && value.textValue().length() <= MAX_INTERNED_LENGTH) {
+            return TEXTS.intern(value);
+        }
+        return value;
+    }
+}
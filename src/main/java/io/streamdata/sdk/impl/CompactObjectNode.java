@@ -0,0 +1,143 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>A JSON object stored as an interned {@link CompactShape} and an array of values, instead of a map with an entry per
+ * field. It is a regular, read-only, <code>ObjectNode</code> : its children are a map view over the shape and the
+ * values, which rejects any modification.</p>
+ * <p>The package-private mutators are only called by {@link CompactPatchEngine} on nodes that are not published yet.</p>
+ */
+final class CompactObjectNode extends ObjectNode {
+
+    /**
+     * @param shape  the field names
+     * @param values the values, in the order of the names, not copied
+     */
+    CompactObjectNode(CompactShape shape, JsonNode[] values) {
+        super(JsonNodeFactory.instance, new Fields(shape, values));
+    }
+
+    private Fields storage() {
+        return (Fields) _children;
+    }
+
+    CompactShape shape() {
+        return storage().shape;
+    }
+
+    /**
+     * @return the value at a position of the shape
+     */
+    JsonNode valueAt(int index) {
+        return storage().values[index];
+    }
+
+    CompactObjectNode copy() {
+        return new CompactObjectNode(storage().shape, storage().values.clone());
+    }
+
+    /**
+     * Sets a field, appended when new
+     */
+    void setField(String fieldName, JsonNode value) {
+        Fields fields = storage();
+        int index = fields.shape.indexOf(fieldName);
+        if (index >= 0) {
+            fields.values[index] = value;
+        } else {
+            fields.shape = fields.shape.with(fieldName);
+            fields.values = Arrays.copyOf(fields.values, fields.values.length + 1);
+            fields.values[fields.values.length - 1] = value;
+        }
+    }
+
+    /**
+     * @return the removed value, null when there was no such field
+     */
+    JsonNode removeField(String fieldName) {
+        Fields fields = storage();
+        int index = fields.shape.indexOf(fieldName);
+        if (index < 0) {
+            return null;
+        }
+        JsonNode removed = fields.values[index];
+        JsonNode[] reduced = new JsonNode[fields.values.length - 1];
+        System.arraycopy(fields.values, 0, reduced, 0, index);
+        System.arraycopy(fields.values, index + 1, reduced, index, reduced.length - index);
+        fields.shape = fields.shape.without(index);
+        fields.values = reduced;
+        return removed;
+    }
+
+    /**
+     * Read-only map over a shape and values
+     */
+    private static final class Fields extends AbstractMap<String, JsonNode> {
+
+        private CompactShape shape;
+        private JsonNode[] values;
+
+        private Fields(CompactShape shape, JsonNode[] values) {
+            this.shape = shape;
+            this.values = values;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && shape.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public JsonNode get(Object key) {
+            int index = key instanceof String ? shape.indexOf((String) key) : -1;
+            return index < 0 ? null : values[index];
+        }
+
+        @Override
+        public Set<Entry<String, JsonNode>> entrySet() {
+            return new AbstractSet<Entry<String, JsonNode>>() {
+                @Override
+                public Iterator<Entry<String, JsonNode>> iterator() {
+                    return new Iterator<Entry<String, JsonNode>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, JsonNode> next() {
+                            if (next >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(shape.name(index), values[index]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+    }
+}
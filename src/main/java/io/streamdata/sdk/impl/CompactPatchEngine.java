@@ -0,0 +1,315 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static io.streamdata.sdk.impl.JsonPatchEngine.index;
+import static io.streamdata.sdk.impl.JsonPatchEngine.isProperPrefix;
+
+/**
+ * <p>Applies RFC 6902 JSON Patches to compact trees (see {@link CompactNodes}), with the same path copying as
+ * {@link JsonPatchEngine} : only the containers on the path of a modified node are copied, and in a table only the
+ * modified columns.</p>
+ * <p>A table holds rows of a single shape : an operation adding or removing a field of a row, or inserting an object of
+ * another shape, turns the table into a plain array first.</p>
+ */
+final class CompactPatchEngine {
+
+    private CompactPatchEngine() {
+    }
+
+    /**
+     * Apply parsed operations
+     *
+     * @param source     the document to patch, left untouched, encoded first if it is not compact
+     * @param operations the operations
+     * @return the patched document, compact
+     * @throws PatchApplicationException when an operation cannot be applied
+     */
+    static JsonNode apply(JsonNode source, List<PatchOperation> operations) {
+        if (source == null) {
+            throw new PatchApplicationException("Cannot apply a patch before a snapshot has been received");
+        }
+        Context context = new Context(CompactNodes.encode(source));
+        for (PatchOperation operation : operations) {
+            context.apply(operation);
+        }
+        context.seal();
+        return context.root;
+    }
+
+    private enum Kind {
+        ADD, REMOVE, REPLACE
+    }
+
+    /**
+     * Holds the root being built along with the nodes and columns copied while applying a patch, which are not visible
+     * to anybody yet so they can be modified in place by the following operations.
+     */
+    private static final class Context {
+
+        private JsonNode root;
+        private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<KeyedArrayNode> keyed = new ArrayList<>();
+
+        private Context(JsonNode root) {
+            this.root = root;
+        }
+
+        private void seal() {
+            for (KeyedArrayNode array : keyed) {
+                array.seal();
+            }
+            keyed.clear();
+        }
+
+        private void apply(PatchOperation operation) {
+            String[] path = operation.getPathTokens();
+            switch (operation.getOp()) {
+                case ADD:
+                    add(path, CompactNodes.encode(operation.getValue()), operation);
+                    break;
+                case REMOVE:
+                    remove(path, operation);
+                    break;
+                case REPLACE:
+                    replace(path, CompactNodes.encode(operation.getValue()), operation);
+                    break;
+                case MOVE: {
+                    String[] from = operation.getFromTokens();
+                    if (Arrays.equals(from, path)) {
+                        break;
+                    }
+                    if (isProperPrefix(from, path)) {
+                        throw new PatchApplicationException("Cannot move a node into one of its children : " + operation);
+                    }
+                    JsonNode value = CompactNodes.encode(get(from, operation));
+                    remove(from, operation);
+                    // the node moved is notified as this operation left it, it cannot be modified in place anymore
+                    seal();
+                    owned.clear();
+                    add(path, value, operation);
+                    operation.setMovedValue(value);
+                    break;
+                }
+                case COPY: {
+                    JsonNode value = CompactNodes.encode(get(operation.getFromTokens(), operation));
+                    // containers copied so far may end up reachable from both paths, they cannot be modified in place anymore
+                    seal();
+                    owned.clear();
+                    add(path, value, operation);
+                    operation.setMovedValue(value);
+                    break;
+                }
+                case TEST:
+                    if (!get(path, operation).equals(operation.getValue())) {
+                        throw new PatchApplicationException("Test failed : " + operation);
+                    }
+                    break;
+                default:
+                    throw new PatchApplicationException("Unsupported operation : " + operation);
+            }
+        }
+
+        private void add(String[] path, JsonNode value, PatchOperation operation) {
+            if (path.length == 0) {
+                root = value;
+                return;
+            }
+            JsonNode parent = parentOf(path, Kind.ADD, value, operation);
+            String last = path[path.length - 1];
+            if (parent instanceof CompactObjectNode) {
+                ((CompactObjectNode) parent).setField(last, value);
+            } else if (parent instanceof CompactRowNode) {
+                setCell((CompactRowNode) parent, last, value);
+            } else if (parent instanceof CompactArrayNode) {
+                CompactArrayNode array = (CompactArrayNode) parent;
+                array.insertElement("-".equals(last) ? array.size() : index(last, array.size() + 1, operation), value);
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.insertElement("-".equals(last) ? array.size() : index(last, array.size() + 1, operation), value);
+            } else {
+                CompactTableNode table = (CompactTableNode) parent;
+                int row = "-".equals(last) ? table.size() : index(last, table.size() + 1, operation);
+                table.insertRow(row, (CompactObjectNode) value, owned);
+            }
+        }
+
+        private void remove(String[] path, PatchOperation operation) {
+            if (path.length == 0) {
+                throw new PatchApplicationException("Cannot remove the whole document : " + operation);
+            }
+            JsonNode parent = parentOf(path, Kind.REMOVE, null, operation);
+            String last = path[path.length - 1];
+            if (parent instanceof CompactObjectNode) {
+                if (((CompactObjectNode) parent).removeField(last) == null) {
+                    throw new PatchApplicationException("No value to remove : " + operation);
+                }
+            } else if (parent instanceof CompactArrayNode) {
+                CompactArrayNode array = (CompactArrayNode) parent;
+                array.removeElement(index(last, array.size(), operation));
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.removeElement(index(last, array.size(), operation));
+            } else {
+                // a row never loses a field, its table is turned into an array first
+                CompactTableNode table = (CompactTableNode) parent;
+                table.removeRow(index(last, table.size(), operation), owned);
+            }
+        }
+
+        private void replace(String[] path, JsonNode value, PatchOperation operation) {
+            if (path.length == 0) {
+                root = value;
+                return;
+            }
+            JsonNode parent = parentOf(path, Kind.REPLACE, value, operation);
+            String last = path[path.length - 1];
+            if (parent instanceof CompactObjectNode) {
+                CompactObjectNode object = (CompactObjectNode) parent;
+                if (object.get(last) == null) {
+                    throw new PatchApplicationException("No value to replace : " + operation);
+                }
+                object.setField(last, value);
+            } else if (parent instanceof CompactRowNode) {
+                if (parent.get(last) == null) {
+                    throw new PatchApplicationException("No value to replace : " + operation);
+                }
+                setCell((CompactRowNode) parent, last, value);
+            } else if (parent instanceof CompactArrayNode) {
+                CompactArrayNode array = (CompactArrayNode) parent;
+                array.setElement(index(last, array.size(), operation), value);
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.setElement(index(last, array.size(), operation), value);
+            } else {
+                CompactTableNode table = (CompactTableNode) parent;
+                table.setRow(index(last, table.size(), operation), (CompactObjectNode) value, owned);
+            }
+        }
+
+        private void setCell(CompactRowNode row, String fieldName, JsonNode value) {
+            row.table().setCell(row.row(), row.table().shape().indexOf(fieldName), value, owned);
+        }
+
+        /**
+         * Read a node without copying anything
+         */
+        private JsonNode get(String[] path, PatchOperation operation) {
+            JsonNode node = root;
+            for (String token : path) {
+                node = child(node, token, operation);
+            }
+            return node;
+        }
+
+        /**
+         * Gets the container holding the last token of the path, copying the containers from the root if they are not
+         * owned yet, and turning the tables that cannot hold the result of the operation into arrays.
+         */
+        private JsonNode parentOf(String[] path, Kind kind, JsonNode value, PatchOperation operation) {
+            root = reshape(own(root, operation), path, 0, kind, value);
+            JsonNode node = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                JsonNode child = child(node, path[i], operation);
+                JsonNode ownedChild = reshape(own(child, operation), path, i + 1, kind, value);
+                if (ownedChild != child) {
+                    // link the copy in its (already owned) parent
+                    link(node, path[i], ownedChild);
+                }
+                node = ownedChild;
+            }
+            return node;
+        }
+
+        /**
+         * @param node  an owned container, at the given depth of the path
+         * @param depth the number of tokens leading to the node
+         * @return the node, or an owned array holding the same elements if the node is a table that cannot hold the result
+         */
+        private JsonNode reshape(JsonNode node, String[] path, int depth, Kind kind, JsonNode value) {
+            if (!(node instanceof CompactTableNode)) {
+                return node;
+            }
+            CompactTableNode table = (CompactTableNode) node;
+            int remaining = path.length - depth;
+            boolean fits;
+            if (remaining == 1) {
+                // a row is added, removed or replaced
+                fits = kind == Kind.REMOVE || table.fits(value);
+            } else if (remaining == 2) {
+                // a field of a row is set or removed
+                fits = kind == Kind.REPLACE || (kind == Kind.ADD && table.shape().indexOf(path[path.length - 1]) >= 0);
+            } else {
+                fits = true;
+            }
+            if (fits) {
+                return table;
+            }
+            CompactArrayNode array = table.toArray();
+            owned.add(array);
+            for (JsonNode element : array) {
+                owned.add(element);
+            }
+            return array;
+        }
+
+        private void link(JsonNode parent, String token, JsonNode child) {
+            if (parent instanceof CompactObjectNode) {
+                ((CompactObjectNode) parent).setField(token, child);
+            } else if (parent instanceof CompactRowNode) {
+                setCell((CompactRowNode) parent, token, child);
+            } else if (parent instanceof KeyedArrayNode) {
+                ((KeyedArrayNode) parent).setElement(Integer.parseInt(token), child);
+            } else {
+                // the child of a table is a row, owned along with its table
+                ((CompactArrayNode) parent).setElement(Integer.parseInt(token), child);
+            }
+        }
+
+        private JsonNode own(JsonNode node, PatchOperation operation) {
+            if (owned.contains(node)) {
+                return node;
+            }
+            JsonNode copy;
+            if (node instanceof CompactObjectNode) {
+                copy = ((CompactObjectNode) node).copy();
+            } else if (node instanceof CompactArrayNode) {
+                copy = ((CompactArrayNode) node).copy();
+            } else if (node instanceof CompactTableNode) {
+                copy = ((CompactTableNode) node).copy();
+            } else if (node instanceof KeyedArrayNode) {
+                copy = ((KeyedArrayNode) node).copy();
+                keyed.add((KeyedArrayNode) copy);
+            } else if (node instanceof CompactRowNode && owned.contains(((CompactRowNode) node).table())) {
+                // written through its table
+                return node;
+            } else {
+                throw new PatchApplicationException("Path does not lead to an object or an array : " + operation);
+            }
+            owned.add(copy);
+            return copy;
+        }
+
+        private static JsonNode child(JsonNode node, String token, PatchOperation operation) {
+            JsonNode child;
+            if (node.isObject()) {
+                child = node.get(token);
+            } else if (node.isArray()) {
+                child = node.get(index(token, node.size(), operation));
+            } else {
+                child = null;
+            }
+            if (child == null) {
+                throw new PatchApplicationException("Path not found : " + operation);
+            }
+            return child;
+        }
+    }
+}
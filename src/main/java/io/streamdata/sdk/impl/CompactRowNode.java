@@ -0,0 +1,106 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>A row of a {@link CompactTableNode} seen as a regular, read-only, <code>ObjectNode</code>. Views are created on
+ * access and hold nothing but their position, so two views of a same row are equal but not the same instance.</p>
+ */
+final class CompactRowNode extends ObjectNode {
+
+    CompactRowNode(CompactTableNode table, int row) {
+        super(JsonNodeFactory.instance, new Cells(table, row));
+    }
+
+    private Cells storage() {
+        return (Cells) _children;
+    }
+
+    CompactTableNode table() {
+        return storage().table;
+    }
+
+    int row() {
+        return storage().row;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(this);
+        storage().table.serializeRow(storage().row, generator, provider);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read-only map over the cells of a row
+     */
+    private static final class Cells extends AbstractMap<String, JsonNode> {
+
+        private final CompactTableNode table;
+        private final int row;
+
+        private Cells(CompactTableNode table, int row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        @Override
+        public int size() {
+            return table.shape().size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && table.shape().indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public JsonNode get(Object key) {
+            int column = key instanceof String ? table.shape().indexOf((String) key) : -1;
+            return column < 0 ? null : table.cell(row, column);
+        }
+
+        @Override
+        public Set<Entry<String, JsonNode>> entrySet() {
+            return new AbstractSet<Entry<String, JsonNode>>() {
+                @Override
+                public Iterator<Entry<String, JsonNode>> iterator() {
+                    return new Iterator<Entry<String, JsonNode>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size();
+                        }
+
+                        @Override
+                        public Entry<String, JsonNode> next() {
+                            if (next >= size()) {
+                                throw new NoSuchElementException();
+                            }
+                            int column = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(table.shape().name(column), table.cell(row, column));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Cells.this.size();
+                }
+            };
+        }
+    }
+}
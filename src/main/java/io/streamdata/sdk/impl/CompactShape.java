@@ -0,0 +1,111 @@
+package io.streamdata.sdk.impl;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>The ordered field names of compact objects. Shapes are interned across all the streams : objects having the same
+ * fields, such as the items of a price list, share a single instance and so a single copy of the names.</p>
+ * <p>Immutable and thread-safe.</p>
+ */
+final class CompactShape {
+
+    private static final Interner<CompactShape> SHAPES = Interners.newWeakInterner();
+
+    static final CompactShape EMPTY = of(new String[0]);
+
+    // above this size, names are looked up through a map rather than scanned
+    private static final int SCAN_LIMIT = 8;
+
+    private final String[] names;
+    private final int hash;
+    // built on the first lookup of a large shape, a race only building it twice
+    private volatile Map<String, Integer> indexes;
+
+    private CompactShape(String[] names) {
+        this.names = names;
+        this.hash = Arrays.hashCode(names);
+    }
+
+    /**
+     * @param names the field names, in order, not copied
+     * @return the shared shape
+     */
+    static CompactShape of(String[] names) {
+        return SHAPES.intern(new CompactShape(names));
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return the position of the field, -1 when absent
+     */
+    int indexOf(String name) {
+        if (names.length > SCAN_LIMIT) {
+            Integer index = indexes().get(name);
+            return index == null ? -1 : index;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Map<String, Integer> indexes() {
+        Map<String, Integer> map = indexes;
+        if (map == null) {
+            map = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                map.put(names[i], i);
+            }
+            indexes = map;
+        }
+        return map;
+    }
+
+    /**
+     * @return the shape with a new field appended, as objects keep the insertion order
+     */
+    CompactShape with(String name) {
+        String[] extended = Arrays.copyOf(names, names.length + 1);
+        extended[names.length] = name;
+        return of(extended);
+    }
+
+    /**
+     * @return the shape without the field at this position
+     */
+    CompactShape without(int index) {
+        String[] reduced = new String[names.length - 1];
+        System.arraycopy(names, 0, reduced, 0, index);
+        System.arraycopy(names, index + 1, reduced, index, names.length - index - 1);
+        return of(reduced);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompactShape && hash == ((CompactShape) o).hash && Arrays.equals(names, ((CompactShape) o).names);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
@@ -0,0 +1,445 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BaseJsonNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * <p>A JSON array of objects having the same fields, stored column by column : integers and doubles are kept in primitive
+ * arrays, other values in arrays of (interned) nodes. A row costs its values only, neither an object nor a map.</p>
+ * <p>It is a regular, read-only, <code>ArrayNode</code> whose children are a list view creating a {@link CompactRowNode}
+ * on access.</p>
+ */
+final class CompactTableNode extends ArrayNode {
+
+    // the children of ArrayNode are private
+    private final Rows storage;
+
+    /**
+     * @param shape   the fields of every row
+     * @param columns a column per field, not copied
+     * @param rows    the number of rows
+     */
+    CompactTableNode(CompactShape shape, Column[] columns, int rows) {
+        this(new Rows(shape, columns, rows));
+    }
+
+    private CompactTableNode(Rows storage) {
+        super(JsonNodeFactory.instance, storage);
+        this.storage = storage;
+        storage.table = this;
+    }
+
+    /**
+     * @param shape the fields of every row
+     * @param rows  the rows, all of this shape
+     * @return the table
+     */
+    static CompactTableNode of(CompactShape shape, CompactObjectNode[] rows) {
+        Column[] columns = new Column[shape.size()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Column.of(rows, column);
+        }
+        return new CompactTableNode(shape, columns, rows.length);
+    }
+
+    CompactShape shape() {
+        return storage.shape;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        // write the primitive columns without creating any node
+        generator.writeStartArray(storage.rows);
+        for (int row = 0; row < storage.rows; row++) {
+            generator.writeStartObject();
+            serializeRow(row, generator, provider);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    void serializeRow(int row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        Column[] columns = storage.columns;
+        for (int column = 0; column < columns.length; column++) {
+            generator.writeFieldName(storage.shape.name(column));
+            columns[column].write(row, generator, provider);
+        }
+    }
+
+    JsonNode cell(int row, int column) {
+        return storage.columns[column].get(row);
+    }
+
+    /**
+     * @return the row as a standalone object
+     */
+    CompactObjectNode row(int row) {
+        Column[] columns = storage.columns;
+        JsonNode[] values = new JsonNode[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            values[column] = columns[column].get(row);
+        }
+        return new CompactObjectNode(storage.shape, values);
+    }
+
+    /**
+     * @return the same elements as objects, for changes a table cannot hold such as adding a field to a row
+     */
+    CompactArrayNode toArray() {
+        JsonNode[] elements = new JsonNode[storage.rows];
+        for (int row = 0; row < elements.length; row++) {
+            elements[row] = row(row);
+        }
+        return new CompactArrayNode(elements);
+    }
+
+    /**
+     * @return true if the value can be a row of this table
+     */
+    boolean fits(JsonNode value) {
+        return value instanceof CompactObjectNode && ((CompactObjectNode) value).shape() == storage.shape;
+    }
+
+    CompactTableNode copy() {
+        return new CompactTableNode(storage.shape, storage.columns.clone(), storage.rows);
+    }
+
+    /**
+     * Only called on unpublished tables, the columns being copied unless they are owned already
+     */
+    void setCell(int row, int column, JsonNode value, Set<Object> owned) {
+        ownColumn(column, value, owned).set(row, value);
+    }
+
+    /**
+     * Only called on unpublished tables
+     */
+    void setRow(int row, CompactObjectNode value, Set<Object> owned) {
+        for (int column = 0; column < storage.columns.length; column++) {
+            setCell(row, column, value.valueAt(column), owned);
+        }
+    }
+
+    /**
+     * Inserts a row, index being the size to append it. Only called on unpublished tables.
+     */
+    void insertRow(int row, CompactObjectNode value, Set<Object> owned) {
+        for (int column = 0; column < storage.columns.length; column++) {
+            JsonNode cell = value.valueAt(column);
+            ownColumn(column, cell, owned).insert(row, cell);
+        }
+        storage.rows++;
+    }
+
+    /**
+     * Only called on unpublished tables
+     */
+    void removeRow(int row, Set<Object> owned) {
+        for (int column = 0; column < storage.columns.length; column++) {
+            ownColumn(column, null, owned).remove(row);
+        }
+        storage.rows--;
+    }
+
+    private Column ownColumn(int index, JsonNode value, Set<Object> owned) {
+        Column column = storage.columns[index];
+        if (value != null && !column.accepts(value)) {
+            column = column.widen();
+            owned.add(column);
+        } else if (!owned.contains(column)) {
+            column = column.copy();
+            owned.add(column);
+        }
+        storage.columns[index] = column;
+        return column;
+    }
+
+    /**
+     * Read-only list over the columns, a row being read through a view
+     */
+    private static final class Rows extends AbstractList<JsonNode> implements RandomAccess {
+
+        private final CompactShape shape;
+        private final Column[] columns;
+        private int rows;
+        private CompactTableNode table;
+
+        private Rows(CompactShape shape, Column[] columns, int rows) {
+            this.shape = shape;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            if (index < 0 || index >= rows) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rows);
+            }
+            return new CompactRowNode(table, index);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+
+    /**
+     * The values of a field. A column is immutable once published, rows are inserted and removed by replacing its array.
+     */
+    abstract static class Column {
+
+        /**
+         * @return the column best suited to the values of a field in these rows
+         */
+        static Column of(CompactObjectNode[] rows, int column) {
+            boolean integers = true;
+            boolean doubles = true;
+            for (CompactObjectNode row : rows) {
+                JsonNode value = row.valueAt(column);
+                integers &= LongColumn.holds(value);
+                doubles &= value.isDouble();
+            }
+            if (integers) {
+                long[] values = new long[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    values[i] = rows[i].valueAt(column).longValue();
+                }
+                return new LongColumn(values);
+            }
+            if (doubles) {
+                double[] values = new double[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    values[i] = rows[i].valueAt(column).doubleValue();
+                }
+                return new DoubleColumn(values);
+            }
+            JsonNode[] values = new JsonNode[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = rows[i].valueAt(column);
+            }
+            return new NodeColumn(values);
+        }
+
+        abstract int length();
+
+        abstract JsonNode get(int row);
+
+        abstract boolean accepts(JsonNode value);
+
+        abstract void set(int row, JsonNode value);
+
+        abstract void insert(int row, JsonNode value);
+
+        abstract void remove(int row);
+
+        abstract Column copy();
+
+        abstract void write(int row, JsonGenerator generator, SerializerProvider provider) throws IOException;
+
+        /**
+         * @return a column of nodes holding the same values, accepting any value
+         */
+        Column widen() {
+            JsonNode[] values = new JsonNode[length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = get(i);
+            }
+            return new NodeColumn(values);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private long[] values;
+
+        private LongColumn(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * Jackson reads integers as IntNode, as LongNode only when they do not fit in an int : the node read back from
+         * the column is then the same as the one written
+         */
+        static boolean holds(JsonNode value) {
+            return value.isInt() || (value.isLong() && !value.canConvertToInt());
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode get(int row) {
+            long value = values[row];
+            return value == (int) value ? IntNode.valueOf((int) value) : LongNode.valueOf(value);
+        }
+
+        @Override
+        boolean accepts(JsonNode value) {
+            return holds(value);
+        }
+
+        @Override
+        void set(int row, JsonNode value) {
+            values[row] = value.longValue();
+        }
+
+        @Override
+        void insert(int row, JsonNode value) {
+            long[] extended = new long[values.length + 1];
+            System.arraycopy(values, 0, extended, 0, row);
+            extended[row] = value.longValue();
+            System.arraycopy(values, row, extended, row + 1, values.length - row);
+            values = extended;
+        }
+
+        @Override
+        void remove(int row) {
+            long[] reduced = new long[values.length - 1];
+            System.arraycopy(values, 0, reduced, 0, row);
+            System.arraycopy(values, row + 1, reduced, row, values.length - row - 1);
+            values = reduced;
+        }
+
+        @Override
+        Column copy() {
+            return new LongColumn(values.clone());
+        }
+
+        @Override
+        void write(int row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(values[row]);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private double[] values;
+
+        private DoubleColumn(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode get(int row) {
+            return DoubleNode.valueOf(values[row]);
+        }
+
+        @Override
+        boolean accepts(JsonNode value) {
+            return value.isDouble();
+        }
+
+        @Override
+        void set(int row, JsonNode value) {
+            values[row] = value.doubleValue();
+        }
+
+        @Override
+        void insert(int row, JsonNode value) {
+            double[] extended = new double[values.length + 1];
+            System.arraycopy(values, 0, extended, 0, row);
+            extended[row] = value.doubleValue();
+            System.arraycopy(values, row, extended, row + 1, values.length - row);
+            values = extended;
+        }
+
+        @Override
+        void remove(int row) {
+            double[] reduced = new double[values.length - 1];
+            System.arraycopy(values, 0, reduced, 0, row);
+            System.arraycopy(values, row + 1, reduced, row, values.length - row - 1);
+            values = reduced;
+        }
+
+        @Override
+        Column copy() {
+            return new DoubleColumn(values.clone());
+        }
+
+        @Override
+        void write(int row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(values[row]);
+        }
+    }
+
+    private static final class NodeColumn extends Column {
+
+        private JsonNode[] values;
+
+        private NodeColumn(JsonNode[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean accepts(JsonNode value) {
+            return true;
+        }
+
+        @Override
+        void set(int row, JsonNode value) {
+            values[row] = value;
+        }
+
+        @Override
+        void insert(int row, JsonNode value) {
+            JsonNode[] extended = new JsonNode[values.length + 1];
+            System.arraycopy(values, 0, extended, 0, row);
+            extended[row] = value;
+            System.arraycopy(values, row, extended, row + 1, values.length - row);
+            values = extended;
+        }
+
+        @Override
+        void remove(int row) {
+            JsonNode[] reduced = new JsonNode[values.length - 1];
+            System.arraycopy(values, 0, reduced, 0, row);
+            System.arraycopy(values, row + 1, reduced, row, values.length - row - 1);
+            values = reduced;
+        }
+
+        @Override
+        Column copy() {
+            return new NodeColumn(values.clone());
+        }
+
+        @Override
+        Column widen() {
+            return copy();
+        }
+
+        @Override
+        void write(int row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            ((BaseJsonNode) values[row]).serialize(generator, provider);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.reactivex.FlowableOperator;
+import io.reactivex.FlowableSubscriber;
+import io.streamdata.sdk.RxJavaEventSourceClient.Event;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Operator that merges the events its subscriber has not requested yet, instead of dropping them :</p>
+ * <ul>
+ * <li>a snapshot replaces every pending snapshot or patch</li>
+ * <li>a patch following a pending snapshot turns it into the newer snapshot</li>
+ * <li>a patch following a pending patch is merged with it : the resulting patch holds the operations of both and the newer snapshot</li>
+ * <li>errors are kept as is, in order</li>
+ * </ul>
+ * <p>The upstream is consumed without bound, the snapshots being immutable only the latest one is retained.</p>
+ */
+public final class ConflatingOperator implements FlowableOperator<Event, Event> {
+
+    @Override
+    public Subscriber<? super Event> apply(Subscriber<? super Event> downstream) {
+        return new ConflatingSubscriber(downstream);
+    }
+
+    private static final class ConflatingSubscriber implements FlowableSubscriber<Event>, Subscription {
+
+        private final Subscriber<? super Event> downstream;
+
+        // pending events, guarded by itself
+        private final Deque<Event> pending = new ArrayDeque<>();
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Subscription upstream;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private Throwable error;
+
+        private ConflatingSubscriber(Subscriber<? super Event> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.upstream = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Event event) {
+            synchronized (pending) {
+                merge(event);
+            }
+            drain();
+        }
+
+        private void merge(Event event) {
+            Event last = pending.peekLast();
+            if (event.isError() || last == null || last.isError()) {
+                pending.addLast(event);
+            } else if (event.isSnapshot()) {
+                pending.pollLast();
+                pending.addLast(event);
+            } else if (last.isSnapshot() || last.getPatch() == null || event.getPatch() == null) {
+                // the subscriber has not seen the base of the patch yet
+                pending.pollLast();
+                pending.addLast(Event.forSnapshot(event.getVersion(), event.getSnapshot()));
+            } else {
+                pending.pollLast();
+                pending.addLast(Event.forPatch(event.getVersion(), event.getSnapshot(), concat(last.getPatch(), event.getPatch())));
+            }
+        }
+
+        private static JsonNode concat(JsonNode first, JsonNode second) {
+            ArrayNode merged = JsonNodeFactory.instance.arrayNode(first.size() + second.size());
+            merged.addAll((ArrayNode) first);
+            merged.addAll((ArrayNode) second);
+            return merged;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            this.done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                long wanted = requested.get();
+                long emitted = 0;
+                while (emitted != wanted) {
+                    if (cancelled) {
+                        return;
+                    }
+                    Event next;
+                    synchronized (pending) {
+                        next = pending.pollFirst();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    downstream.onNext(next);
+                    emitted++;
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (done) {
+                    boolean empty;
+                    synchronized (pending) {
+                        empty = pending.isEmpty();
+                    }
+                    // an error is signaled right away, a completion once every pending event is delivered
+                    if (error != null) {
+                        downstream.onError(error);
+                        return;
+                    }
+                    if (empty) {
+                        downstream.onComplete();
+                        return;
+                    }
+                }
+                if (emitted != 0 && wanted != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
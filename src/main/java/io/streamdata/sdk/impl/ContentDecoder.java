@@ -0,0 +1,277 @@
+package io.streamdata.sdk.impl;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * <p>Incremental decoder of a <code>gzip</code> or <code>deflate</code> content encoding, fed with the bytes of the body
+ * as they arrive. The headers and trailers are parsed here and the compressed data inflated by a raw {@link Inflater}
+ * of an {@link InflaterPool}, so that a connection allocates nothing per event : the input is read from the caller's
+ * buffer and the output written to the caller's one.</p>
+ * <p>A <code>deflate</code> body is expected in the zlib format, a raw deflate one being accepted too as some servers
+ * send it. Concatenated gzip members are decoded one after the other.</p>
+ * <p>Not thread-safe : used by the thread reading the connection.</p>
+ */
+final class ContentDecoder {
+
+    /**
+     * The value of the <code>Accept-Encoding</code> header sent by the transports
+     */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private enum Format {
+        GZIP, ZLIB, RAW
+    }
+
+    private enum State {
+        HEADER, BODY, TRAILER, DONE
+    }
+
+    // gzip header flags
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InflaterPool pool;
+    private Inflater inflater;
+    private Format format;
+    private State state = State.HEADER;
+
+    // input not handed over to the inflater yet
+    private byte[] input;
+    private int position;
+    private int end;
+
+    // header being parsed, with the length of the extra field of gzip
+    private final byte[] header = new byte[12];
+    private int headerLength;
+    // optional gzip fields not read yet
+    private int flags;
+    // bytes of the field being skipped, -1 when none
+    private int skipRemaining = -1;
+
+    private ContentDecoder(Format format, InflaterPool pool) {
+        this.format = format;
+        this.pool = pool;
+        this.inflater = pool.acquire();
+    }
+
+    /**
+     * @param contentEncoding the value of the <code>Content-Encoding</code> header, may be null
+     * @param pool            the pool of the inflaters
+     * @return the decoder, null if the body is not encoded
+     * @throws IOException when the encoding is not supported
+     */
+    static ContentDecoder of(String contentEncoding, InflaterPool pool) throws IOException {
+        String encoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase();
+        switch (encoding) {
+            case "":
+            case "identity":
+                return null;
+            case "gzip":
+            case "x-gzip":
+                return new ContentDecoder(Format.GZIP, pool);
+            case "deflate":
+                // zlib or raw, told by the first bytes
+                return new ContentDecoder(Format.ZLIB, pool);
+            default:
+                throw new IOException("Unsupported content encoding : " + contentEncoding);
+        }
+    }
+
+    /**
+     * @return true when every byte given has been consumed, {@link #setInput(byte[], int, int)} must be called before
+     * decoding again
+     */
+    boolean needsInput() {
+        return position == end && (state != State.BODY || inflater.needsInput());
+    }
+
+    /**
+     * @param bytes  the next bytes of the body, read until they are all consumed so they must not be modified meanwhile
+     * @param offset where they start
+     * @param length how many there are
+     */
+    void setInput(byte[] bytes, int offset, int length) {
+        this.input = bytes;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * @param output where to write the decoded bytes
+     * @param offset where to start writing
+     * @param length the maximum number of bytes written
+     * @return the number of bytes written, 0 when more input is needed
+     * @throws IOException when the body is not valid
+     */
+    int decode(byte[] output, int offset, int length) throws IOException {
+        for (; ; ) {
+            switch (state) {
+                case HEADER:
+                    if (!readHeader()) {
+                        return 0;
+                    }
+                    state = State.BODY;
+                    break;
+
+                case BODY: {
+                    if (inflater.needsInput()) {
+                        if (position == end) {
+                            return 0;
+                        }
+                        inflater.setInput(input, position, end - position);
+                        position = end;
+                    }
+                    int inflated;
+                    try {
+                        inflated = inflater.inflate(output, offset, length);
+                    } catch (DataFormatException e) {
+                        throw new ZipException("Invalid " + format + " body : " + e.getMessage());
+                    }
+                    if (inflater.finished()) {
+                        // the bytes after the compressed data are the trailer
+                        position = end - inflater.getRemaining();
+                        inflater.reset();
+                        state = State.TRAILER;
+                    } else if (inflated == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("Preset dictionaries are not supported");
+                    }
+                    if (inflated > 0 || state == State.BODY && (!inflater.needsInput() || position == end)) {
+                        return inflated;
+                    }
+                    break;
+                }
+
+                case TRAILER:
+                    if (!skip(format == Format.GZIP ? 8 : format == Format.ZLIB ? 4 : 0)) {
+                        return 0;
+                    }
+                    // another gzip member may follow, nothing is expected after a zlib stream
+                    headerLength = 0;
+                    state = format == Format.GZIP ? State.HEADER : State.DONE;
+                    break;
+
+                default:
+                    position = end;
+                    return 0;
+            }
+        }
+    }
+
+    /**
+     * @return true once the whole header has been read
+     */
+    private boolean readHeader() throws IOException {
+        return format == Format.GZIP ? readGzipHeader() : readZlibHeader();
+    }
+
+    private boolean readZlibHeader() throws IOException {
+        while (headerLength < 2) {
+            if (position == end) {
+                return false;
+            }
+            header[headerLength++] = input[position++];
+        }
+        int cmf = header[0] & 0xFF;
+        int flg = header[1] & 0xFF;
+        if ((cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0) {
+            if ((flg & 0x20) != 0) {
+                throw new ZipException("Preset dictionaries are not supported");
+            }
+            return true;
+        }
+        // no zlib header : the two bytes are raw deflate data
+        format = Format.RAW;
+        inflater.setInput(header, 0, 2);
+        return true;
+    }
+
+    private boolean readGzipHeader() throws IOException {
+        while (headerLength < 10) {
+            if (position == end) {
+                return false;
+            }
+            header[headerLength++] = input[position++];
+            if (headerLength == 3 && ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8)) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (headerLength == 10) {
+                flags = header[3] & 0xFF;
+            }
+        }
+        if ((flags & FEXTRA) != 0) {
+            // length on two bytes, little-endian
+            while (headerLength < 12) {
+                if (position == end) {
+                    return false;
+                }
+                header[headerLength++] = input[position++];
+            }
+            if (!skip((header[10] & 0xFF) | (header[11] & 0xFF) << 8)) {
+                return false;
+            }
+            flags &= ~FEXTRA;
+        }
+        if ((flags & FNAME) != 0) {
+            if (!skipZeroTerminated()) {
+                return false;
+            }
+            flags &= ~FNAME;
+        }
+        if ((flags & FCOMMENT) != 0) {
+            if (!skipZeroTerminated()) {
+                return false;
+            }
+            flags &= ~FCOMMENT;
+        }
+        if ((flags & FHCRC) != 0) {
+            if (!skip(2)) {
+                return false;
+            }
+            flags &= ~FHCRC;
+        }
+        return true;
+    }
+
+    /**
+     * Skips a field of a given length, which may span several inputs
+     *
+     * @return true once the whole field has been skipped
+     */
+    private boolean skip(int length) {
+        if (skipRemaining < 0) {
+            skipRemaining = length;
+        }
+        int skipped = Math.min(skipRemaining, end - position);
+        position += skipped;
+        skipRemaining -= skipped;
+        if (skipRemaining > 0) {
+            return false;
+        }
+        skipRemaining = -1;
+        return true;
+    }
+
+    private boolean skipZeroTerminated() {
+        while (position < end) {
+            if (input[position++] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives the inflater back to the pool
+     */
+    void close() {
+        if (inflater != null) {
+            pool.release(inflater);
+            inflater = null;
+        }
+    }
+}
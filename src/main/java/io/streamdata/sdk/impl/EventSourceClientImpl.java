@@ -1,28 +1,45 @@
 package io.streamdata.sdk.impl;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.flipkart.zjsonpatch.JsonPatch;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.streamdata.sdk.Change;
 import io.streamdata.sdk.EventSourceClient;
-import org.glassfish.jersey.media.sse.EventSource;
-import org.glassfish.jersey.media.sse.InboundEvent;
-import org.glassfish.jersey.media.sse.SseFeature;
+import io.streamdata.sdk.Projection;
+import io.streamdata.sdk.ReconnectPolicy;
+import io.streamdata.sdk.Snapshot;
+import io.streamdata.sdk.metrics.StreamMetrics;
+import io.streamdata.sdk.metrics.StreamMetrics.Stage;
+import io.streamdata.sdk.transport.SseConnection;
+import io.streamdata.sdk.transport.SseEventHandler;
+import io.streamdata.sdk.transport.SseRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.ClientRequestFilter;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.Feature;
-import javax.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -37,40 +54,156 @@ public class EventSourceClientImpl implements EventSourceClient {
     // The polling URL
     private Runnable onOpenCallback;
     private Runnable onCloseCallback;
-    private Consumer<JsonNode> onDataCallback;
-    private Consumer<JsonNode> onPatchCallback;
+    private Consumer<Snapshot> onDataCallback;
+    private BiConsumer<Snapshot, JsonNode> onPatchCallback;
     private Consumer<JsonNode> onErrorCallback = err -> LOGGER.error("A streamdata error has been sent from SSE : {}", err);
     private Consumer<Throwable> onExceptionCallback = t -> LOGGER.error("An error occured while processing event", t);
+    private Consumer<Throwable> onFailureCallback;
+    private LongConsumer onStallCallback;
 
-    // jackson objectMapper to parse Json content
-    private final ObjectMapper jsonObjectMapper = new ObjectMapper();
+    // jackson objectMapper to parse Json content, shared by all the clients as it is thread-safe once configured
+    private static final ObjectMapper JSON_OBJECT_MAPPER = new ObjectMapper();
+
+    // journal segments of 64MB, events being a few KB
+    private static final int JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    // pre-built reader reused for every event
+    private static final ObjectReader JSON_TREE_READER = JSON_OBJECT_MAPPER.readerFor(JsonNode.class);
+
+    // path-scoped change listeners
+    private final ChangeDispatcher changeDispatcher = new ChangeDispatcher();
 
     // local storage of the data
-    private AtomicReference<JsonNode> currentSnapshot = new AtomicReference<>();
+    private AtomicReference<Snapshot> currentSnapshot = new AtomicReference<>(new Snapshot(0, null));
+
+    private volatile SseConnection connection;
+
+    // the handler of the current connection, events and failures of stale connections are ignored
+    private volatile StreamHandler currentHandler;
+
+    // held while an event is processed and while the connection is replaced, taken before lazyLock : the events of a
+    // stale connection are either applied before the Last-Event-ID is read, or dropped
+    private final Object processingLock = new Object();
+
+    // the snapshot along with the id of the last event applied to it, sent as Last-Event-ID on reconnection
+    private volatile SnapshotCheckpoint applied = new SnapshotCheckpoint(new Snapshot(0, null), null);
+
+    private ReconnectPolicy reconnectPolicy = ReconnectPolicy.DEFAULT;
+
+    // consecutive failed attempts, reset once an event is received
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    // System.nanoTime() of the last event received, or of the last connection when none was received since
+    private volatile long lastEventNanos;
+
+    // System.nanoTime() of the last bytes or heartbeat comment read, or of the last connection when none was read since
+    private volatile long lastReadNanos;
+
+    // liveness watchdog, the stream is not watched when stallAfterMillis is 0
+    private long stallAfterMillis;
+    private boolean reconnectOnStall;
+    private LivenessWatchdog.Registration watchdogRegistration;
+
+    // snapshot given to resumeFrom(), notified on open()
+    private boolean resumed;
+
+    // periodic checkpoint of the applied snapshot
+    private Path checkpointFile;
+    private long checkpointIntervalMillis;
+    private ScheduledFuture<?> checkpointTask;
+    private long checkpointedVersion = -1;
+    private final Object checkpointLock = new Object();
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
 
-    private EventSource eventSource;
+    // journal of the raw events, when recording
+    private Path journalDirectory;
+    private volatile JournalWriter journal;
 
+    // owner of the shared transport
+    private final StreamdataClientImpl context;
 
     private final StringBuffer url;
     private boolean incrementalCache = true;
+    private boolean diffSnapshots = false;
+    private boolean compactSnapshots = false;
+
+    // key field of the arrays stored as keyed arrays, by JSON Pointer
+    private final Map<String, String> keyFields = new LinkedHashMap<>();
+
+    // null when the whole data is kept
+    private ProjectionFilter projection;
+
+    // set on open() when snapshots are diffed locally
+    private SnapshotDiffer snapshotDiffer;
+
+    // asynchronous dispatch : parse/apply and callbacks run on the executor, in order
+    private Executor dispatchExecutor;
+    private int dispatchQueueCapacity;
+    private OrderedStage processingStage;
+    private OrderedStage callbackStage;
+
+    // measures of the stream, timings are only taken when they are recorded
+    private StreamMetrics metrics = StreamMetrics.NOOP;
+
+    // null when the age of the events is not recorded
+    private EventTimestamps eventTimestamps;
+
+    // with a non-blocking transport, reading is paused while the processing stage is full
+    private boolean nonBlocking;
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+
+    // lazy patching : operations received but not applied yet, and applied but not notified yet, guarded by lazyLock
+    private boolean lazy;
+    private int lazyMaxOperations;
+    private long lazyMaxDelayMillis;
+    private final Object lazyLock = new Object();
+    private final PatchLog pendingOperations = new PatchLog();
+    private final PatchLog unnotifiedOperations = new PatchLog();
+    private int pendingPatches;
+    private String pendingEventId;
+    private long pendingSinceNanos;
+    private long pendingReceived;
+    private ScheduledFuture<?> lazyFlushTask;
+
+    // throttled delivery : operations applied but not delivered yet, guarded by throttleLock, taken after lazyLock
+    private long throttleMillis;
+    private final Object throttleLock = new Object();
+    private final PatchLog throttledOperations = new PatchLog();
+    private Snapshot throttledSnapshot;
+    private long throttledReceived;
+    private long nextDeliveryNanos;
+    private ScheduledFuture<?> throttleTask;
 
     /**
-     * Build the url to be called eventually
+     * Build the url to be called eventually, using the shared transport of {@link StreamdataClientImpl#shared()}
      *
      * @param apiUrl the api URL
      * @param appKey the key
      * @throws URISyntaxException when the polling URL is not OK
      */
     public EventSourceClientImpl(String apiUrl, String appKey) throws URISyntaxException {
+        this(apiUrl, appKey, StreamdataClientImpl.shared());
+    }
+
+    /**
+     * Build the url to be called eventually
+     *
+     * @param apiUrl  the api URL
+     * @param appKey  the key
+     * @param context the StreamdataClient owning the transport to use
+     * @throws URISyntaxException when the polling URL is not OK
+     */
+    public EventSourceClientImpl(String apiUrl, String appKey, StreamdataClientImpl context) throws URISyntaxException {
         checkNotNull(apiUrl, "apiUrl cannot be null");
         checkNotNull(appKey, "appKey cannot be null");
+        this.context = checkNotNull(context, "context cannot be null");
 
         // check the url
         URI uri = new URI(apiUrl);
 
         String queryParamSeparator = (uri.getQuery() == null || uri.getQuery().isEmpty()) ? "?" : "&";
 
-        this.url = new StringBuffer(SD_PROXY_URL)
+        this.url = new StringBuffer(context.getConfig().getProxyUrl())
                 .append(apiUrl)
                 .append(queryParamSeparator)
                 .append("X-Sd-Token=")
@@ -98,6 +231,76 @@ public class EventSourceClientImpl implements EventSourceClient {
         return this;
     }
 
+    @Override
+    public EventSourceClient diffSnapshots(boolean diffSnapshots) {
+        this.diffSnapshots = diffSnapshots;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient reconnect(ReconnectPolicy policy) {
+        this.reconnectPolicy = checkNotNull(policy, "policy cannot be null");
+        return this;
+    }
+
+    @Override
+    public EventSourceClient stallAfter(long stallAfterMillis, boolean reconnect) {
+        checkArgument(stallAfterMillis >= 0, "stallAfterMillis cannot be negative");
+        checkArgument(this.connection == null, "You cannot watch an already opened event source");
+        this.stallAfterMillis = stallAfterMillis;
+        this.reconnectOnStall = reconnect;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient resumeFrom(Snapshot snapshot, String lastEventId) {
+        checkNotNull(snapshot, "snapshot cannot be null");
+        checkArgument(this.connection == null, "You cannot resume an already opened event source");
+        this.currentSnapshot.set(snapshot);
+        this.applied = new SnapshotCheckpoint(snapshot, lastEventId);
+        this.resumed = snapshot.getJsonNode() != null;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient checkpointTo(Path file, long intervalMillis) {
+        checkNotNull(file, "file cannot be null");
+        checkArgument(intervalMillis > 0, "intervalMillis must be strictly positive");
+        checkArgument(this.connection == null, "You cannot set the checkpoint of an already opened event source");
+        this.checkpointFile = file;
+        this.checkpointIntervalMillis = intervalMillis;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient recordTo(Path directory) {
+        checkNotNull(directory, "directory cannot be null");
+        checkArgument(this.connection == null, "You cannot record an already opened event source");
+        this.journalDirectory = directory;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient metrics(StreamMetrics metrics) {
+        this.metrics = checkNotNull(metrics, "metrics cannot be null");
+        return this;
+    }
+
+    @Override
+    public EventSourceClient timestampAt(String pattern) {
+        checkArgument(pattern == null || pattern.isEmpty() || pattern.startsWith("/"), "pattern must be a JSON Pointer : %s", pattern);
+        checkArgument(this.connection == null, "You cannot change the timestamps of an already opened event source");
+        this.eventTimestamps = pattern == null ? null : new EventTimestamps(pattern);
+        return this;
+    }
+
+    /**
+     * @return the measures of the stream, {@link StreamMetrics#NOOP} by default
+     */
+    StreamMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public EventSourceClient onOpen(Runnable callback) {
         this.onOpenCallback = callback;
@@ -112,16 +315,103 @@ public class EventSourceClientImpl implements EventSourceClient {
 
     @Override
     public EventSourceClient onSnapshot(Consumer<JsonNode> snaphot) {
-        this.onDataCallback = snaphot;
+        this.onDataCallback = snaphot == null ? null : snapshot -> snaphot.accept(snapshot.getJsonNode());
+        return this;
+    }
+
+    /**
+     * Same as {@link #onSnapshot(Consumer)} but the callback gets the versioned snapshot
+     *
+     * @param callback the callback
+     * @return this client instance for nice fluent api call
+     */
+    public EventSourceClientImpl onVersionedSnapshot(Consumer<Snapshot> callback) {
+        this.onDataCallback = callback;
         return this;
     }
 
     @Override
     public EventSourceClient onPatch(Consumer<JsonNode> callback) {
+        this.onPatchCallback = callback == null ? null : (snapshot, patch) -> callback.accept(patch);
+        return this;
+    }
+
+    /**
+     * Same as {@link #onPatch(Consumer)} but the callback also gets the snapshot the patch resulted in, which may differ
+     * from {@link #getSnapshot()} when callbacks are dispatched asynchronously
+     *
+     * @param callback the callback
+     * @return this client instance for nice fluent api call
+     */
+    public EventSourceClientImpl onVersionedPatch(BiConsumer<Snapshot, JsonNode> callback) {
         this.onPatchCallback = callback;
         return this;
     }
 
+    @Override
+    public EventSourceClient dispatchOn(Executor executor) {
+        return dispatchOn(executor, 1024);
+    }
+
+    @Override
+    public EventSourceClient dispatchOn(Executor executor, int queueCapacity) {
+        checkArgument(queueCapacity > 0, "queueCapacity must be strictly positive");
+        this.dispatchExecutor = executor;
+        this.dispatchQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient lazyPatches(int maxOperations, long maxDelayMillis) {
+        checkArgument(maxOperations > 0, "maxOperations must be strictly positive");
+        checkArgument(maxDelayMillis > 0, "maxDelayMillis must be strictly positive");
+        checkArgument(this.connection == null, "You cannot make an already opened event source lazy");
+        this.lazy = true;
+        this.lazyMaxOperations = maxOperations;
+        this.lazyMaxDelayMillis = maxDelayMillis;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient throttle(long intervalMillis) {
+        checkArgument(intervalMillis > 0, "intervalMillis must be strictly positive");
+        checkArgument(this.connection == null, "You cannot throttle an already opened event source");
+        this.throttleMillis = intervalMillis;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient compactSnapshots(boolean compactSnapshots) {
+        checkArgument(this.connection == null, "You cannot change the storage of an already opened event source");
+        this.compactSnapshots = compactSnapshots;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient projection(Projection projection) {
+        checkArgument(this.connection == null, "You cannot change the projection of an already opened event source");
+        this.projection = projection == null ? null : new ProjectionFilter(projection, JSON_TREE_READER);
+        return this;
+    }
+
+    @Override
+    public EventSourceClient keyBy(String arrayPointer, String keyField) {
+        checkNotNull(arrayPointer, "arrayPointer cannot be null");
+        checkNotNull(keyField, "keyField cannot be null");
+        checkArgument(arrayPointer.isEmpty() || arrayPointer.startsWith("/"), "arrayPointer must be a JSON Pointer");
+        checkArgument(this.connection == null, "You cannot key the arrays of an already opened event source");
+        this.keyFields.put(arrayPointer, keyField);
+        return this;
+    }
+
+    @Override
+    public EventSourceClient onChange(String pathPattern, Consumer<Change> listener) {
+        checkNotNull(pathPattern, "pathPattern cannot be null");
+        checkNotNull(listener, "listener cannot be null");
+        this.changeDispatcher.register(pathPattern, listener);
+        return this;
+    }
+
     @Override
     public EventSourceClient onError(Consumer<JsonNode> callback) {
         this.onErrorCallback = callback;
@@ -134,129 +424,1043 @@ public class EventSourceClientImpl implements EventSourceClient {
         return this;
     }
 
+    /**
+     * Sets a callback called when the client gives up, after the cause has been notified to {@link #onException(Consumer)}
+     * and before the client is closed. Unlike the other exceptions, such as a patch failure resynchronized with a fresh
+     * snapshot, nothing is received afterwards.
+     *
+     * @param callback the callback
+     * @return this client instance for nice fluent api call
+     */
+    EventSourceClientImpl onFailure(Consumer<Throwable> callback) {
+        this.onFailureCallback = callback;
+        return this;
+    }
+
+    @Override
+    public EventSourceClient onStall(LongConsumer callback) {
+        this.onStallCallback = callback;
+        return this;
+    }
+
     @Override
     public void close() {
-        if (this.eventSource != null) {
-            this.eventSource.close();
+        SseConnection closing;
+        synchronized (this) {
+            closing = this.connection;
+            this.connection = null;
+            this.currentHandler = null;
+        }
+        if (closing != null) {
+            closing.close();
+            if (this.watchdogRegistration != null) {
+                this.watchdogRegistration.cancel();
+                this.watchdogRegistration = null;
+            }
+            if (this.processingStage != null) {
+                this.processingStage.clear();
+            }
+            if (this.checkpointTask != null) {
+                this.checkpointTask.cancel(false);
+                checkpoint();
+            }
+            if (this.lazy) {
+                synchronized (lazyLock) {
+                    if (this.lazyFlushTask != null) {
+                        // the pending patches are still applied when the snapshot is read
+                        this.lazyFlushTask.cancel(false);
+                        this.lazyFlushTask = null;
+                    }
+                }
+            }
+            if (this.throttleMillis > 0) {
+                discardThrottled();
+            }
+            closeJournal();
+            this.context.closed(this);
             if (this.onCloseCallback != null) {
                 this.onCloseCallback.run();
             }
-            this.eventSource = null;
         }
     }
 
     @Override
     public JsonNode getCurrentSnapshot() {
+        return getSnapshot().getJsonNode();
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        if (this.lazy) {
+            applyPending();
+        }
         return this.currentSnapshot.get();
     }
 
+    @Override
+    public JsonNode getByKey(String arrayPointer, String key) {
+        checkNotNull(key, "key cannot be null");
+        String keyField = keyFields.get(arrayPointer);
+        checkArgument(keyField != null, "No key declared for %s, call keyBy() first", arrayPointer);
+        JsonNode root = getCurrentSnapshot();
+        if (root == null) {
+            return null;
+        }
+        JsonNode array = root.at(arrayPointer);
+        if (array instanceof KeyedArrayNode) {
+            return ((KeyedArrayNode) array).getByKey(key);
+        }
+        // not keyed yet, a snapshot given to resumeFrom() for instance
+        for (JsonNode element : array) {
+            JsonNode value = element.get(keyField);
+            if (value != null && !value.isContainerNode() && value.asText().equals(key)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getLastEventId() {
+        return this.applied.getLastEventId();
+    }
+
+    /**
+     * @return true between {@link #open()} and {@link #close()}, reconnections included
+     */
+    boolean isOpen() {
+        return this.connection != null;
+    }
+
+    /**
+     * @return the consecutive failed attempts to connect, 0 once an event has been received
+     */
+    int getFailedAttempts() {
+        return this.attempts.get();
+    }
+
+    /**
+     * @return the System.nanoTime() of the last event received, or of the last connection when none was received since
+     */
+    long getLastEventNanos() {
+        return this.lastEventNanos;
+    }
+
+    /**
+     * @return the System.nanoTime() of the last event, bytes or heartbeat comment received, or of the last connection
+     * when nothing was received since
+     */
+    private long lastActivityNanos() {
+        long lastEvent = this.lastEventNanos;
+        long lastRead = this.lastReadNanos;
+        return lastRead - lastEvent > 0 ? lastRead : lastEvent;
+    }
+
 
     @Override
     public EventSourceClient open() {
 
         checkNotNull(this.onDataCallback, "You must call onSnapshot() with a non-null callback before calling open()");
-        if (incrementalCache) {
-            checkNotNull(this.onPatchCallback, "You must call onPatch() with a non-null callback before calling open()");
+        if (incrementalCache || diffSnapshots) {
+            // the patches would be applied without anybody being told
+            checkArgument(this.onPatchCallback != null || !this.changeDispatcher.isEmpty(),
+                    "You must call onPatch() with a non-null callback, or onChange(), before calling open()");
+        }
+        checkArgument(this.connection == null, "You cannot call open() on an already opened event source");
+
+        this.snapshotDiffer = (diffSnapshots && !incrementalCache) ? new SnapshotDiffer() : null;
+
+        // the thread of a non-blocking transport serves many streams, it only reads and never runs the processing
+        this.nonBlocking = context.transport().isNonBlocking();
+        // lazy and throttled patches are notified from the scheduler : the callbacks are queued to stay in order, one at a time
+        boolean delayedCallbacks = lazy || throttleMillis > 0;
+        Executor executor = dispatchExecutor == null && (nonBlocking || delayedCallbacks) ? context.defaultDispatchExecutor() : dispatchExecutor;
+        int capacity = dispatchExecutor == null ? 1024 : dispatchQueueCapacity;
+        if (executor != null) {
+            // the transport thread only reads, blocking (or pausing) when the stream cannot keep up
+            this.processingStage = new OrderedStage("processing", executor, capacity, !nonBlocking);
+            this.callbackStage = processingStage.then(new OrderedStage("callbacks", executor, capacity, false));
+            if (nonBlocking) {
+                this.processingStage.onRoom(this::resumeReading);
+            }
+        } else {
+            this.processingStage = null;
+            this.callbackStage = null;
+        }
+
+        if (this.checkpointFile != null && !this.resumed) {
+            restoreCheckpoint();
+        }
+
+        if (this.resumed) {
+            // the warm snapshot is the starting point of the patches to come
+            Snapshot snapshot = currentSnapshot.get();
+            notify(() -> {
+                onDataCallback.accept(snapshot);
+                changeDispatcher.dispatchSnapshot(snapshot.getJsonNode());
+            });
         }
-        checkArgument(this.eventSource == null, "You cannot call open() on an already opened event source");
 
         try {
+            if (this.journalDirectory != null) {
+                this.journal = new JournalWriter(journalDirectory, JOURNAL_SEGMENT_SIZE);
+            }
+            this.paused.set(false);
+            this.attempts.set(0);
+            if (this.lazy) {
+                synchronized (lazyLock) {
+                    discardPending();
+                    unnotifiedOperations.clear();
+                }
+            }
+            this.connection = connect(this.resumed);
+            this.context.opened(this);
+            if (this.stallAfterMillis > 0) {
+                this.watchdogRegistration = context.watchdog().watch(this::lastActivityNanos, this::onStall, stallAfterMillis);
+            }
+            if (this.checkpointFile != null) {
+                this.checkpointTask = context.scheduler().scheduleWithFixedDelay(this::onCheckpointDelay,
+                        checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+            }
 
-            Client webClient = ClientBuilder.newBuilder()
-                    .register(SseFeature.class)
-                    .register((Feature) context -> {
-                        context.register((ClientRequestFilter) requestContext -> {
-                            if (!this.incrementalCache) {
-                                requestContext.getHeaders().get("Accept").add(MediaType.APPLICATION_JSON);
-                            }
-                        });
-                        return true;
-                    })
-                    .build();
+            // it is open... we are excepting thing to happen from now
+            if (this.onOpenCallback != null)
+                this.onOpenCallback.run();
+        } catch (IOException | RuntimeException e) {
+            // connection failures are asynchronous, this is a misuse such as a closed StreamdataClient
+            giveUp(e);
+            closeJournal();
+        }
 
-            WebTarget target = webClient.target(EventSourceClientImpl.this.url.toString());
+        return this;
 
 
-            this.eventSource = new EventSource(target) {
+    }
 
-                @Override
-                public void onEvent(InboundEvent inboundEvent) {
+    private void restoreCheckpoint() {
+        try {
+            SnapshotCheckpoint checkpoint = SnapshotCheckpoint.read(checkpointFile);
+            if (checkpoint != null) {
+                LOGGER.info("Starting from checkpoint {} at version {}", checkpointFile, checkpoint.getSnapshot().getVersion());
+                resumeFrom(checkpoint.getSnapshot(), checkpoint.getLastEventId());
+                this.checkpointedVersion = checkpoint.getSnapshot().getVersion();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Checkpoint cannot be restored, waiting for a fresh snapshot", e);
+        }
+    }
 
-                    // get data from the source
-                    String eventName = inboundEvent.getName();
-                    String eventData = new String(inboundEvent.getRawData());
+    /**
+     * Called by the scheduler : the snapshot is encoded and written on the default dispatch executor, not to hold the
+     * timers of the other clients for as long as a large snapshot takes
+     */
+    private void onCheckpointDelay() {
+        if (!checkpointing.compareAndSet(false, true)) {
+            // the previous checkpoint is still being written
+            return;
+        }
+        try {
+            context.defaultDispatchExecutor().execute(() -> {
+                try {
+                    checkpoint();
+                } finally {
+                    checkpointing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the StreamdataClient is being closed
+            checkpointing.set(false);
+            LOGGER.debug("Checkpoint cancelled", e);
+        }
+    }
 
-                    switch (eventName) {
-                        case "data":
-                            LOGGER.debug("Receiving data {} ", eventData);
-                            try {
-                                // read the data
-                                final JsonNode data = jsonObjectMapper.readTree(eventData);
+    /**
+     * Writes the applied snapshot if it changed since the last checkpoint. Snapshots are immutable, so this can run
+     * concurrently with the processing of the events.
+     */
+    private void checkpoint() {
+        synchronized (checkpointLock) {
+            SnapshotCheckpoint position = this.applied;
+            long version = position.getSnapshot().getVersion();
+            if (position.getSnapshot().getJsonNode() == null || version == checkpointedVersion) {
+                return;
+            }
+            try {
+                position.write(checkpointFile);
+                checkpointedVersion = version;
+            } catch (IOException e) {
+                LOGGER.warn("Checkpoint {} cannot be written", checkpointFile, e);
+            }
+        }
+    }
 
-                                // set it in a thread-safe fashion
-                                currentSnapshot.set(data);
+    /**
+     * Opens a new connection, the caller being in charge of closing the current one
+     *
+     * @param resume true to resume after the last event applied, false to get a fresh snapshot
+     */
+    private SseConnection connect(boolean resume) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", this.incrementalCache ? "text/event-stream" : "text/event-stream, application/json");
+        SnapshotCheckpoint position = this.applied;
+        if (resume && position.getLastEventId() != null && position.getSnapshot().getJsonNode() != null) {
+            headers.put("Last-Event-ID", position.getLastEventId());
+        }
+        SseRequest request = new SseRequest(URI.create(this.url.toString()), headers);
 
-                                // notify observer
-                                onDataCallback.accept(data);
-                            } catch (IOException e) {
-                                // notify consumer
-                                onExceptionCallback.accept(e);
-                            }
-                            break;
+        StreamHandler handler = new StreamHandler();
+        this.currentHandler = handler;
+        this.lastEventNanos = System.nanoTime();
+        this.lastReadNanos = this.lastEventNanos;
+        return context.transport().connect(request, handler);
+    }
 
-                        case "patch":
-                            LOGGER.debug("Receiving patch {} ", eventData);
-                            try {
-                                // read the patch
-                                JsonNode lastPatch = jsonObjectMapper.readTree(eventData);
+    private final class StreamHandler implements SseEventHandler {
 
-                                // apply the patch to the last know data value
-                                JsonNode data = JsonPatch.apply(lastPatch, currentSnapshot.get());
+        // set once its failure has been handled, a stalled connection may fail afterwards
+        private volatile boolean failed;
 
-                                // set it in a thread safe and atomic fashion
-                                currentSnapshot.set(data);
+        @Override
+        public void onEvent(String name, String id, byte[] data) {
+            if (this != currentHandler) {
+                return;
+            }
+            if (attempts.get() != 0) {
+                attempts.set(0);
+            }
+            long received = now();
+            lastEventNanos = received != 0 ? received : System.nanoTime();
+            metrics.onEventReceived(name, data.length);
+            record(name, id, data);
+            onReceived(this, name, id, data, received);
+        }
 
-                                // notify observer
-                                onPatchCallback.accept(lastPatch);
+        @Override
+        public void onBytesRead(int compressedBytes, int rawBytes) {
+            lastReadNanos = System.nanoTime();
+            metrics.onBytesRead(compressedBytes, rawBytes);
+        }
 
-                            } catch (IOException e) {
-                                onExceptionCallback.accept(e);
-                            }
-                            break;
+        @Override
+        public void onComment(String comment) {
+            if (this == currentHandler) {
+                // a heartbeat
+                lastReadNanos = System.nanoTime();
+            }
+        }
 
-                        case "error":
-                            try {
-                                LOGGER.debug("Receiving error {} ", eventData);
+        @Override
+        public void onFailure(Throwable throwable) {
+            onConnectionFailure(this, throwable);
+        }
 
-                                // read the error
-                                JsonNode error = jsonObjectMapper.readTree(eventData);
+        @Override
+        public void onComplete() {
+            if (this == currentHandler) {
+                // closed once the events already read have been processed and notified
+                submit(() -> EventSourceClientImpl.this.notify(EventSourceClientImpl.this::close));
+            }
+        }
+    }
 
-                                onErrorCallback.accept(error);
-                            } catch (IOException e) {
-                                onExceptionCallback.accept(e);
-                            }
-                            break;
+    private void record(String name, String id, byte[] data) {
+        JournalWriter writer = this.journal;
+        if (writer == null || !("data".equals(name) || "patch".equals(name) || "error".equals(name))) {
+            return;
+        }
+        try {
+            writer.append(name, id, data);
+        } catch (IOException e) {
+            LOGGER.error("Event cannot be written to the journal, recording stopped", e);
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        JournalWriter writer = this.journal;
+        this.journal = null;
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Journal cannot be closed", e);
+            }
+        }
+    }
 
-                        default:
-                            LOGGER.warn("Unhandled event received with name '{}' and data : {}", eventName, eventData);
+    private void onConnectionFailure(StreamHandler handler, Throwable cause) {
+        if (handler != this.currentHandler || handler.failed) {
+            return;
+        }
+        handler.failed = true;
+        int attempt = attempts.incrementAndGet();
+        if (!reconnectPolicy.allows(attempt)) {
+            LOGGER.error("Event stream failed, giving up after {} attempts", attempt - 1);
+            giveUp(cause);
+            return;
+        }
+
+        long delay = reconnectPolicy.delayMillis(attempt);
+        LOGGER.warn("Event stream failed, reconnecting in {} ms (attempt {}) : {}", delay, attempt, cause.toString());
+        try {
+            context.scheduler().schedule(() -> reconnect(handler), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the StreamdataClient is being closed
+            LOGGER.debug("Reconnection cancelled", e);
+        }
+    }
 
+    /**
+     * Called by the watchdog when nothing has been received for longer than stallAfterMillis
+     */
+    private void onStall(long silentMillis) {
+        StreamHandler handler = this.currentHandler;
+        if (handler == null || handler.failed || this.paused.get()) {
+            // closed, already reconnecting, or not reading as the consumer is late
+            return;
+        }
+        LOGGER.warn("Nothing received for {} ms, the event stream is stalled{}", silentMillis, reconnectOnStall ? ", reconnecting" : "");
+        metrics.onStall(silentMillis);
+        if (this.onStallCallback != null) {
+            notify(() -> onStallCallback.accept(silentMillis));
+        }
+        if (this.reconnectOnStall) {
+            onConnectionFailure(handler, new SocketTimeoutException("Nothing received for " + silentMillis + " ms"));
+        }
+    }
+
+    private void reconnect(StreamHandler failed) {
+        RuntimeException failure = null;
+        synchronized (processingLock) {
+            if (this.lazy) {
+                // the proxy resumes after the last patch applied, sending the pending ones again
+                synchronized (lazyLock) {
+                    discardPending();
+                }
+            }
+            synchronized (this) {
+                SseConnection stale = this.connection;
+                if (stale == null || failed != this.currentHandler) {
+                    // closed or resynced in the meantime
+                    return;
+                }
+                closeStale(stale);
+                dropQueuedEvents();
+                metrics.onReconnect();
+                try {
+                    this.connection = connect(true);
+                } catch (RuntimeException e) {
+                    // a misuse such as a closed StreamdataClient, the stream cannot go on
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            giveUp(failure);
+        }
+    }
+
+    /**
+     * Closes a connection being replaced. Closing a blocking connection waits for its reading thread to terminate, so it
+     * is closed in the background not to hold the shared scheduler nor this client.
+     */
+    private void closeStale(SseConnection stale) {
+        if (this.nonBlocking) {
+            stale.close();
+            return;
+        }
+        try {
+            context.defaultDispatchExecutor().execute(stale::close);
+        } catch (RejectedExecutionException e) {
+            // the StreamdataClient is being closed
+            stale.close();
+        }
+    }
+
+    /**
+     * Drops the events read from a connection being replaced, they are sent again by the next one
+     */
+    private void dropQueuedEvents() {
+        if (this.processingStage != null) {
+            this.processingStage.clear();
+        }
+        this.paused.set(false);
+    }
+
+    private void onReceived(StreamHandler handler, String eventName, String eventId, byte[] eventData, long received) {
+        // json is parsed straight from the raw bytes
+        submit(() -> onEvent(handler, eventName, eventId, eventData, received));
+    }
+
+    /**
+     * @return the current time in nanoseconds, or 0 when nothing is recorded
+     */
+    private long now() {
+        return metrics == StreamMetrics.NOOP ? 0 : System.nanoTime();
+    }
+
+    private void recordStage(Stage stage, long start) {
+        if (start != 0) {
+            metrics.onStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param timestampMillis the newest timestamp carried by the event, {@link EventTimestamps#NONE} when it has none
+     */
+    private void recordEventAge(long timestampMillis) {
+        if (timestampMillis != EventTimestamps.NONE) {
+            metrics.onStage(Stage.EVENT_AGE, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - timestampMillis));
+        }
+    }
+
+    /**
+     * Runs a task of the stream right away, or on the processing stage when dispatch is asynchronous
+     */
+    private void submit(Runnable task) {
+        OrderedStage stage = this.processingStage;
+        if (stage == null) {
+            task.run();
+            return;
+        }
+        if (nonBlocking) {
+            stage.offer(task);
+            if (stage.isFull()) {
+                pauseReading(stage);
+            }
+            return;
+        }
+        try {
+            stage.put(task);
+        } catch (InterruptedException e) {
+            // the connection is being closed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pauseReading(OrderedStage stage) {
+        SseConnection current = this.connection;
+        if (current != null && paused.compareAndSet(false, true)) {
+            current.pause();
+            // the stage may have been drained before the flag was set
+            if (!stage.isFull()) {
+                resumeReading();
+            }
+        }
+    }
+
+    private void resumeReading() {
+        SseConnection current = this.connection;
+        if (current != null && paused.compareAndSet(true, false)) {
+            current.resume();
+        }
+    }
+
+    private void onEvent(StreamHandler handler, String eventName, String eventId, byte[] eventData, long received) {
+        synchronized (processingLock) {
+            if (handler != this.currentHandler) {
+                // read before the connection was replaced, the next one resumes after the last event applied
+                return;
+            }
+            if (this.lazy) {
+                // the delayed flush of the pending patches runs on another thread
+                synchronized (lazyLock) {
+                    processEvent(handler, eventName, eventId, eventData, received);
+                }
+            } else {
+                processEvent(handler, eventName, eventId, eventData, received);
+            }
+        }
+    }
+
+    private void processEvent(StreamHandler handler, String eventName, String eventId, byte[] eventData, long received) {
+        recordStage(Stage.DISPATCH, received);
+
+        switch (eventName) {
+            case "data":
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Receiving data {} ", new String(eventData, StandardCharsets.UTF_8));
+                }
+                try {
+                    onData(eventData, received);
+                    applied(eventId);
+                } catch (IOException e) {
+                    // notify consumer
+                    notifyException(e);
+                }
+                break;
+
+            case "patch":
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Receiving patch {} ", new String(eventData, StandardCharsets.UTF_8));
+                }
+                try {
+                    if (this.lazy) {
+                        onLazyPatch(eventId, eventData, received);
+                    } else {
+                        onPatch(eventData, received);
+                        applied(eventId);
+                    }
+                } catch (IOException e) {
+                    notifyException(e);
+                } catch (PatchApplicationException e) {
+                    // the snapshot cannot be trusted anymore
+                    metrics.onPatchFailure();
+                    resync(handler, e);
+                }
+                break;
+
+            case "error":
+                try {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Receiving error {} ", new String(eventData, StandardCharsets.UTF_8));
                     }
 
+                    // read the error
+                    JsonNode error = JSON_TREE_READER.readValue(eventData);
+
+                    notify(() -> onErrorCallback.accept(error));
+                } catch (IOException e) {
+                    notifyException(e);
                 }
+                break;
+
+            default:
+                LOGGER.warn("Unhandled event received with name '{}' and data : {}", eventName, new String(eventData, StandardCharsets.UTF_8));
 
-            };
-            // it is open... we are excepting thing to happen from now
-            if (this.onOpenCallback != null)
-                this.onOpenCallback.run();
-        } catch (Exception e) {
-            onExceptionCallback.accept(e);
-            this.close();
-            System.exit(1);
         }
 
-        return this;
+    }
+
+    private void applied(String eventId) {
+        SnapshotCheckpoint previous = this.applied;
+        this.applied = new SnapshotCheckpoint(currentSnapshot.get(), eventId != null ? eventId : previous.getLastEventId());
+    }
+
+    private void onData(byte[] eventData, long received) throws IOException {
+        if (this.lazy) {
+            // the snapshot supersedes the patches received so far
+            discardPending();
+            unnotifiedOperations.clear();
+        }
+        SnapshotDiffer differ = this.snapshotDiffer;
+        if (differ != null && differ.isSamePayload(eventData)) {
+            LOGGER.debug("Skipping snapshot identical to the previous one");
+            return;
+        }
+
+        // read the data
+        long parsing = now();
+        JsonNode tree = projection == null ? JSON_TREE_READER.readValue(eventData) : readProjected(eventData);
+        final JsonNode data = keyArrays(compactSnapshots ? CompactNodes.encode(tree) : tree);
+        recordStage(Stage.PARSE, parsing);
+        metrics.onSnapshot(eventData.length);
+        Snapshot previous = currentSnapshot.get();
+        Snapshot snapshot = new Snapshot(previous.getVersion() + 1, data);
+
+        if (differ != null && previous.getJsonNode() != null) {
+            // notify the changes only
+            List<PatchOperation> operations = differ.diff(previous.getJsonNode(), data);
+            if (operations.isEmpty()) {
+                // nothing to notify, the new tree is still kept as the hashes of the next diff are computed from it
+                currentSnapshot.set(new Snapshot(previous.getVersion(), data));
+            } else {
+                currentSnapshot.set(snapshot);
+                notifyPatch(snapshot, onPatchCallback != null ? PatchOperation.toJson(operations) : null, operations, received);
+            }
+            return;
+        }
+        if (differ != null) {
+            // keep the hashes of the first snapshot for the next diff
+            differ.diff(null, data);
+        }
+
+        // set it in a thread-safe fashion
+        currentSnapshot.set(snapshot);
+        if (this.throttleMillis > 0) {
+            // the snapshot supersedes the patches not delivered yet
+            discardThrottled();
+        }
+
+        // notify observers
+        notify(() -> {
+            long start = now();
+            onDataCallback.accept(snapshot);
+            changeDispatcher.dispatchSnapshot(data);
+            recordStage(Stage.CALLBACK, start);
+            recordStage(Stage.END_TO_END, received);
+            if (eventTimestamps != null && received != 0) {
+                recordEventAge(eventTimestamps.newest(data));
+            }
+        });
+    }
+
+    /**
+     * @return the snapshot parsed without the nodes outside the projection
+     */
+    private JsonNode readProjected(byte[] eventData) throws IOException {
+        try (JsonParser parser = JSON_OBJECT_MAPPER.getFactory().createParser(eventData)) {
+            if (parser.nextToken() == null) {
+                throw new IOException("Empty snapshot");
+            }
+            return projection.read(parser);
+        }
+    }
+
+    private void onPatch(byte[] eventData, long received) throws IOException {
+        // read the patch, its tree is only built when a consumer wants it
+        long parsing = now();
+        JsonNode lastPatch = null;
+        List<PatchOperation> operations;
+        if (onPatchCallback != null) {
+            lastPatch = JSON_TREE_READER.readValue(eventData);
+            operations = PatchOperation.parse(lastPatch);
+        } else {
+            try (JsonParser parser = JSON_OBJECT_MAPPER.getFactory().createParser(eventData)) {
+                operations = PatchOperation.read(parser);
+            }
+        }
+        Snapshot previous = currentSnapshot.get();
+        if (projection != null) {
+            List<PatchOperation> projected = projection.filter(operations, previous.getJsonNode());
+            if (projected != operations) {
+                operations = projected;
+                lastPatch = lastPatch == null ? null : PatchOperation.toJson(operations);
+            }
+        }
+        recordStage(Stage.PARSE, parsing);
+        if (operations.isEmpty() && projection != null) {
+            // nothing changed in the projection
+            return;
+        }
+
+        // apply the patch to the last know data value, only the modified path is copied
+        long applying = now();
+        JsonNode data = applyOperations(previous.getJsonNode(), operations);
+        recordStage(Stage.APPLY, applying);
+        Snapshot snapshot = new Snapshot(previous.getVersion() + 1, data);
+
+        // set it in a thread safe and atomic fashion
+        currentSnapshot.set(snapshot);
+
+        // notify observer
+        notifyPatch(snapshot, lastPatch, operations, received);
+    }
+
+    private JsonNode applyOperations(JsonNode source, List<PatchOperation> operations) {
+        return keyArrays(patch(source, operations));
+    }
+
+    private JsonNode patch(JsonNode source, List<PatchOperation> operations) {
+        return compactSnapshots ? CompactPatchEngine.apply(source, operations) : JsonPatchEngine.apply(source, operations);
+    }
+
+    /**
+     * @return the document where the arrays declared with keyBy() are keyed arrays, only the arrays that are not keyed
+     * yet (new snapshot, or replaced by a patch) and their ancestors being copied
+     */
+    private JsonNode keyArrays(JsonNode root) {
+        for (Map.Entry<String, String> keyField : keyFields.entrySet()) {
+            String pointer = keyField.getKey();
+            JsonNode array = root.at(pointer);
+            if (array.isArray() && !(array instanceof KeyedArrayNode)) {
+                KeyedArrayNode keyed = KeyedArrayNode.of(array, keyField.getValue());
+                root = pointer.isEmpty() ? keyed : patch(root,
+                        Collections.singletonList(new PatchOperation(PatchOperation.Op.REPLACE, pointer, null, keyed)));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Appends a patch to the pending operations, applying and notifying them once a threshold is hit. Called under lazyLock.
+     */
+    private void onLazyPatch(String eventId, byte[] eventData, long received) throws IOException {
+        long parsing = now();
+        List<PatchOperation> operations;
+        try (JsonParser parser = JSON_OBJECT_MAPPER.getFactory().createParser(eventData)) {
+            operations = PatchOperation.read(parser);
+        }
+        recordStage(Stage.PARSE, parsing);
+        if (currentSnapshot.get().getJsonNode() == null) {
+            throw new PatchApplicationException("Cannot apply a patch before a snapshot has been received");
+        }
+        if (projection != null) {
+            // the snapshot misses the pending operations, it is only looked up to tell arrays from objects
+            operations = projection.filter(operations, currentSnapshot.get().getJsonNode());
+            if (operations.isEmpty()) {
+                // nothing changed in the projection
+                return;
+            }
+        }
+
+        if (pendingPatches == 0 && unnotifiedOperations.isEmpty()) {
+            this.pendingSinceNanos = System.nanoTime();
+            this.pendingReceived = received;
+            scheduleLazyFlush();
+        }
+        pendingOperations.append(operations);
+        pendingPatches++;
+        if (eventId != null) {
+            pendingEventId = eventId;
+        }
+
+        if (pendingOperations.size() >= lazyMaxOperations
+                || System.nanoTime() - pendingSinceNanos >= TimeUnit.MILLISECONDS.toNanos(lazyMaxDelayMillis)) {
+            flushPending();
+        }
+    }
+
+    private void scheduleLazyFlush() {
+        try {
+            this.lazyFlushTask = context.scheduler().schedule(this::onLazyFlushDelay, lazyMaxDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the StreamdataClient is being closed
+            LOGGER.debug("Lazy flush cancelled", e);
+        }
+    }
+
+    private void onLazyFlushDelay() {
+        StreamHandler handler = this.currentHandler;
+        try {
+            synchronized (lazyLock) {
+                if ((pendingPatches > 0 || !unnotifiedOperations.isEmpty())
+                        && System.nanoTime() - pendingSinceNanos >= TimeUnit.MILLISECONDS.toNanos(lazyMaxDelayMillis)) {
+                    flushPending();
+                }
+            }
+        } catch (PatchApplicationException e) {
+            metrics.onPatchFailure();
+            resync(handler, e);
+        }
+    }
+
+    /**
+     * Applies the pending operations if any, without notifying them. Called by the readers of the snapshot.
+     */
+    private void applyPending() {
+        StreamHandler handler = this.currentHandler;
+        try {
+            synchronized (lazyLock) {
+                applyPendingOperations();
+            }
+        } catch (PatchApplicationException e) {
+            metrics.onPatchFailure();
+            resync(handler, e);
+        }
+    }
+
+    /**
+     * Applies the pending operations, then notifies every operation applied since the last notification. Called under lazyLock.
+     */
+    private void flushPending() {
+        applyPendingOperations();
+        if (lazyFlushTask != null) {
+            lazyFlushTask.cancel(false);
+            lazyFlushTask = null;
+        }
+        List<PatchOperation> operations = unnotifiedOperations.drain();
+        if (!operations.isEmpty()) {
+            notifyPatch(currentSnapshot.get(), onPatchCallback != null ? PatchOperation.toJson(operations) : null,
+                    operations, pendingReceived);
+        }
+    }
+
+    /**
+     * Called under lazyLock
+     *
+     * @throws PatchApplicationException when the operations cannot be applied, the pending ones being discarded
+     */
+    private void applyPendingOperations() {
+        if (pendingPatches == 0) {
+            return;
+        }
+        List<PatchOperation> operations = pendingOperations.drain();
+        int patches = pendingPatches;
+        String eventId = pendingEventId;
+        discardPending();
 
+        Snapshot previous = currentSnapshot.get();
+        long applying = now();
+        JsonNode data = applyOperations(previous.getJsonNode(), operations);
+        recordStage(Stage.APPLY, applying);
+        currentSnapshot.set(new Snapshot(previous.getVersion() + patches, data));
+        applied(eventId);
+        unnotifiedOperations.append(operations);
+    }
 
+    /**
+     * Forgets the operations received but not applied yet. Called under lazyLock.
+     */
+    private void discardPending() {
+        pendingOperations.clear();
+        pendingPatches = 0;
+        pendingEventId = null;
+    }
+
+    private void notifyPatch(Snapshot snapshot, JsonNode patch, List<PatchOperation> operations, long received) {
+        if (this.throttleMillis > 0) {
+            throttlePatch(snapshot, operations, received);
+        } else {
+            deliverPatch(snapshot, patch, operations, received);
+        }
+    }
+
+    private void deliverPatch(Snapshot snapshot, JsonNode patch, List<PatchOperation> operations, long received) {
+        notify(() -> {
+            long start = now();
+            if (patch != null) {
+                onPatchCallback.accept(snapshot, patch);
+            }
+            changeDispatcher.dispatch(operations);
+            recordStage(Stage.CALLBACK, start);
+            recordStage(Stage.END_TO_END, received);
+            if (eventTimestamps != null && received != 0) {
+                recordEventAge(eventTimestamps.newest(operations));
+            }
+        });
+    }
+
+    /**
+     * Delivers the patch right away if nothing was delivered during the last interval, otherwise merges it with the
+     * patches waiting for the end of the interval
+     */
+    private void throttlePatch(Snapshot snapshot, List<PatchOperation> operations, long received) {
+        synchronized (throttleLock) {
+            if (throttledOperations.isEmpty()) {
+                this.throttledReceived = received;
+            }
+            throttledOperations.append(operations);
+            this.throttledSnapshot = snapshot;
+            if (throttleTask != null) {
+                // delivered at the end of the interval
+                return;
+            }
+            long wait = nextDeliveryNanos - System.nanoTime();
+            if (wait <= 0) {
+                deliverThrottled();
+                return;
+            }
+            try {
+                this.throttleTask = context.scheduler().schedule(this::onThrottleDelay, wait, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // the StreamdataClient is being closed
+                LOGGER.debug("Throttled delivery cancelled", e);
+            }
+        }
+    }
+
+    private void onThrottleDelay() {
+        // the callbacks may read the snapshot, which takes lazyLock : take it first as the processing does
+        if (this.lazy) {
+            synchronized (lazyLock) {
+                onThrottleDelayLocked();
+            }
+        } else {
+            onThrottleDelayLocked();
+        }
+    }
+
+    private void onThrottleDelayLocked() {
+        synchronized (throttleLock) {
+            this.throttleTask = null;
+            deliverThrottled();
+        }
+    }
+
+    /**
+     * Notifies the latest snapshot with a single patch equivalent to all the patches merged since the last delivery.
+     * Called under throttleLock, which keeps deliveries in order.
+     */
+    private void deliverThrottled() {
+        List<PatchOperation> operations = throttledOperations.drain();
+        if (operations.isEmpty()) {
+            return;
+        }
+        this.nextDeliveryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(throttleMillis);
+        Snapshot snapshot = this.throttledSnapshot;
+        this.throttledSnapshot = null;
+        deliverPatch(snapshot, onPatchCallback != null ? PatchOperation.toJson(operations) : null, operations, throttledReceived);
+    }
+
+    /**
+     * Forgets the patches not delivered yet, superseded by a snapshot or because the client is closed
+     */
+    private void discardThrottled() {
+        synchronized (throttleLock) {
+            throttledOperations.clear();
+            this.throttledSnapshot = null;
+            if (this.throttleTask != null) {
+                this.throttleTask.cancel(false);
+                this.throttleTask = null;
+            }
+        }
+    }
+
+    private void notifyException(Throwable throwable) {
+        notify(() -> onExceptionCallback.accept(throwable));
+    }
+
+    /**
+     * Notifies a failure the stream cannot recover from and closes the client
+     */
+    private void giveUp(Throwable cause) {
+        notifyException(cause);
+        if (this.onFailureCallback != null) {
+            notify(() -> onFailureCallback.accept(cause));
+        }
+        close();
+    }
+
+    /**
+     * Runs the callbacks of an event, right away or on the callback stage when dispatch is asynchronous
+     */
+    private void notify(Runnable callbacks) {
+        OrderedStage stage = this.callbackStage;
+        if (stage == null) {
+            callbacks.run();
+        } else {
+            stage.offer(callbacks);
+        }
+    }
+
+    /**
+     * Reconnects to get a fresh snapshot from the proxy. May be called from the transport thread, which the transport
+     * takes care of when closing the stale connection.
+     *
+     * @param handler the handler of the connection the failing patch was received from
+     * @param cause   why the current snapshot has been discarded
+     */
+    private void resync(StreamHandler handler, Exception cause) {
+        synchronized (processingLock) {
+            if (handler != this.currentHandler) {
+                // closed, or already replaced since the patch was received
+                return;
+            }
+            LOGGER.warn("Patch cannot be applied, reconnecting to get a fresh snapshot : {}", cause.getMessage());
+            notifyException(cause);
+
+            if (this.lazy) {
+                // patched onto the discarded snapshot
+                synchronized (lazyLock) {
+                    discardPending();
+                }
+            }
+            synchronized (this) {
+                SseConnection stale = this.connection;
+                if (stale == null) {
+                    // closed in the meantime
+                    return;
+                }
+                closeStale(stale);
+                // the patches following the failing one cannot be applied either
+                dropQueuedEvents();
+                // the snapshot cannot be patched forward, a fresh one is needed
+                this.applied = new SnapshotCheckpoint(this.applied.getSnapshot(), null);
+                metrics.onReconnect();
+                this.connection = connect(false);
+            }
+        }
     }
 
 
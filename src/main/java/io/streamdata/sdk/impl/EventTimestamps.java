@@ -0,0 +1,112 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Locates the timestamps carried by the data, with a JSON Pointer pattern where <code>*</code> matches any token, to
+ * tell how old an event is. A timestamp is an epoch in milliseconds, as a number or a text, or an ISO-8601 date-time with
+ * an offset such as <code>2019-05-14T09:12:43.511Z</code>. Other values are ignored.</p>
+ * <p>Thread-safe.</p>
+ */
+final class EventTimestamps {
+
+    /**
+     * Returned when no timestamp is found
+     */
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final String WILDCARD = "*";
+
+    private final String[] tokens;
+
+    /**
+     * @param pattern the pattern of the timestamps, such as <code>/quotes/&#42;/dt</code>
+     */
+    EventTimestamps(String pattern) {
+        this.tokens = PatchOperation.parsePointer(pattern);
+    }
+
+    /**
+     * @param operations the operations of a patch
+     * @return the newest timestamp in epoch milliseconds set by the operations, {@link #NONE} if they set none
+     */
+    long newest(List<PatchOperation> operations) {
+        long newest = NONE;
+        for (PatchOperation operation : operations) {
+            PatchOperation.Op op = operation.getOp();
+            if (op != PatchOperation.Op.ADD && op != PatchOperation.Op.REPLACE) {
+                continue;
+            }
+            String[] path = operation.getPathTokens();
+            if (path.length <= tokens.length && matches(path)) {
+                // a timestamp or a node holding some
+                newest = Math.max(newest, newest(operation.getValue(), path.length));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * @param snapshot a snapshot
+     * @return its newest timestamp in epoch milliseconds, {@link #NONE} if it has none
+     */
+    long newest(JsonNode snapshot) {
+        return newest(snapshot, 0);
+    }
+
+    private boolean matches(String[] path) {
+        for (int i = 0; i < path.length; i++) {
+            if (!WILDCARD.equals(tokens[i]) && !tokens[i].equals(path[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long newest(JsonNode node, int depth) {
+        if (node == null) {
+            return NONE;
+        }
+        if (depth == tokens.length) {
+            return timestamp(node);
+        }
+        String token = tokens[depth];
+        if (!WILDCARD.equals(token)) {
+            return newest(node.isArray() ? node.get(index(token)) : node.get(token), depth + 1);
+        }
+        long newest = NONE;
+        for (Iterator<JsonNode> children = node.elements(); children.hasNext(); ) {
+            newest = Math.max(newest, newest(children.next(), depth + 1));
+        }
+        return newest;
+    }
+
+    private static int index(String token) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long timestamp(JsonNode node) {
+        if (node.isIntegralNumber()) {
+            return node.longValue();
+        }
+        if (!node.isTextual()) {
+            return NONE;
+        }
+        String text = node.textValue();
+        try {
+            // an ISO-8601 date-time has a time part, an epoch does not
+            return text.indexOf('T') < 0 ? Long.parseLong(text) : OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        } catch (DateTimeParseException | NumberFormatException | ArithmeticException e) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package io.streamdata.sdk.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental decoder of an HTTP/1.1 response : the status line and headers are buffered, then the body is handed over
+ * as it arrives, chunked transfer encoding being removed.
+ */
+final class HttpResponseDecoder {
+
+    interface Listener {
+
+        /**
+         * @param status  the status code
+         * @param headers the headers, names in lower case
+         * @throws IOException to reject the response
+         */
+        void onHeaders(int status, Map<String, String> headers) throws IOException;
+
+        /**
+         * @param body a part of the body, to be consumed before returning
+         * @throws IOException to reject the body
+         */
+        void onBody(ByteBuffer body) throws IOException;
+    }
+
+    private enum State {
+        HEADERS, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, IDENTITY, DONE
+    }
+
+    // header section larger than that are rejected
+    private static final int MAX_HEADERS_SIZE = 64 * 1024;
+
+    private final Listener listener;
+
+    private State state = State.HEADERS;
+    private final StringBuilder line = new StringBuilder();
+    private long chunkRemaining;
+
+    HttpResponseDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param buffer bytes of the response, fully consumed
+     * @throws IOException when the response is invalid or rejected
+     */
+    void feed(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case HEADERS:
+                    if (readLine(buffer, MAX_HEADERS_SIZE) && line.toString().endsWith("\r\n\r\n")) {
+                        onHeaders(line.toString());
+                        line.setLength(0);
+                    }
+                    break;
+
+                case CHUNK_SIZE:
+                    if (readLine(buffer, 1024)) {
+                        String size = line.toString().trim();
+                        int extension = size.indexOf(';');
+                        chunkRemaining = Long.parseLong(extension < 0 ? size : size.substring(0, extension).trim(), 16);
+                        line.setLength(0);
+                        state = chunkRemaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                    }
+                    break;
+
+                case CHUNK_DATA: {
+                    int length = (int) Math.min(chunkRemaining, buffer.remaining());
+                    body(buffer, length);
+                    chunkRemaining -= length;
+                    if (chunkRemaining == 0) {
+                        state = State.CHUNK_END;
+                    }
+                    break;
+                }
+
+                case CHUNK_END:
+                    if (readLine(buffer, 16)) {
+                        line.setLength(0);
+                        state = State.CHUNK_SIZE;
+                    }
+                    break;
+
+                case TRAILERS:
+                    if (readLine(buffer, MAX_HEADERS_SIZE)) {
+                        boolean end = line.length() <= 2;
+                        line.setLength(0);
+                        if (end) {
+                            state = State.DONE;
+                        }
+                    }
+                    break;
+
+                case IDENTITY:
+                    body(buffer, buffer.remaining());
+                    break;
+
+                default:
+                    // nothing is expected after the end of the body
+                    buffer.position(buffer.limit());
+            }
+        }
+    }
+
+    /**
+     * @return true once the whole body has been read
+     */
+    boolean isDone() {
+        return state == State.DONE;
+    }
+
+    private void body(ByteBuffer buffer, int length) throws IOException {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(buffer.position() + length);
+        buffer.position(buffer.position() + length);
+        listener.onBody(slice);
+    }
+
+    /**
+     * Append bytes to the current line up to a line feed
+     *
+     * @return true when a line feed has been read
+     */
+    private boolean readLine(ByteBuffer buffer, int maxLength) throws IOException {
+        while (buffer.hasRemaining()) {
+            char c = (char) (buffer.get() & 0xFF);
+            line.append(c);
+            if (line.length() > maxLength) {
+                throw new IOException("HTTP response line or headers too long");
+            }
+            if (c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onHeaders(String section) throws IOException {
+        String[] lines = section.split("\r\n");
+        String[] statusLine = lines[0].split(" ", 3);
+        if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/")) {
+            throw new IOException("Invalid HTTP status line : " + lines[0]);
+        }
+        int status;
+        try {
+            status = Integer.parseInt(statusLine[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid HTTP status line : " + lines[0]);
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+            }
+        }
+        listener.onHeaders(status, headers);
+
+        String transferEncoding = headers.get("transfer-encoding");
+        state = transferEncoding != null && transferEncoding.toLowerCase().contains("chunked") ? State.CHUNK_SIZE : State.IDENTITY;
+    }
+
+    /**
+     * Check that the end of the connection is not the end of the response
+     *
+     * @throws EOFException always, with a message telling where the stream ended
+     */
+    void endOfStream() throws EOFException {
+        if (state == State.HEADERS) {
+            throw new EOFException("Connection closed before the HTTP response headers");
+        }
+        throw new EOFException("Event stream closed by the server");
+    }
+}
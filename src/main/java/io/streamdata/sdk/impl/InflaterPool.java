@@ -0,0 +1,69 @@
+package io.streamdata.sdk.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Raw deflate {@link Inflater}s reused across the connections of a transport. An Inflater holds native memory
+ * until it is ended, so instead of leaving that to the finalizer at every reconnection, the inflaters released are kept
+ * for the next connections, up to a maximum, and the others ended right away.</p>
+ * <p>Thread-safe.</p>
+ */
+final class InflaterPool {
+
+    private final Queue<Inflater> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+    private volatile boolean closed;
+
+    /**
+     * @param maxIdle the maximum number of inflaters kept while not used
+     */
+    InflaterPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return a reset inflater, without zlib header
+     */
+    Inflater acquire() {
+        Inflater inflater = idle.poll();
+        if (inflater == null) {
+            return new Inflater(true);
+        }
+        idleCount.decrementAndGet();
+        return inflater;
+    }
+
+    /**
+     * @param inflater an inflater acquired from this pool, not to be used afterwards
+     */
+    void release(Inflater inflater) {
+        if (!closed) {
+            if (idleCount.incrementAndGet() <= maxIdle) {
+                inflater.reset();
+                idle.add(inflater);
+                if (closed) {
+                    // closed meanwhile
+                    close();
+                }
+                return;
+            }
+            idleCount.decrementAndGet();
+        }
+        inflater.end();
+    }
+
+    /**
+     * Ends the idle inflaters, the ones still acquired are ended when released
+     */
+    void close() {
+        closed = true;
+        Inflater inflater;
+        while ((inflater = idle.poll()) != null) {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.TransportConfig;
+import io.streamdata.sdk.transport.SseConnection;
+import io.streamdata.sdk.transport.SseEventHandler;
+import io.streamdata.sdk.transport.SseRequest;
+import io.streamdata.sdk.transport.SseTransport;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.media.sse.EventInput;
+import org.glassfish.jersey.media.sse.InboundEvent;
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Transport based on the Jersey {@link EventInput}, all the connections sharing a same Jersey client backed by a pool
+ * of Apache HTTP connections. Each connection owns the thread reading its stream : with
+ * {@link TransportConfig#getMaxConnections()} set, both the connections and the threads are bounded, the streams
+ * opened beyond it waiting for a stream to be closed.</p>
+ * <p>The stream is not reconnected by the transport : its end or failure is reported to the handler, which decides.</p>
+ * <p>A compressed stream is decoded by an interceptor wrapping the entity stream read by the {@link EventInput}.</p>
+ */
+public class JerseySseTransport implements SseTransport {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(JerseySseTransport.class);
+
+    // request property holding the handler of a connection, for the interceptor
+    private static final String HANDLER_PROPERTY = "io.streamdata.sdk.handler";
+
+    // size of the buffer the compressed bytes are read to, per connection
+    private static final int COMPRESSED_BUFFER_SIZE = 8 * 1024;
+
+    private final TransportConfig config;
+
+    // the jersey client shared by every connection
+    private final Client webClient;
+
+    // the connections of the streams, one per stream being read
+    private final PoolingHttpClientConnectionManager connections;
+
+    // the reading threads, as many as the connections
+    private final ThreadPoolExecutor readers;
+    private final int maxConnections;
+
+    private final InflaterPool inflaters = new InflaterPool(64);
+
+    public JerseySseTransport(TransportConfig config) {
+        this.config = checkNotNull(config, "config cannot be null");
+
+        this.maxConnections = config.getMaxConnections() > 0 ? config.getMaxConnections() : Integer.MAX_VALUE;
+        // every stream goes to the same proxy
+        this.connections = new PoolingHttpClientConnectionManager();
+        this.connections.setMaxTotal(maxConnections);
+        this.connections.setDefaultMaxPerRoute(maxConnections);
+
+        ClientConfig clientConfig = new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connections)
+                // the streams are decoded by the interceptor, with pooled inflaters
+                .property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom().setContentCompressionEnabled(false).build())
+                .property(ClientProperties.CONNECT_TIMEOUT, config.getConnectTimeoutMillis())
+                .property(ClientProperties.READ_TIMEOUT, config.getReadTimeoutMillis());
+        this.webClient = ClientBuilder.newBuilder()
+                .withConfig(clientConfig)
+                .register(SseFeature.class)
+                .register(new DecodingInterceptor())
+                .build();
+
+        AtomicInteger count = new AtomicInteger();
+        this.readers = new ThreadPoolExecutor(config.getMaxConnections() > 0 ? maxConnections : 0, maxConnections,
+                60, TimeUnit.SECONDS, config.getMaxConnections() > 0 ? new LinkedBlockingQueue<>() : new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "streamdata-sse-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.readers.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public SseConnection connect(SseRequest request, SseEventHandler handler) {
+        JerseyConnection connection = new JerseyConnection(request, handler);
+        if (readers.getActiveCount() >= maxConnections) {
+            LOGGER.warn("{} streams are already read, {} waits for one to be closed", maxConnections, request.getUri());
+        }
+        readers.execute(connection);
+        return connection;
+    }
+
+    @Override
+    public void close() {
+        readers.shutdownNow();
+        webClient.close();
+        inflaters.close();
+    }
+
+    private final class JerseyConnection implements SseConnection, Runnable {
+
+        private final SseRequest request;
+        private final SseEventHandler handler;
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Thread readerThread;
+        private volatile EventInput input;
+        private volatile boolean closed;
+
+        private JerseyConnection(SseRequest request, SseEventHandler handler) {
+            this.request = request;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            readerThread = Thread.currentThread();
+            EventInput input = null;
+            try {
+                if (closed) {
+                    // closed while waiting for a reading thread
+                    return;
+                }
+                Invocation.Builder invocation = webClient.target(request.getUri()).request()
+                        .property(HANDLER_PROPERTY, handler);
+                boolean acceptEncoding = false;
+                for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                    invocation.header(header.getKey(), header.getValue());
+                    acceptEncoding |= header.getKey().equalsIgnoreCase("Accept-Encoding");
+                }
+                if (config.isCompression() && !acceptEncoding) {
+                    invocation.header("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+                }
+                input = invocation.get(EventInput.class);
+                this.input = input;
+                if (closed) {
+                    return;
+                }
+                handler.onOpen();
+
+                while (!closed) {
+                    InboundEvent event = input.read();
+                    if (event == null) {
+                        throw new EOFException("Event stream closed by the server");
+                    }
+                    if (closed) {
+                        break;
+                    }
+                    if (event.getComment() != null) {
+                        handler.onComment(event.getComment());
+                    }
+                    if (!event.isEmpty()) {
+                        String name = event.getName();
+                        handler.onEvent(name == null ? "message" : name, event.getId(), event.getRawData());
+                    }
+                }
+            } catch (Exception e) {
+                if (!closed) {
+                    handler.onFailure(e);
+                }
+            } finally {
+                if (input != null && !input.isClosed()) {
+                    try {
+                        input.close();
+                    } catch (Exception e) {
+                        LOGGER.debug("Cannot close event input", e);
+                    }
+                }
+                terminated.countDown();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Thread reader = readerThread;
+            // the reading thread cannot wait for its own termination
+            if (reader != null && reader != Thread.currentThread()) {
+                reader.interrupt();
+                EventInput reading = this.input;
+                if (reading != null) {
+                    // shuts the connection down, a blocked read being released rather than holding it
+                    try {
+                        reading.close();
+                    } catch (RuntimeException e) {
+                        LOGGER.debug("Cannot close event input", e);
+                    }
+                }
+                try {
+                    terminated.await(config.getCloseTimeoutMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the compressed event streams and counts their bytes, for the requests of the connections
+     */
+    private final class DecodingInterceptor implements ReaderInterceptor {
+
+        @Override
+        public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+            Object handler = context.getProperty(HANDLER_PROPERTY);
+            if (handler instanceof SseEventHandler) {
+                ContentDecoder decoder = ContentDecoder.of(context.getHeaders().getFirst("Content-Encoding"), inflaters);
+                context.setInputStream(new DecodingInputStream(context.getInputStream(), decoder, (SseEventHandler) handler));
+            }
+            return context.proceed();
+        }
+    }
+
+    /**
+     * The body of a stream, decoded when compressed
+     */
+    private static final class DecodingInputStream extends InputStream {
+
+        private final InputStream input;
+        private final ContentDecoder decoder;
+        private final SseEventHandler handler;
+        private final byte[] compressed;
+        private final byte[] single = new byte[1];
+
+        private DecodingInputStream(InputStream input, ContentDecoder decoder, SseEventHandler handler) {
+            this.input = input;
+            this.decoder = decoder;
+            this.handler = handler;
+            this.compressed = decoder != null ? new byte[COMPRESSED_BUFFER_SIZE] : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (decoder == null) {
+                int read = input.read(buffer, offset, length);
+                if (read > 0) {
+                    handler.onBytesRead(read, read);
+                }
+                return read;
+            }
+            for (; ; ) {
+                int decoded = decoder.decode(buffer, offset, length);
+                if (decoded > 0) {
+                    handler.onBytesRead(0, decoded);
+                    return decoded;
+                }
+                int read = input.read(compressed, 0, compressed.length);
+                if (read < 0) {
+                    return -1;
+                }
+                handler.onBytesRead(read, 0);
+                decoder.setInput(compressed, 0, read);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoder != null) {
+                decoder.close();
+            }
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.transport.SseConnection;
+import io.streamdata.sdk.transport.SseEventHandler;
+import io.streamdata.sdk.transport.SseRequest;
+import io.streamdata.sdk.transport.SseTransport;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Transport reading the events recorded by a {@link JournalWriter} instead of the network, on a thread per connection.
+ * The request is ignored : every connection replays the whole journal with the recorded ids, then completes.
+ */
+final class JournalReplayTransport implements SseTransport {
+
+    private final Path directory;
+    private final boolean realTime;
+
+    /**
+     * @param directory the directory of the journal segments
+     * @param realTime  true to wait between the events as long as when they were recorded, false to replay as fast as possible
+     */
+    JournalReplayTransport(Path directory, boolean realTime) {
+        this.directory = directory;
+        this.realTime = realTime;
+    }
+
+    @Override
+    public SseConnection connect(SseRequest request, SseEventHandler handler) {
+        Replay replay = new Replay(handler);
+        Thread thread = new Thread(replay, "streamdata-replay");
+        thread.setDaemon(true);
+        thread.start();
+        return replay;
+    }
+
+    @Override
+    public void close() {
+        // nothing shared between the connections
+    }
+
+    private final class Replay implements SseConnection, Runnable {
+
+        private final SseEventHandler handler;
+        private volatile Thread thread;
+        private volatile boolean closed;
+
+        private Replay(SseEventHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                List<Path> segments = segments();
+                if (segments.isEmpty()) {
+                    throw new IOException("No journal segment in " + directory);
+                }
+                handler.onOpen();
+
+                long firstTimestamp = -1;
+                long start = System.currentTimeMillis();
+                for (Path segment : segments) {
+                    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                        while (!closed && buffer.remaining() >= JournalWriter.RECORD_HEADER_SIZE) {
+                            int length = buffer.getInt();
+                            if (length == 0) {
+                                break;
+                            }
+                            if (length < JournalWriter.RECORD_HEADER_SIZE || length - 4 > buffer.remaining()) {
+                                throw new IOException("Corrupted journal segment " + segment);
+                            }
+                            long timestamp = buffer.getLong();
+                            byte[] name = new byte[buffer.get() & 0xFF];
+                            int idLength = buffer.getShort() & 0xFFFF;
+                            byte[] idBytes = new byte[idLength != JournalWriter.NO_ID ? idLength : 0];
+                            int dataLength = length - JournalWriter.RECORD_HEADER_SIZE - name.length - idBytes.length;
+                            if (dataLength < 0) {
+                                throw new IOException("Corrupted journal segment " + segment);
+                            }
+                            buffer.get(name);
+                            buffer.get(idBytes);
+                            byte[] data = new byte[dataLength];
+                            buffer.get(data);
+                            String id = idLength != JournalWriter.NO_ID ? new String(idBytes, StandardCharsets.UTF_8) : null;
+
+                            if (realTime) {
+                                if (firstTimestamp < 0) {
+                                    firstTimestamp = timestamp;
+                                }
+                                long wait = (timestamp - firstTimestamp) - (System.currentTimeMillis() - start);
+                                if (wait > 0) {
+                                    Thread.sleep(wait);
+                                }
+                            }
+                            handler.onEvent(new String(name, StandardCharsets.US_ASCII), id, data);
+                        }
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                handler.onComplete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (!closed) {
+                    handler.onFailure(e);
+                }
+            }
+        }
+
+        private List<Path> segments() throws IOException {
+            List<Path> segments = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                    JournalWriter.SEGMENT_PREFIX + "*" + JournalWriter.SEGMENT_SUFFIX)) {
+                files.forEach(segments::add);
+            }
+            // names are zero padded, so sorting them sorts the segments
+            Collections.sort(segments);
+            return segments;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Thread replaying = thread;
+            // wake it up if it waits for the next event
+            if (replaying != null && replaying != Thread.currentThread()) {
+                replaying.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.streamdata.sdk.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Append-only journal of the raw events of a stream, written in memory-mapped segments of a fixed size.
+ * Appending an event is a copy into the mapped pages, the operating system writing them to disk in the background :
+ * events survive a crash of the process, not of the machine.</p>
+ * <p>Each record is :</p>
+ * <pre>
+ * record length (4) | timestamp in ms (8) | name length (1) | id length (2) | name (ASCII) | id (UTF-8) | data
+ * </pre>
+ * <p>The id length of an event without id is {@value #NO_ID}. Replayed with their ids, the events move the last event
+ * id and the checkpoints of the client as the live stream did.</p>
+ * <p>A zero record length marks the end of a segment. Segments are named <code>journal-NNNNNNNNNN.sdj</code> and a new
+ * journal in an existing directory starts a new segment after the last one.</p>
+ */
+final class JournalWriter implements AutoCloseable {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalWriter.class);
+
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".sdj";
+
+    // length, timestamp, name length and id length
+    static final int RECORD_HEADER_SIZE = 4 + 8 + 1 + 2;
+
+    // id length of an event without id, an empty id resetting the last event id
+    static final int NO_ID = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private boolean closed;
+
+    /**
+     * @param directory   the directory of the segments, created if needed
+     * @param segmentSize the size of a segment in bytes, also the maximum size of an event
+     * @throws IOException if the directory cannot be created
+     */
+    JournalWriter(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.segmentIndex = lastSegmentIndex(directory);
+    }
+
+    /**
+     * @param name the name of the event, at most 255 ASCII characters
+     * @param id   the id of the event, null if it has none
+     * @param data the raw data of the event
+     * @throws IOException if a new segment cannot be created
+     */
+    synchronized void append(String name, String id, byte[] data) throws IOException {
+        if (closed) {
+            return;
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        byte[] idBytes = id != null ? id.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (idBytes.length >= NO_ID) {
+            throw new IOException("Event id of " + idBytes.length + " bytes too long for the journal");
+        }
+        int length = RECORD_HEADER_SIZE + nameBytes.length + idBytes.length + data.length;
+        // room is always kept for the end marker
+        if (length + 4 > segmentSize) {
+            throw new IOException("Event of " + data.length + " bytes larger than a journal segment");
+        }
+        if (segment == null || segment.remaining() < length + 4) {
+            roll();
+        }
+        segment.putInt(length)
+                .putLong(System.currentTimeMillis())
+                .put((byte) nameBytes.length)
+                .putShort((short) (id != null ? idBytes.length : NO_ID))
+                .put(nameBytes)
+                .put(idBytes)
+                .put(data);
+    }
+
+    private void roll() throws IOException {
+        closeSegment();
+        segmentIndex++;
+        Path file = segmentPath(directory, segmentIndex);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // the pages not written yet are zeroes, hence an end marker
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        LOGGER.debug("Journal segment {} created", file);
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment == null) {
+            return;
+        }
+        int end = segment.position();
+        segment.force();
+        segment = null;
+        // the unused end of the segment is given back, the zero marker being kept
+        channel.truncate(end + 4);
+        channel.close();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            closeSegment();
+        }
+    }
+
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long lastSegmentIndex(Path directory) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring unexpected journal file {}", segment);
+                }
+            }
+        }
+        return last;
+    }
+}
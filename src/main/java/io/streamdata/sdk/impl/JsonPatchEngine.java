@@ -0,0 +1,300 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Applies RFC 6902 JSON Patches using path copying : only the containers on the path from the root to a modified node
+ * are copied (shallow copies), every other subtree is shared between the source and the result. The cost of a patch is
+ * then proportional to the patch and the depth of its paths, not to the size of the document.</p>
+ * <p>The source document is never modified, so a snapshot handed to a consumer stays consistent while the next patches
+ * are applied. In return, snapshots must be treated as read-only.</p>
+ * <p>A patch is atomic : if one operation fails, a {@link PatchApplicationException} is thrown and the source is left as is.</p>
+ */
+public final class JsonPatchEngine {
+
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private JsonPatchEngine() {
+    }
+
+    /**
+     * Apply a patch document
+     *
+     * @param source the document to patch, left untouched
+     * @param patch  the patch, a json array of operations
+     * @return the patched document
+     * @throws PatchApplicationException when an operation cannot be applied
+     */
+    public static JsonNode apply(JsonNode source, JsonNode patch) {
+        return apply(source, PatchOperation.parse(patch));
+    }
+
+    /**
+     * Apply already parsed operations
+     *
+     * @param source     the document to patch, left untouched
+     * @param operations the operations
+     * @return the patched document
+     * @throws PatchApplicationException when an operation cannot be applied
+     */
+    public static JsonNode apply(JsonNode source, List<PatchOperation> operations) {
+        if (source == null) {
+            throw new PatchApplicationException("Cannot apply a patch before a snapshot has been received");
+        }
+        Context context = new Context(source);
+        for (PatchOperation operation : operations) {
+            context.apply(operation);
+        }
+        context.seal();
+        return context.root;
+    }
+
+    /**
+     * Holds the root being built and the containers copied while applying a patch. Those copies are not visible to
+     * anybody yet so they can be modified in place by the following operations. The keyed arrays copied update their
+     * index once they cannot be modified anymore.
+     */
+    private static final class Context {
+
+        private JsonNode root;
+        private final Set<JsonNode> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<KeyedArrayNode> keyed = new ArrayList<>();
+
+        private Context(JsonNode root) {
+            this.root = root;
+        }
+
+        private void seal() {
+            for (KeyedArrayNode array : keyed) {
+                array.seal();
+            }
+            keyed.clear();
+        }
+
+        private void apply(PatchOperation operation) {
+            String[] path = operation.getPathTokens();
+            switch (operation.getOp()) {
+                case ADD:
+                    add(path, operation.getValue(), operation);
+                    break;
+                case REMOVE:
+                    remove(path, operation);
+                    break;
+                case REPLACE:
+                    replace(path, operation.getValue(), operation);
+                    break;
+                case MOVE: {
+                    String[] from = operation.getFromTokens();
+                    if (Arrays.equals(from, path)) {
+                        break;
+                    }
+                    if (isProperPrefix(from, path)) {
+                        throw new PatchApplicationException("Cannot move a node into one of its children : " + operation);
+                    }
+                    JsonNode value = get(from, operation);
+                    remove(from, operation);
+                    // the node moved is notified as this operation left it, it cannot be modified in place anymore
+                    seal();
+                    owned.clear();
+                    add(path, value, operation);
+                    operation.setMovedValue(value);
+                    break;
+                }
+                case COPY: {
+                    // the copied subtree is shared, it is copied lazily when later modified
+                    JsonNode value = get(operation.getFromTokens(), operation);
+                    // containers copied so far may end up reachable from both paths, they cannot be modified in place anymore
+                    seal();
+                    owned.clear();
+                    add(path, value, operation);
+                    operation.setMovedValue(value);
+                    break;
+                }
+                case TEST:
+                    if (!get(path, operation).equals(operation.getValue())) {
+                        throw new PatchApplicationException("Test failed : " + operation);
+                    }
+                    break;
+                default:
+                    throw new PatchApplicationException("Unsupported operation : " + operation);
+            }
+        }
+
+        private void add(String[] path, JsonNode value, PatchOperation operation) {
+            if (path.length == 0) {
+                root = value;
+                return;
+            }
+            JsonNode parent = parentOf(path, operation);
+            String last = path[path.length - 1];
+            if (parent.isObject()) {
+                ((ObjectNode) parent).set(last, value);
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.insertElement("-".equals(last) ? array.size() : index(last, array.size() + 1, operation), value);
+            } else {
+                ArrayNode array = (ArrayNode) parent;
+                if ("-".equals(last)) {
+                    array.add(value);
+                } else {
+                    array.insert(index(last, array.size() + 1, operation), value);
+                }
+            }
+        }
+
+        private void remove(String[] path, PatchOperation operation) {
+            if (path.length == 0) {
+                throw new PatchApplicationException("Cannot remove the whole document : " + operation);
+            }
+            JsonNode parent = parentOf(path, operation);
+            String last = path[path.length - 1];
+            if (parent.isObject()) {
+                if (((ObjectNode) parent).remove(last) == null) {
+                    throw new PatchApplicationException("No value to remove : " + operation);
+                }
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.removeElement(index(last, array.size(), operation));
+            } else {
+                ArrayNode array = (ArrayNode) parent;
+                array.remove(index(last, array.size(), operation));
+            }
+        }
+
+        private void replace(String[] path, JsonNode value, PatchOperation operation) {
+            if (path.length == 0) {
+                root = value;
+                return;
+            }
+            JsonNode parent = parentOf(path, operation);
+            String last = path[path.length - 1];
+            if (parent.isObject()) {
+                ObjectNode object = (ObjectNode) parent;
+                if (!object.has(last)) {
+                    throw new PatchApplicationException("No value to replace : " + operation);
+                }
+                object.set(last, value);
+            } else if (parent instanceof KeyedArrayNode) {
+                KeyedArrayNode array = (KeyedArrayNode) parent;
+                array.setElement(index(last, array.size(), operation), value);
+            } else {
+                ArrayNode array = (ArrayNode) parent;
+                array.set(index(last, array.size(), operation), value);
+            }
+        }
+
+        /**
+         * Read a node without copying anything
+         */
+        private JsonNode get(String[] path, PatchOperation operation) {
+            JsonNode node = root;
+            for (String token : path) {
+                node = child(node, token, operation);
+            }
+            return node;
+        }
+
+        /**
+         * Gets the container holding the last token of the path, copying the containers from the root if they are not owned yet.
+         */
+        private JsonNode parentOf(String[] path, PatchOperation operation) {
+            root = own(root, operation);
+            JsonNode node = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                JsonNode child = child(node, path[i], operation);
+                JsonNode ownedChild = own(child, operation);
+                if (ownedChild != child) {
+                    // link the copy in its (already owned) parent
+                    if (node.isObject()) {
+                        ((ObjectNode) node).set(path[i], ownedChild);
+                    } else if (node instanceof KeyedArrayNode) {
+                        ((KeyedArrayNode) node).setElement(Integer.parseInt(path[i]), ownedChild);
+                    } else {
+                        ((ArrayNode) node).set(Integer.parseInt(path[i]), ownedChild);
+                    }
+                }
+                node = ownedChild;
+            }
+            if (!node.isContainerNode()) {
+                throw new PatchApplicationException("Path does not lead to an object or an array : " + operation);
+            }
+            return node;
+        }
+
+        private JsonNode own(JsonNode node, PatchOperation operation) {
+            if (owned.contains(node)) {
+                return node;
+            }
+            JsonNode copy;
+            if (node instanceof KeyedArrayNode) {
+                copy = ((KeyedArrayNode) node).copy();
+                keyed.add((KeyedArrayNode) copy);
+            } else if (node.isObject()) {
+                copy = FACTORY.objectNode().setAll((ObjectNode) node);
+            } else if (node.isArray()) {
+                copy = FACTORY.arrayNode(node.size()).addAll((ArrayNode) node);
+            } else {
+                throw new PatchApplicationException("Path does not lead to an object or an array : " + operation);
+            }
+            owned.add(copy);
+            return copy;
+        }
+
+        private static JsonNode child(JsonNode node, String token, PatchOperation operation) {
+            JsonNode child;
+            if (node.isObject()) {
+                child = node.get(token);
+            } else if (node.isArray()) {
+                child = node.get(index(token, node.size(), operation));
+            } else {
+                child = null;
+            }
+            if (child == null) {
+                throw new PatchApplicationException("Path not found : " + operation);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * @return the array index the token stands for, checked against 0 (inclusive) and the bound (exclusive)
+     */
+    static int index(String token, int bound, PatchOperation operation) {
+        // RFC 6901 : no sign, no leading zero
+        if (token.isEmpty() || token.length() > 10 || (token.length() > 1 && token.charAt(0) == '0')) {
+            throw new PatchApplicationException("Invalid array index '" + token + "' : " + operation);
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                throw new PatchApplicationException("Invalid array index '" + token + "' : " + operation);
+            }
+        }
+        long index = Long.parseLong(token);
+        if (index >= bound) {
+            throw new PatchApplicationException("Array index out of bounds '" + token + "' : " + operation);
+        }
+        return (int) index;
+    }
+
+    static boolean isProperPrefix(String[] prefix, String[] path) {
+        if (prefix.length >= path.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (!prefix[i].equals(path[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
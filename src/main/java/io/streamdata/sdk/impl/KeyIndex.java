@@ -0,0 +1,197 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>A persistent map from keys to nodes, stored as a hash array mapped trie : a lookup reads at most 7 levels of 32
+ * slots, and a modification copies the few slots arrays on the path to its key, sharing everything else with the
+ * previous map which is left as is.</p>
+ */
+final class KeyIndex {
+
+    static final KeyIndex EMPTY = new KeyIndex(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Trie root;
+    private final int size;
+
+    private KeyIndex(Trie root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the node of the key, null if none
+     */
+    JsonNode get(String key) {
+        return root == null ? null : root.get(key, key.hashCode(), 0);
+    }
+
+    KeyIndex put(String key, JsonNode value) {
+        Entry entry = new Entry(key, key.hashCode(), value);
+        Trie trie = root == null ? Trie.EMPTY : root;
+        boolean[] added = new boolean[1];
+        return new KeyIndex(trie.put(entry, 0, added), added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param value the node the key must map to, so a key indexing another node is kept
+     * @return the index without the key, this index if the key does not map to the value
+     */
+    KeyIndex remove(String key, JsonNode value) {
+        if (root == null) {
+            return this;
+        }
+        Trie trie = root.remove(key, key.hashCode(), value, 0);
+        if (trie == root) {
+            return this;
+        }
+        return new KeyIndex(trie, size - 1);
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final int hash;
+        private final JsonNode value;
+
+        private Entry(String key, int hash, JsonNode value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A level of the trie : the bitmap tells which of the 32 slots are used, the used ones only being stored, each one
+     * holding an entry or the next level. Once the 32 bits of the hash are consumed, the entries sharing a same hash
+     * are stored in a plain array.
+     */
+    private static final class Trie {
+
+        private static final Trie EMPTY = new Trie(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private Trie(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private JsonNode get(String key, int hash, int shift) {
+            if (shift >= Integer.SIZE) {
+                for (Object slot : slots) {
+                    if (((Entry) slot).key.equals(key)) {
+                        return ((Entry) slot).value;
+                    }
+                }
+                return null;
+            }
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+            if (slot instanceof Entry) {
+                return ((Entry) slot).key.equals(key) ? ((Entry) slot).value : null;
+            }
+            return ((Trie) slot).get(key, hash, shift + BITS);
+        }
+
+        private Trie put(Entry entry, int shift, boolean[] added) {
+            if (shift >= Integer.SIZE) {
+                for (int i = 0; i < slots.length; i++) {
+                    if (((Entry) slots[i]).key.equals(entry.key)) {
+                        return new Trie(bitmap, with(slots, i, entry));
+                    }
+                }
+                added[0] = true;
+                return new Trie(bitmap, inserted(slots, slots.length, entry));
+            }
+            int bit = 1 << ((entry.hash >>> shift) & MASK);
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return new Trie(bitmap | bit, inserted(slots, position, entry));
+            }
+            Object slot = slots[position];
+            if (slot instanceof Entry) {
+                Entry existing = (Entry) slot;
+                if (existing.key.equals(entry.key)) {
+                    return new Trie(bitmap, with(slots, position, entry));
+                }
+                // both entries move down a level
+                Trie next = EMPTY.put(existing, shift + BITS, new boolean[1]).put(entry, shift + BITS, added);
+                return new Trie(bitmap, with(slots, position, next));
+            }
+            return new Trie(bitmap, with(slots, position, ((Trie) slot).put(entry, shift + BITS, added)));
+        }
+
+        /**
+         * @return the trie without the entry, this trie if there is no such entry, null if it ends up empty
+         */
+        private Trie remove(String key, int hash, JsonNode value, int shift) {
+            if (shift >= Integer.SIZE) {
+                for (int i = 0; i < slots.length; i++) {
+                    Entry entry = (Entry) slots[i];
+                    if (entry.key.equals(key)) {
+                        return entry.value != value ? this : slots.length == 1 ? null : new Trie(bitmap, removed(slots, i));
+                    }
+                }
+                return this;
+            }
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            Object slot = slots[position];
+            Object replacement;
+            if (slot instanceof Entry) {
+                Entry entry = (Entry) slot;
+                if (!entry.key.equals(key) || entry.value != value) {
+                    return this;
+                }
+                replacement = null;
+            } else {
+                Trie next = ((Trie) slot).remove(key, hash, value, shift + BITS);
+                if (next == slot) {
+                    return this;
+                }
+                replacement = next;
+            }
+            if (replacement != null) {
+                return new Trie(bitmap, with(slots, position, replacement));
+            }
+            return slots.length == 1 ? null : new Trie(bitmap & ~bit, removed(slots, position));
+        }
+
+        private static Object[] with(Object[] slots, int position, Object slot) {
+            Object[] copy = slots.clone();
+            copy[position] = slot;
+            return copy;
+        }
+
+        private static Object[] inserted(Object[] slots, int position, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, position);
+            copy[position] = slot;
+            System.arraycopy(slots, position, copy, position + 1, slots.length - position);
+            return copy;
+        }
+
+        private static Object[] removed(Object[] slots, int position) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, position);
+            System.arraycopy(slots, position + 1, copy, position, copy.length - position);
+            return copy;
+        }
+    }
+}
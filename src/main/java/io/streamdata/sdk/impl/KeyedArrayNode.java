@@ -0,0 +1,170 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BaseJsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A JSON array stored in a {@link ChunkedList}, so elements are inserted and removed in the middle of a large array
+ * without shifting the following ones, along with a {@link KeyIndex} of its elements by the value of a key field.</p>
+ * <p>It is a regular, read-only, <code>ArrayNode</code> whose children are a list view rejecting any modification.
+ * Elements without the key field, or whose key is not a value, are not indexed. Keys are expected to be unique : when
+ * several elements share a key, the index holds the last one inserted.</p>
+ * <p>The package-private mutators are only called by the patch engines on nodes that are not published yet, which then
+ * call {@link #seal()} once the elements cannot be modified anymore.</p>
+ */
+final class KeyedArrayNode extends ArrayNode {
+
+    // the children of ArrayNode are private
+    private final Elements storage;
+    private final String keyField;
+    private KeyIndex index;
+
+    // number of times each element was inserted minus the number of times it was removed, until sealed
+    private Map<JsonNode, Integer> changes;
+
+    private KeyedArrayNode(Elements storage, String keyField, KeyIndex index) {
+        super(JsonNodeFactory.instance, storage);
+        this.storage = storage;
+        this.keyField = keyField;
+        this.index = index;
+    }
+
+    /**
+     * @param array    the elements
+     * @param keyField the field of the elements to index them by
+     * @return the keyed array
+     */
+    static KeyedArrayNode of(JsonNode array, String keyField) {
+        KeyIndex index = KeyIndex.EMPTY;
+        List<JsonNode> elements = new ArrayList<>(array.size());
+        for (JsonNode element : array) {
+            // a view must not outlive the version of the table it reads
+            JsonNode value = element instanceof CompactRowNode ? CompactNodes.encode(element) : element;
+            elements.add(value);
+            String key = keyOf(value, keyField);
+            if (key != null) {
+                index = index.put(key, value);
+            }
+        }
+        return new KeyedArrayNode(new Elements(ChunkedList.of(elements)), keyField, index);
+    }
+
+    private static String keyOf(JsonNode element, String keyField) {
+        JsonNode key = element.get(keyField);
+        return key == null || key.isContainerNode() ? null : key.asText();
+    }
+
+    String keyField() {
+        return keyField;
+    }
+
+    /**
+     * @param key the text of the key field, the decimal form for a number
+     * @return the element, null if none
+     */
+    JsonNode getByKey(String key) {
+        return index.get(key);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        // walk the chunks instead of looking each element up from the root
+        generator.writeStartArray(storage.elements.size());
+        for (JsonNode element : storage.elements) {
+            ((BaseJsonNode) element).serialize(generator, provider);
+        }
+        generator.writeEndArray();
+    }
+
+    KeyedArrayNode copy() {
+        return new KeyedArrayNode(new Elements(storage.elements), keyField, index);
+    }
+
+    void setElement(int position, JsonNode value) {
+        changed(storage.elements.get(position), -1);
+        storage.elements = storage.elements.set(position, value);
+        changed(value, 1);
+    }
+
+    /**
+     * Inserts an element, position being the size to append it
+     */
+    void insertElement(int position, JsonNode value) {
+        storage.elements = storage.elements.insert(position, value);
+        changed(value, 1);
+    }
+
+    void removeElement(int position) {
+        changed(storage.elements.get(position), -1);
+        storage.elements = storage.elements.remove(position);
+    }
+
+    private void changed(JsonNode element, int count) {
+        if (changes == null) {
+            changes = new IdentityHashMap<>();
+        }
+        changes.merge(element, count, Integer::sum);
+    }
+
+    /**
+     * Updates the index with the elements inserted and removed since the copy. The elements inserted may have been
+     * modified in place after their insertion, so their keys are only read once they are complete.
+     */
+    void seal() {
+        if (changes == null) {
+            return;
+        }
+        for (Map.Entry<JsonNode, Integer> change : changes.entrySet()) {
+            String key = change.getValue() < 0 ? keyOf(change.getKey(), keyField) : null;
+            if (key != null) {
+                index = index.remove(key, change.getKey());
+            }
+        }
+        for (Map.Entry<JsonNode, Integer> change : changes.entrySet()) {
+            String key = change.getValue() > 0 ? keyOf(change.getKey(), keyField) : null;
+            if (key != null) {
+                index = index.put(key, change.getKey());
+            }
+        }
+        changes = null;
+    }
+
+    /**
+     * Read-only list over the chunks
+     */
+    private static final class Elements extends AbstractList<JsonNode> {
+
+        private ChunkedList elements;
+
+        private Elements(ChunkedList elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        @Override
+        public Iterator<JsonNode> iterator() {
+            return elements.iterator();
+        }
+    }
+}
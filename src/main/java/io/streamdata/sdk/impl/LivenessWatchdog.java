@@ -0,0 +1,192 @@
+package io.streamdata.sdk.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Detects the stalled streams of a {@link StreamdataClientImpl} : the ones that received nothing for longer than
+ * their delay. The streams are checked by a single thread on a hashed timer wheel, so that thousands of them cost
+ * little : receiving something only writes a timestamp, and a stream is only visited when its deadline expires, the
+ * deadline being pushed back when it received something since.</p>
+ * <p>A stall is detected at most one tick after the delay, and raised once per silence : the stream must receive
+ * something again before another stall is raised.</p>
+ * <p>Thread-safe.</p>
+ */
+final class LivenessWatchdog {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(LivenessWatchdog.class);
+
+    private final long tickNanos;
+    private final long startNanos;
+
+    // singly linked lists of the registrations of each tick, only used by the watchdog thread
+    private final Registration[] wheel;
+    private final int mask;
+
+    // ticks elapsed since the start, only used by the watchdog thread
+    private long tick;
+
+    // registrations waiting to be put on the wheel
+    private final Queue<Registration> added = new ConcurrentLinkedQueue<>();
+
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param tickMillis the resolution of the deadlines
+     * @param wheelSize  the ticks of a turn of the wheel, rounded up to a power of 2
+     */
+    LivenessWatchdog(long tickMillis, int wheelSize) {
+        checkArgument(tickMillis > 0, "tickMillis must be strictly positive");
+        checkArgument(wheelSize > 0 && wheelSize <= 1 << 20, "wheelSize must be between 1 and 2^20");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Registration[size];
+        this.mask = wheel.length - 1;
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, "streamdata-watchdog");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @param lastActivityNanos gives the System.nanoTime() of the last time the stream received something
+     * @param onStall           called on the watchdog thread with the silence in milliseconds, must return quickly
+     * @param stallAfterMillis  the silence after which the stream is stalled
+     * @return the registration, to be cancelled once the stream is closed
+     */
+    Registration watch(LongSupplier lastActivityNanos, LongConsumer onStall, long stallAfterMillis) {
+        checkNotNull(lastActivityNanos, "lastActivityNanos cannot be null");
+        checkNotNull(onStall, "onStall cannot be null");
+        checkArgument(stallAfterMillis > 0, "stallAfterMillis must be strictly positive");
+        Registration registration = new Registration(lastActivityNanos, onStall, TimeUnit.MILLISECONDS.toNanos(stallAfterMillis));
+        added.add(registration);
+        return registration;
+    }
+
+    /**
+     * Stops the watchdog thread, the streams are no longer checked
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!closed) {
+            long wait = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            tick++;
+            long now = System.nanoTime();
+            Registration registration;
+            while ((registration = added.poll()) != null) {
+                schedule(registration, registration.lastActivityNanos.getAsLong() + registration.stallAfterNanos);
+            }
+            expire(now);
+        }
+        added.clear();
+    }
+
+    /**
+     * Checks the registrations of the current tick whose deadline has come
+     */
+    private void expire(long now) {
+        int bucket = (int) (tick & mask);
+        Registration registration = wheel[bucket];
+        // detached as the registrations may be put back in the same bucket, for the next turn
+        wheel[bucket] = null;
+        while (registration != null) {
+            Registration next = registration.next;
+            registration.next = null;
+            // the cancelled ones are dropped
+            if (!registration.cancelled) {
+                if (registration.rounds > 0) {
+                    registration.rounds--;
+                    append(bucket, registration);
+                } else {
+                    check(registration, now);
+                }
+            }
+            registration = next;
+        }
+    }
+
+    private void check(Registration registration, long now) {
+        long lastActivity = registration.lastActivityNanos.getAsLong();
+        long silence = now - lastActivity;
+        if (silence < registration.stallAfterNanos) {
+            // received something meanwhile
+            schedule(registration, lastActivity + registration.stallAfterNanos);
+            return;
+        }
+        if (!registration.stalled || lastActivity != registration.stalledActivity) {
+            registration.stalled = true;
+            registration.stalledActivity = lastActivity;
+            try {
+                registration.onStall.accept(TimeUnit.NANOSECONDS.toMillis(silence));
+            } catch (RuntimeException e) {
+                LOGGER.error("Stall of a stream cannot be handled", e);
+            }
+        }
+        schedule(registration, now + registration.stallAfterNanos);
+    }
+
+    private void schedule(Registration registration, long deadlineNanos) {
+        // the tick at or after the deadline, and at least the next one
+        long ticks = Math.max(tick + 1, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        registration.rounds = (ticks - tick - 1) / wheel.length;
+        append((int) (ticks & mask), registration);
+    }
+
+    private void append(int bucket, Registration registration) {
+        registration.next = wheel[bucket];
+        wheel[bucket] = registration;
+    }
+
+    /**
+     * A watched stream
+     */
+    static final class Registration {
+
+        private final LongSupplier lastActivityNanos;
+        private final LongConsumer onStall;
+        private final long stallAfterNanos;
+        private volatile boolean cancelled;
+
+        // used by the watchdog thread only
+        private Registration next;
+        private long rounds;
+        private boolean stalled;
+        private long stalledActivity;
+
+        private Registration(LongSupplier lastActivityNanos, LongConsumer onStall, long stallAfterNanos) {
+            this.lastActivityNanos = lastActivityNanos;
+            this.onStall = onStall;
+            this.stallAfterNanos = stallAfterNanos;
+        }
+
+        /**
+         * Stops watching the stream
+         */
+        void cancel() {
+            this.cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Keeps a model bound with Jackson in sync with a JSON document, applying each operation of a patch to the object,
+ * property or collection element it targets only.</p>
+ * <p>The operations are replayed one by one on the document so every value is bound from the exact state the
+ * operation left, then set in the model. When the target cannot be updated in place (no setter, immutable collection,
+ * Java array, property unknown to the model, removed property...), the closest enclosing node that can be is bound
+ * again as a whole, down to the root.</p>
+ * <p>Not thread-safe : used by the thread notifying the callbacks.</p>
+ *
+ * @param <T> the type of the model
+ */
+final class ModelBinder<T> {
+
+    private enum Kind {
+        ADD, REMOVE, REPLACE
+    }
+
+    private final ObjectMapper mapper;
+    private final JavaType type;
+    private final JavaType objectType;
+    private final Map<JavaType, ObjectReader> readers = new HashMap<>();
+    private final Map<JavaType, Map<String, Property>> properties = new HashMap<>();
+
+    ModelBinder(ObjectMapper mapper, JavaType type) {
+        this.mapper = mapper;
+        this.type = type;
+        this.objectType = mapper.constructType(Object.class);
+    }
+
+    /**
+     * @param document a whole snapshot
+     * @return the model bound from the snapshot
+     * @throws IOException when the snapshot does not match the model
+     */
+    @SuppressWarnings("unchecked")
+    T bind(JsonNode document) throws IOException {
+        return (T) bind(document, type);
+    }
+
+    /**
+     * @param model      the model bound from the source document, updated in place
+     * @param source     the document before the operations
+     * @param operations the operations
+     * @return the model, a new instance only if the root itself has been replaced
+     * @throws IOException when a value does not match the model
+     */
+    @SuppressWarnings("unchecked")
+    T update(T model, JsonNode source, List<PatchOperation> operations) throws IOException {
+        Object root = model;
+        JsonNode document = source;
+        for (PatchOperation operation : operations) {
+            switch (operation.getOp()) {
+                case TEST:
+                    break;
+                case MOVE: {
+                    if (Arrays.equals(operation.getFromTokens(), operation.getPathTokens())) {
+                        break;
+                    }
+                    // the removal and the addition are bound from their own state
+                    JsonNode removed = JsonPatchEngine.apply(document, Collections.singletonList(
+                            new PatchOperation(PatchOperation.Op.REMOVE, operation.getFrom(), null, null)));
+                    root = change(root, removed, operation.getFromTokens(), Kind.REMOVE);
+                    document = JsonPatchEngine.apply(document, Collections.singletonList(operation));
+                    root = change(root, document, operation.getPathTokens(), Kind.ADD);
+                    break;
+                }
+                default:
+                    document = JsonPatchEngine.apply(document, Collections.singletonList(operation));
+                    root = change(root, document, operation.getPathTokens(), kindOf(operation.getOp()));
+            }
+        }
+        return (T) root;
+    }
+
+    private static Kind kindOf(PatchOperation.Op op) {
+        switch (op) {
+            case REMOVE:
+                return Kind.REMOVE;
+            case REPLACE:
+                return Kind.REPLACE;
+            default:
+                // add and copy
+                return Kind.ADD;
+        }
+    }
+
+    /**
+     * @return the root, or a new root bound from the document when it could not be updated in place
+     */
+    private Object change(Object root, JsonNode document, String[] path, Kind kind) throws IOException {
+        if (path.length == 0 || root == null || !change(root, type, document, path, 0, kind)) {
+            return bind(document, type);
+        }
+        return root;
+    }
+
+    /**
+     * @param container the node of the model at the given depth of the path
+     * @param json      the same node in the document, after the operation
+     * @return false if the container cannot be updated in place, so it must be bound again by the caller
+     */
+    private boolean change(Object container, JavaType declared, JsonNode json, String[] path, int depth, Kind kind) throws IOException {
+        String token = path[depth];
+        if (depth == path.length - 1) {
+            return setChild(container, declared, json, token, kind);
+        }
+        JsonNode childJson = childJson(json, token);
+        if (childJson == null) {
+            return false;
+        }
+        Object child = null;
+        JavaType childType = null;
+        if (container instanceof List) {
+            List<?> list = (List<?>) container;
+            int index = Integer.parseInt(token);
+            if (index < list.size()) {
+                child = list.get(index);
+                childType = contentType(declared);
+            }
+        } else if (container instanceof Map) {
+            if (!hasTextKeys(declared)) {
+                return false;
+            }
+            child = ((Map<?, ?>) container).get(token);
+            childType = contentType(declared);
+        } else if (!(container instanceof JsonNode)) {
+            Property property = propertiesOf(container, declared).get(token);
+            if (property != null && property.getter != null) {
+                child = property.getter.getValue(container);
+                childType = property.type;
+            }
+        }
+        if (child != null && change(child, childType, childJson, path, depth + 1, kind)) {
+            return true;
+        }
+        // bind the child as a whole
+        return setChild(container, declared, json, token, Kind.REPLACE);
+    }
+
+    /**
+     * @param json the container in the document, after the operation
+     * @return false if the child cannot be set in place
+     */
+    @SuppressWarnings("unchecked")
+    private boolean setChild(Object container, JavaType declared, JsonNode json, String token, Kind kind) throws IOException {
+        try {
+            if (container instanceof List) {
+                List<Object> list = (List<Object>) container;
+                int index = "-".equals(token) ? list.size() : Integer.parseInt(token);
+                switch (kind) {
+                    case ADD:
+                        list.add(index, bind(json.get(index), contentType(declared)));
+                        break;
+                    case REPLACE:
+                        list.set(index, bind(json.get(index), contentType(declared)));
+                        break;
+                    default:
+                        list.remove(index);
+                }
+                return true;
+            }
+            if (container instanceof Map) {
+                if (!hasTextKeys(declared)) {
+                    return false;
+                }
+                Map<String, Object> map = (Map<String, Object>) container;
+                if (kind == Kind.REMOVE) {
+                    map.remove(token);
+                } else {
+                    map.put(token, bind(json.get(token), contentType(declared)));
+                }
+                return true;
+            }
+            if (container instanceof JsonNode || kind == Kind.REMOVE) {
+                // a property missing from the document may not be null in the model, only binding its object tells
+                return false;
+            }
+            Property property = propertiesOf(container, declared).get(token);
+            if (property == null || property.setter == null) {
+                return false;
+            }
+            Object value = bind(json.get(token), property.type);
+            if (value == null && property.type.isPrimitive()) {
+                return false;
+            }
+            property.setter.setValue(container, value);
+            return true;
+        } catch (UnsupportedOperationException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // immutable collection, or a model which does not match the document
+            return false;
+        }
+    }
+
+    private static JsonNode childJson(JsonNode json, String token) {
+        if (json.isArray()) {
+            try {
+                return json.get(Integer.parseInt(token));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return json.get(token);
+    }
+
+    private Object bind(JsonNode json, JavaType valueType) throws IOException {
+        if (json == null || json.isNull()) {
+            return null;
+        }
+        ObjectReader reader = readers.get(valueType);
+        if (reader == null) {
+            reader = mapper.readerFor(valueType);
+            readers.put(valueType, reader);
+        }
+        return reader.readValue(json);
+    }
+
+    private JavaType contentType(JavaType declared) {
+        return declared != null && declared.isContainerType() ? declared.getContentType() : objectType;
+    }
+
+    private static boolean hasTextKeys(JavaType declared) {
+        if (declared == null || !declared.isMapLikeType()) {
+            return true;
+        }
+        Class<?> keys = declared.getKeyType().getRawClass();
+        return keys == String.class || keys == Object.class || keys == CharSequence.class;
+    }
+
+    private Map<String, Property> propertiesOf(Object bean, JavaType declared) {
+        JavaType beanType = declared != null && declared.getRawClass() == bean.getClass() ? declared : mapper.constructType(bean.getClass());
+        Map<String, Property> beanProperties = properties.get(beanType);
+        if (beanProperties == null) {
+            beanProperties = new HashMap<>();
+            BeanDescription description = mapper.getDeserializationConfig().introspect(beanType);
+            for (BeanPropertyDefinition definition : description.findProperties()) {
+                AnnotatedMember getter = definition.getGetter() != null ? definition.getGetter() : definition.getField();
+                AnnotatedMember setter = definition.getSetter() != null ? definition.getSetter() : definition.getField();
+                beanProperties.put(definition.getName(), new Property(definition.getPrimaryType(), accessible(getter), accessible(setter)));
+            }
+            properties.put(beanType, beanProperties);
+        }
+        return beanProperties;
+    }
+
+    /**
+     * @return the member, null if it is null or cannot be made accessible
+     */
+    private static AnnotatedMember accessible(AnnotatedMember member) {
+        if (member == null) {
+            return null;
+        }
+        try {
+            member.fixAccess(true);
+            return member;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Property {
+
+        private final JavaType type;
+        private final AnnotatedMember getter;
+        private final AnnotatedMember setter;
+
+        private Property(JavaType type, AnnotatedMember getter, AnnotatedMember setter) {
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
@@ -0,0 +1,613 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.TransportConfig;
+import io.streamdata.sdk.transport.SseConnection;
+import io.streamdata.sdk.transport.SseEventHandler;
+import io.streamdata.sdk.transport.SseRequest;
+import io.streamdata.sdk.transport.SseTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLParameters;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * <p>Non-blocking transport : one selector thread serves every connection. The HTTP response and the SSE framing are
+ * parsed incrementally from the buffers read, so a stream costs a socket and a few buffers, not a thread.</p>
+ * <p>Handlers are called from the selector thread, they must not block.</p>
+ */
+public class NioSseTransport implements SseTransport {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioSseTransport.class);
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    // how often timeouts are checked
+    private static final long TICK_MILLIS = 1000;
+
+    // size of the buffer a compressed body is decoded to, per connection
+    private static final int DECODED_BUFFER_SIZE = 16 * 1024;
+
+    private final TransportConfig config;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final InflaterPool inflaters = new InflaterPool(64);
+
+    // resolves the host names, a DNS lookup blocking the selector thread would stall every stream
+    private final ExecutorService resolver;
+    private volatile boolean closed;
+
+    public NioSseTransport(TransportConfig config) {
+        this.config = checkNotNull(config, "config cannot be null");
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.resolver = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "streamdata-nio-resolver-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selectorThread = new Thread(this::loop, "streamdata-nio-selector");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    @Override
+    public SseConnection connect(SseRequest request, SseEventHandler handler) {
+        checkState(!closed, "The transport has been closed");
+        NioConnection connection = new NioConnection(request, handler);
+        execute(connection::start);
+        return connection;
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        resolver.shutdownNow();
+        selector.wakeup();
+        try {
+            selectorThread.join(config.getCloseTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a task on the selector thread, which owns the channels and their keys
+     */
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void loop() {
+        long lastTick = System.nanoTime();
+        while (!closed) {
+            try {
+                selector.select(TICK_MILLIS);
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    ((NioConnection) key.attachment()).onSelected(key);
+                }
+                selector.selectedKeys().clear();
+
+                long now = System.nanoTime();
+                if (now - lastTick >= TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS)) {
+                    lastTick = now;
+                    for (SelectionKey key : selector.keys()) {
+                        ((NioConnection) key.attachment()).checkTimeouts(now);
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.error("Unexpected error in the selector loop", e);
+            }
+        }
+
+        // closing the transport closes its connections
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).closeChannel();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.debug("Cannot close selector", e);
+        }
+        inflaters.close();
+    }
+
+    private final class NioConnection implements SseConnection, HttpResponseDecoder.Listener {
+
+        private final SseRequest request;
+        private final SseEventHandler handler;
+        private final HttpResponseDecoder decoder = new HttpResponseDecoder(this);
+        private final SseFrameParser parser;
+
+        // null while the body is not compressed
+        private ContentDecoder contentDecoder;
+        private ByteBuffer decoded;
+
+        private SocketChannel channel;
+        private SelectionKey key;
+
+        // TLS, null for plain HTTP
+        private SSLEngine engine;
+        private boolean handshaking;
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+
+        // plain request bytes not sent yet
+        private ByteBuffer requestOut;
+        private ByteBuffer appIn;
+
+        private boolean streaming;
+        private boolean paused;
+        private long startNanos;
+        private long lastReadNanos;
+        private volatile boolean closed;
+
+        private NioConnection(SseRequest request, SseEventHandler handler) {
+            this.request = request;
+            this.handler = handler;
+            this.parser = new SseFrameParser(handler);
+        }
+
+        // all the following methods run on the selector thread, except pause/resume/close which post a task
+
+        private void start() {
+            if (closed) {
+                return;
+            }
+            try {
+                URI uri = request.getUri();
+                boolean tls = "https".equalsIgnoreCase(uri.getScheme());
+                int port = uri.getPort() > 0 ? uri.getPort() : (tls ? 443 : 80);
+
+                this.requestOut = ByteBuffer.wrap(requestBytes(uri));
+                if (tls) {
+                    engine = SSLContext.getDefault().createSSLEngine(uri.getHost(), port);
+                    engine.setUseClientMode(true);
+                    SSLParameters parameters = engine.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    engine.setSSLParameters(parameters);
+                    netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+                    netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+                    appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+                } else {
+                    appIn = ByteBuffer.allocate(16 * 1024);
+                }
+
+                startNanos = System.nanoTime();
+                String host = uri.getHost();
+                resolver.execute(() -> {
+                    try {
+                        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(host), port);
+                        execute(() -> connect(address));
+                    } catch (IOException | RuntimeException e) {
+                        execute(() -> fail(e));
+                    }
+                });
+            } catch (NoSuchAlgorithmException | RuntimeException e) {
+                // including the rejection of the resolution, the transport being closed
+                fail(e);
+            }
+        }
+
+        private void connect(InetSocketAddress address) {
+            if (closed) {
+                return;
+            }
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                if (channel.connect(address)) {
+                    // connected right away, as often on the loopback : OP_CONNECT would never be selected
+                    key = channel.register(selector, 0, this);
+                    onConnected();
+                    progress();
+                } else {
+                    key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void onConnected() throws IOException {
+            if (engine != null) {
+                engine.beginHandshake();
+                handshaking = true;
+            }
+        }
+
+        private byte[] requestBytes(URI uri) {
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            StringBuilder http = new StringBuilder()
+                    .append("GET ").append(path);
+            if (uri.getRawQuery() != null) {
+                http.append('?').append(uri.getRawQuery());
+            }
+            http.append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(uri.getHost());
+            if (uri.getPort() > 0) {
+                http.append(':').append(uri.getPort());
+            }
+            http.append("\r\n")
+                    .append("Cache-Control: no-cache\r\n");
+            if (config.isCompression() && !hasHeader("Accept-Encoding")) {
+                http.append("Accept-Encoding: ").append(ContentDecoder.ACCEPT_ENCODING).append("\r\n");
+            }
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                http.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            http.append("\r\n");
+            return http.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private boolean hasHeader(String name) {
+            for (String header : request.getHeaders().keySet()) {
+                if (header.equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void onSelected(SelectionKey selected) {
+            if (closed || !selected.isValid()) {
+                return;
+            }
+            try {
+                if (selected.isConnectable()) {
+                    if (!channel.finishConnect()) {
+                        return;
+                    }
+                    onConnected();
+                    updateInterest();
+                }
+                progress();
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Moves the connection forward as far as possible without blocking
+         */
+        private void progress() throws IOException {
+            if (engine != null && handshaking) {
+                if (!handshake()) {
+                    updateInterest();
+                    return;
+                }
+                handshaking = false;
+            }
+            if (requestOut.hasRemaining()) {
+                if (engine != null) {
+                    while (requestOut.hasRemaining()) {
+                        wrap(requestOut);
+                    }
+                }
+            }
+            flush();
+            if (!paused) {
+                read();
+            }
+            updateInterest();
+        }
+
+        /**
+         * @return true once the handshake is over, false when waiting for the network
+         */
+        private boolean handshake() throws IOException {
+            for (; ; ) {
+                SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                switch (status) {
+                    case FINISHED:
+                    case NOT_HANDSHAKING:
+                        return true;
+
+                    case NEED_TASK: {
+                        Runnable task;
+                        while ((task = engine.getDelegatedTask()) != null) {
+                            task.run();
+                        }
+                        break;
+                    }
+
+                    case NEED_WRAP:
+                        wrap(EMPTY);
+                        if (!flush()) {
+                            return false;
+                        }
+                        break;
+
+                    default: {
+                        // NEED_UNWRAP, and NEED_UNWRAP_AGAIN on recent JDKs
+                        netIn.flip();
+                        SSLEngineResult result = engine.unwrap(netIn, appIn);
+                        netIn.compact();
+                        if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                            netIn = ensureRoom(netIn, engine.getSession().getPacketBufferSize());
+                            if (readNetwork() == 0) {
+                                return false;
+                            }
+                        } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                            appIn = ensureRoom(appIn, engine.getSession().getApplicationBufferSize());
+                        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new EOFException("TLS connection closed during handshake");
+                        }
+                    }
+                }
+            }
+        }
+
+        private void wrap(ByteBuffer source) throws IOException {
+            SSLEngineResult result = engine.wrap(source, netOut);
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                netOut = ensureRoom(netOut, engine.getSession().getPacketBufferSize());
+                engine.wrap(source, netOut);
+            } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new EOFException("TLS connection closed");
+            }
+        }
+
+        /**
+         * @return true when everything has been written
+         */
+        private boolean flush() throws IOException {
+            ByteBuffer out = engine != null ? netOut : requestOut;
+            if (engine != null) {
+                netOut.flip();
+                channel.write(netOut);
+                boolean done = !netOut.hasRemaining();
+                netOut.compact();
+                return done;
+            }
+            channel.write(out);
+            return !out.hasRemaining();
+        }
+
+        private int readNetwork() throws IOException {
+            int read = channel.read(netIn);
+            if (read < 0) {
+                decoder.endOfStream();
+            }
+            if (read > 0) {
+                lastReadNanos = System.nanoTime();
+            }
+            return read;
+        }
+
+        private void read() throws IOException {
+            if (engine == null) {
+                int read;
+                while (!paused && (read = channel.read(appIn)) != 0) {
+                    if (read < 0) {
+                        decoder.endOfStream();
+                    }
+                    lastReadNanos = System.nanoTime();
+                    deliver();
+                }
+                return;
+            }
+
+            for (; ; ) {
+                int read = readNetwork();
+                netIn.flip();
+                SSLEngineResult result;
+                do {
+                    result = engine.unwrap(netIn, appIn);
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        appIn = ensureRoom(appIn, engine.getSession().getApplicationBufferSize());
+                    } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new EOFException("TLS connection closed by the server");
+                    }
+                    deliver();
+                } while (netIn.hasRemaining() && result.getStatus() != SSLEngineResult.Status.BUFFER_UNDERFLOW && !paused);
+                netIn.compact();
+
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    netIn = ensureRoom(netIn, engine.getSession().getPacketBufferSize());
+                }
+                if (result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+                        && result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.FINISHED) {
+                    // post-handshake messages
+                    handshake();
+                    flush();
+                }
+                if (read == 0 || paused) {
+                    return;
+                }
+            }
+        }
+
+        private void deliver() throws IOException {
+            appIn.flip();
+            if (appIn.hasRemaining()) {
+                decoder.feed(appIn);
+            }
+            appIn.clear();
+            if (decoder.isDone()) {
+                // an event stream is not expected to end, even on a kept-alive connection
+                decoder.endOfStream();
+            }
+        }
+
+        @Override
+        public void onHeaders(int status, Map<String, String> headers) throws IOException {
+            if (status != 200) {
+                throw new IOException("Event stream cannot be opened : HTTP status " + status);
+            }
+            contentDecoder = ContentDecoder.of(headers.get("content-encoding"), inflaters);
+            if (contentDecoder != null) {
+                decoded = ByteBuffer.allocate(DECODED_BUFFER_SIZE);
+            }
+            streaming = true;
+            handler.onOpen();
+        }
+
+        @Override
+        public void onBody(ByteBuffer body) throws IOException {
+            int compressedBytes = body.remaining();
+            if (contentDecoder == null) {
+                handler.onBytesRead(compressedBytes, compressedBytes);
+                parser.feed(body);
+                return;
+            }
+            // the buffers read are heap buffers, inflated without copy
+            contentDecoder.setInput(body.array(), body.arrayOffset() + body.position(), compressedBytes);
+            body.position(body.limit());
+            int rawBytes = 0;
+            int length;
+            while ((length = contentDecoder.decode(decoded.array(), 0, decoded.capacity())) > 0) {
+                rawBytes += length;
+                decoded.clear();
+                decoded.limit(length);
+                parser.feed(decoded);
+            }
+            handler.onBytesRead(compressedBytes, rawBytes);
+        }
+
+        private void updateInterest() {
+            if (key == null || !key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            if (!channel.isConnected()) {
+                ops = SelectionKey.OP_CONNECT;
+            } else {
+                boolean pendingOutput = engine != null ? netOut.position() > 0 : requestOut.hasRemaining();
+                if (pendingOutput) {
+                    ops |= SelectionKey.OP_WRITE;
+                }
+                if (!paused) {
+                    ops |= SelectionKey.OP_READ;
+                }
+            }
+            key.interestOps(ops);
+        }
+
+        private void checkTimeouts(long now) {
+            if (closed) {
+                return;
+            }
+            if (!streaming && config.getConnectTimeoutMillis() > 0
+                    && now - startNanos > TimeUnit.MILLISECONDS.toNanos(config.getConnectTimeoutMillis())) {
+                fail(new SocketTimeoutException("Event stream not opened after " + config.getConnectTimeoutMillis() + " ms"));
+            } else if (streaming && !paused && config.getReadTimeoutMillis() > 0
+                    && now - lastReadNanos > TimeUnit.MILLISECONDS.toNanos(config.getReadTimeoutMillis())) {
+                fail(new SocketTimeoutException("Nothing read for " + config.getReadTimeoutMillis() + " ms"));
+            }
+        }
+
+        private ByteBuffer ensureRoom(ByteBuffer buffer, int room) {
+            if (buffer.remaining() >= room) {
+                return buffer;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(buffer.position() + room);
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+
+        private void fail(Throwable throwable) {
+            if (closed) {
+                return;
+            }
+            closeChannel();
+            handler.onFailure(throwable);
+        }
+
+        private void closeChannel() {
+            closed = true;
+            if (contentDecoder != null) {
+                contentDecoder.close();
+                contentDecoder = null;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Cannot close channel", e);
+                }
+            }
+        }
+
+        @Override
+        public void pause() {
+            execute(() -> {
+                paused = true;
+                updateInterest();
+            });
+        }
+
+        @Override
+        public void resume() {
+            execute(() -> {
+                if (!paused || closed) {
+                    return;
+                }
+                paused = false;
+                lastReadNanos = System.nanoTime();
+                try {
+                    // bytes may be waiting in the buffers since the pause
+                    if (engine != null && netIn.position() > 0) {
+                        read();
+                    }
+                    updateInterest();
+                } catch (Exception e) {
+                    fail(e);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            execute(this::closeChannel);
+        }
+    }
+}
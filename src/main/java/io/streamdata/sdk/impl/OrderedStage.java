@@ -0,0 +1,151 @@
+package io.streamdata.sdk.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A stage of the event pipeline of one stream : tasks are queued and run one at a time, in order, on a shared executor.
+ * No thread is dedicated to a stage, a drain task is submitted to the executor whenever tasks are pending.</p>
+ * <p>Stages are chained : a stage stops draining while its downstream stage is full, and is resumed by the downstream stage
+ * once it has room again. So no executor thread ever blocks on a full queue, only the producer of the first stage does.</p>
+ */
+final class OrderedStage {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedStage.class);
+
+    // tasks run by a drain before giving the thread back to the executor
+    private static final int BATCH_SIZE = 64;
+
+    private final String name;
+    private final Executor executor;
+    private final int capacity;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private OrderedStage upstream;
+    private OrderedStage downstream;
+
+    // called once room has been made, by a producer that stopped feeding a full stage
+    private volatile Runnable roomListener;
+
+    /**
+     * @param name     name of the stage, for logging
+     * @param executor the executor running the tasks
+     * @param capacity number of pending tasks above which the stage is full
+     * @param blocking true if {@link #put(Runnable)} blocks when the stage is full, otherwise the capacity only pauses the upstream stage
+     */
+    OrderedStage(String name, Executor executor, int capacity, boolean blocking) {
+        this.name = name;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.queue = blocking ? new LinkedBlockingQueue<>(capacity) : new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Chain a stage after this one
+     *
+     * @param next the downstream stage
+     * @return the downstream stage
+     */
+    OrderedStage then(OrderedStage next) {
+        this.downstream = next;
+        next.upstream = this;
+        return next;
+    }
+
+    /**
+     * Queue a task, blocking while a blocking stage is full
+     *
+     * @param task the task
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    void put(Runnable task) throws InterruptedException {
+        queue.put(task);
+        schedule();
+    }
+
+    /**
+     * Queue a task on a non-blocking stage
+     *
+     * @param task the task
+     */
+    void offer(Runnable task) {
+        queue.offer(task);
+        schedule();
+    }
+
+    /**
+     * @return true if the stage holds as many tasks as its capacity, or more
+     */
+    boolean isFull() {
+        return !hasRoom();
+    }
+
+    /**
+     * Set the action run after a drain whenever the stage has room, so a producer that does not block can resume
+     *
+     * @param listener the action, must not block
+     */
+    void onRoom(Runnable listener) {
+        this.roomListener = listener;
+    }
+
+    /**
+     * Drop the pending tasks
+     */
+    void clear() {
+        queue.clear();
+    }
+
+    private boolean hasRoom() {
+        return queue.size() < capacity;
+    }
+
+    private boolean canDrain() {
+        return !queue.isEmpty() && (downstream == null || downstream.hasRoom());
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int ran = 0;
+        try {
+            while (ran < BATCH_SIZE && (downstream == null || downstream.hasRoom())) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.error("Task of stage {} failed", name, t);
+                }
+                ran++;
+            }
+        } finally {
+            scheduled.set(false);
+        }
+
+        // tasks may have been queued or room made downstream after the loop ended
+        if (canDrain()) {
+            schedule();
+        }
+        if (upstream != null && upstream.canDrain()) {
+            upstream.schedule();
+        }
+        Runnable listener = roomListener;
+        if (listener != null && hasRoom()) {
+            listener.run();
+        }
+    }
+}
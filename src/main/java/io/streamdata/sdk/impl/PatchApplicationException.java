@@ -0,0 +1,11 @@
+package io.streamdata.sdk.impl;
+
+/**
+ * Raised when a JSON Patch cannot be read or applied to the current snapshot.
+ */
+public class PatchApplicationException extends RuntimeException {
+
+    public PatchApplicationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,134 @@
+package io.streamdata.sdk.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * <p>Patch operations not applied yet, collapsed as they are appended so that applying the log does the same as applying
+ * every operation in turn, with less work :</p>
+ * <ul>
+ * <li>a <code>replace</code> overrides the value of a previous <code>add</code> or <code>replace</code> of the same path,</li>
+ * <li>a <code>replace</code> or a <code>remove</code> drops the previous operations on the descendants of its path,</li>
+ * <li>a <code>remove</code> drops a previous <code>replace</code> of the same path.</li>
+ * </ul>
+ * <p>Only the operations since the last <code>add</code>, <code>remove</code>, <code>move</code>, <code>copy</code> or
+ * <code>test</code> are candidates, as those may shift array indexes or depend on values the log would have dropped.
+ * Streams updating the same fields over and over, such as prices, then collapse to one operation per field.</p>
+ * <p>Not thread-safe.</p>
+ */
+final class PatchLog {
+
+    // appended operations, null once dropped
+    private final List<PatchOperation> operations = new ArrayList<>();
+
+    // path of the add and replace operations that can still be collapsed, to their position in the log
+    private final NavigableMap<String, Integer> collapsible = new TreeMap<>();
+
+    private int live;
+
+    /**
+     * @param patch the operations of a patch, in order
+     */
+    void append(List<PatchOperation> patch) {
+        for (PatchOperation operation : patch) {
+            append(operation);
+        }
+    }
+
+    private void append(PatchOperation operation) {
+        String path = operation.getPath();
+        switch (operation.getOp()) {
+            case REPLACE:
+                dropDescendants(path);
+                Integer previous = collapsible.get(path);
+                if (previous != null) {
+                    // the new value overrides the previous one, the operations in between being on other paths
+                    PatchOperation collapsed = operations.get(previous);
+                    operations.set(previous, new PatchOperation(collapsed.getOp(), path, null, operation.getValue()));
+                } else {
+                    collapsible.put(path, add(operation));
+                }
+                break;
+            case REMOVE:
+                dropDescendants(path);
+                Integer replaced = collapsible.get(path);
+                if (replaced != null && operations.get(replaced).getOp() == PatchOperation.Op.REPLACE) {
+                    drop(replaced);
+                }
+                add(operation);
+                collapsible.clear();
+                break;
+            case ADD:
+                int position = add(operation);
+                collapsible.clear();
+                if (!path.endsWith("/-")) {
+                    collapsible.put(path, position);
+                }
+                break;
+            default:
+                add(operation);
+                collapsible.clear();
+        }
+    }
+
+    /**
+     * @return the number of operations left to apply
+     */
+    int size() {
+        return live;
+    }
+
+    boolean isEmpty() {
+        return live == 0;
+    }
+
+    /**
+     * Empties the log
+     *
+     * @return the operations left to apply, in order
+     */
+    List<PatchOperation> drain() {
+        if (live == 0) {
+            clear();
+            return Collections.emptyList();
+        }
+        List<PatchOperation> drained = new ArrayList<>(live);
+        for (PatchOperation operation : operations) {
+            if (operation != null) {
+                drained.add(operation);
+            }
+        }
+        clear();
+        return drained;
+    }
+
+    void clear() {
+        operations.clear();
+        collapsible.clear();
+        live = 0;
+    }
+
+    private int add(PatchOperation operation) {
+        operations.add(operation);
+        live++;
+        return operations.size() - 1;
+    }
+
+    private void drop(int position) {
+        operations.set(position, null);
+        live--;
+    }
+
+    private void dropDescendants(String path) {
+        // '0' follows '/', so the range holds every path starting with path + "/"
+        Map<String, Integer> descendants = collapsible.subMap(path + "/", true, path + "0", false);
+        for (Integer position : descendants.values()) {
+            drop(position);
+        }
+        descendants.clear();
+    }
+}
@@ -0,0 +1,266 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One operation of a RFC 6902 JSON Patch, with its JSON Pointers already split into reference tokens.
+ */
+public final class PatchOperation {
+
+    public enum Op {
+        ADD, REMOVE, REPLACE, MOVE, COPY, TEST
+    }
+
+    private static final String[] ROOT = new String[0];
+
+    private final Op op;
+    private final String path;
+    private final String[] pathTokens;
+    private final String from;
+    private final String[] fromTokens;
+    private final JsonNode value;
+
+    // the node moved or copied as the operation left it, set by the patch engines
+    private JsonNode movedValue;
+
+    public PatchOperation(Op op, String path, String from, JsonNode value) {
+        this.op = op;
+        this.path = path;
+        this.pathTokens = parsePointer(path);
+        this.from = from;
+        this.fromTokens = from == null ? null : parsePointer(from);
+        this.value = value;
+    }
+
+    /**
+     * Read the operations of a patch document
+     *
+     * @param patch the patch, a json array of operations
+     * @return the operations in the patch order
+     * @throws PatchApplicationException when the patch is not a valid JSON Patch
+     */
+    public static List<PatchOperation> parse(JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new PatchApplicationException("A JSON Patch must be an array of operations");
+        }
+        if (patch.size() == 0) {
+            return Collections.emptyList();
+        }
+        List<PatchOperation> operations = new ArrayList<>(patch.size());
+        for (JsonNode operation : patch) {
+            operations.add(parseOperation(operation));
+        }
+        return operations;
+    }
+
+    /**
+     * Read the operations of a patch document straight from a parser, without building the tree of the whole patch.
+     * Only the values of the operations are read as trees.
+     *
+     * @param parser a parser positioned before the patch
+     * @return the operations in the patch order
+     * @throws IOException               when the payload is not valid json
+     * @throws PatchApplicationException when the payload is not a valid JSON Patch
+     */
+    public static List<PatchOperation> read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new PatchApplicationException("A JSON Patch must be an array of operations");
+        }
+        List<PatchOperation> operations = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            String op = null;
+            String path = null;
+            String from = null;
+            JsonNode value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (field) {
+                    case "op":
+                        op = parser.getText();
+                        break;
+                    case "path":
+                        path = parser.getText();
+                        break;
+                    case "from":
+                        from = parser.getText();
+                        break;
+                    case "value":
+                        value = valueToken == JsonToken.VALUE_NULL ? NullNode.getInstance() : parser.readValueAsTree();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            operations.add(of(op, path, from, value, "operation #" + operations.size()));
+        }
+        if (token != JsonToken.END_ARRAY) {
+            throw new PatchApplicationException("A JSON Patch must be an array of operations");
+        }
+        return operations;
+    }
+
+    /**
+     * Write operations as a patch document
+     *
+     * @param operations the operations
+     * @return the patch, a json array of operations
+     */
+    public static ArrayNode toJson(List<PatchOperation> operations) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode(operations.size());
+        for (PatchOperation operation : operations) {
+            ObjectNode node = patch.addObject()
+                    .put("op", operation.op.name().toLowerCase())
+                    .put("path", operation.path);
+            if (operation.from != null) {
+                node.put("from", operation.from);
+            }
+            if (operation.value != null) {
+                node.set("value", operation.value);
+            }
+        }
+        return patch;
+    }
+
+    private static PatchOperation parseOperation(JsonNode operation) {
+        JsonNode op = operation.get("op");
+        JsonNode path = operation.get("path");
+        JsonNode from = operation.get("from");
+        return of(op == null ? null : op.asText(),
+                path == null ? null : path.asText(),
+                from == null ? null : from.asText(),
+                operation.get("value"),
+                operation);
+    }
+
+    private static PatchOperation of(String op, String path, String from, JsonNode value, Object source) {
+        if (op == null || path == null) {
+            throw new PatchApplicationException("Patch operation without 'op' or 'path' : " + source);
+        }
+        Op type = opOf(op);
+        if ((type == Op.MOVE || type == Op.COPY) && from == null) {
+            throw new PatchApplicationException("Patch operation without 'from' : " + source);
+        }
+        if ((type == Op.ADD || type == Op.REPLACE || type == Op.TEST) && value == null) {
+            throw new PatchApplicationException("Patch operation without 'value' : " + source);
+        }
+        return new PatchOperation(type, path, from, value);
+    }
+
+    static Op opOf(String name) {
+        switch (name) {
+            case "add":
+                return Op.ADD;
+            case "remove":
+                return Op.REMOVE;
+            case "replace":
+                return Op.REPLACE;
+            case "move":
+                return Op.MOVE;
+            case "copy":
+                return Op.COPY;
+            case "test":
+                return Op.TEST;
+            default:
+                throw new PatchApplicationException("Unknown patch operation '" + name + "'");
+        }
+    }
+
+    /**
+     * Split a JSON Pointer (RFC 6901) into its unescaped reference tokens
+     *
+     * @param pointer the pointer, "" being the whole document
+     * @return the tokens
+     */
+    static String[] parsePointer(String pointer) {
+        if (pointer.isEmpty()) {
+            return ROOT;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new PatchApplicationException("Invalid JSON Pointer '" + pointer + "'");
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = 1;
+        for (int i = 1; i <= pointer.length(); i++) {
+            if (i == pointer.length() || pointer.charAt(i) == '/') {
+                tokens.add(unescape(pointer.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    private static String unescape(String token) {
+        if (token.indexOf('~') < 0) {
+            return token;
+        }
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * @return the path as sent in the patch
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the unescaped reference tokens of the path
+     */
+    public String[] getPathTokens() {
+        return pathTokens;
+    }
+
+    /**
+     * @return the from pointer as sent in the patch, null for operations others than move and copy
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the unescaped reference tokens of the from pointer, null for operations others than move and copy
+     */
+    public String[] getFromTokens() {
+        return fromTokens;
+    }
+
+    /**
+     * @return the value, null for remove, move and copy operations
+     */
+    public JsonNode getValue() {
+        return value;
+    }
+
+    /**
+     * @return for a move or a copy, the node put at the path as the operation left it, null until the operation is applied
+     */
+    public JsonNode getMovedValue() {
+        return movedValue;
+    }
+
+    void setMovedValue(JsonNode movedValue) {
+        this.movedValue = movedValue;
+    }
+
+    @Override
+    public String toString() {
+        return op.name().toLowerCase() + " " + path;
+    }
+}
@@ -0,0 +1,474 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.streamdata.sdk.Projection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Applies a {@link Projection} to the snapshots while they are parsed, and to the patch operations before they are
+ * applied.</p>
+ * <p>The rules are compiled into two prefix tries, one for the includes and one for the excludes, walked together
+ * token by token : the {@link State} of a node is the set of trie nodes reached by its path, so deciding whether a node
+ * is kept costs a few map lookups whatever the number of rules. A subtree that is fully included and that no exclude
+ * rule can reach is read or kept as is.</p>
+ * <p>Thread-safe once built.</p>
+ */
+final class ProjectionFilter {
+
+    private static final String WILDCARD = "*";
+    private static final String ANY_DEPTH = "**";
+    private static final Node[] NONE = new Node[0];
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private final State root;
+    private final ObjectReader treeReader;
+
+    /**
+     * @param projection the projection
+     * @param treeReader reads the subtrees kept as is
+     */
+    ProjectionFilter(Projection projection, ObjectReader treeReader) {
+        this.treeReader = treeReader;
+        Node includes = compile(projection.getIncludes());
+        Node excludes = compile(projection.getExcludes());
+        Node[] excluded = closure(new Node[]{excludes});
+        Node[] included = closure(new Node[]{includes});
+        boolean whole = projection.getIncludes().isEmpty();
+        for (Node node : included) {
+            // "" or /**
+            whole |= node.terminal;
+        }
+        this.root = whole ? state(true, NONE, excluded) : state(false, included, excluded);
+    }
+
+    private static Node compile(List<String> patterns) {
+        Node root = new Node(false);
+        for (String pattern : patterns) {
+            Node node = root;
+            for (String token : PatchOperation.parsePointer(pattern)) {
+                node = node.child(token);
+            }
+            node.terminal = true;
+        }
+        return root;
+    }
+
+    /**
+     * Reads a snapshot, the nodes outside the projection being skipped by the parser
+     *
+     * @param parser a parser on the first token of the document
+     * @return the projected document
+     * @throws IOException when the document is not valid
+     */
+    JsonNode read(JsonParser parser) throws IOException {
+        return read(parser, root);
+    }
+
+    private JsonNode read(JsonParser parser, State state) throws IOException {
+        if (state.isWhole()) {
+            return treeReader.readValue(parser);
+        }
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            ObjectNode object = FACTORY.objectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                State child = child(state, name);
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    object.set(name, read(parser, child));
+                }
+            }
+            return object;
+        }
+        if (token == JsonToken.START_ARRAY) {
+            ArrayNode array = FACTORY.arrayNode();
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                State child = child(state, Integer.toString(index++));
+                if (child == null) {
+                    parser.skipChildren();
+                    array.add(NullNode.getInstance());
+                } else {
+                    array.add(read(parser, child));
+                }
+            }
+            return array;
+        }
+        // a value kept for its descendants
+        return state.included ? treeReader.readValue(parser) : NullNode.getInstance();
+    }
+
+    /**
+     * @param node  a node at the path of the state
+     * @param state the state of its path
+     * @return the node projected
+     */
+    private JsonNode prune(JsonNode node, State state) {
+        if (state.isWhole()) {
+            return node;
+        }
+        if (node.isObject()) {
+            ObjectNode object = FACTORY.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                State child = child(state, field.getKey());
+                if (child != null) {
+                    object.set(field.getKey(), prune(field.getValue(), child));
+                }
+            }
+            return object;
+        }
+        if (node.isArray()) {
+            ArrayNode array = FACTORY.arrayNode(node.size());
+            for (int i = 0; i < node.size(); i++) {
+                State child = child(state, Integer.toString(i));
+                array.add(child == null ? NullNode.getInstance() : prune(node.get(i), child));
+            }
+            return array;
+        }
+        return state.included ? node : NullNode.getInstance();
+    }
+
+    /**
+     * Rewrites the operations of a patch for the projected document : the operations on nodes outside the projection
+     * are dropped, or reduced to the insertion or removal of an array element, and the values added are projected.
+     *
+     * @param operations the operations of a patch
+     * @param source     the projected document the patch applies to, to tell arrays from objects
+     * @return the operations to apply, the same list when none is changed
+     * @throws PatchApplicationException when an operation cannot be projected, such as a move or copy into the
+     *                                   projection from a node which is not fully kept
+     */
+    List<PatchOperation> filter(List<PatchOperation> operations, JsonNode source) {
+        List<PatchOperation> filtered = null;
+        for (int i = 0; i < operations.size(); i++) {
+            PatchOperation operation = operations.get(i);
+            List<PatchOperation> projected = project(operation, source);
+            if (filtered == null && (projected.size() != 1 || projected.get(0) != operation)) {
+                filtered = new ArrayList<>(operations.subList(0, i));
+            }
+            if (filtered != null) {
+                filtered.addAll(projected);
+            }
+        }
+        return filtered == null ? operations : filtered;
+    }
+
+    private List<PatchOperation> project(PatchOperation operation, JsonNode source) {
+        String[] path = operation.getPathTokens();
+        Target target = target(path);
+        switch (operation.getOp()) {
+            case ADD:
+            case REPLACE:
+                if (target.state != null) {
+                    checkPositions(operation, path, target, source);
+                    JsonNode value = prune(operation.getValue(), target.state);
+                    return Arrays.asList(value == operation.getValue() ? operation
+                            : new PatchOperation(operation.getOp(), operation.getPath(), null, value));
+                }
+                return placeholder(operation, path, target, source);
+
+            case REMOVE:
+                return remove(operation, operation.getPath(), path, target, source);
+
+            case TEST:
+                // a test of a node which is not whole would fail
+                return target.state != null && target.state.isWhole() ? Arrays.asList(operation) : new ArrayList<>();
+
+            case MOVE:
+            case COPY: {
+                String[] fromPath = operation.getFromTokens();
+                Target from = target(fromPath);
+                if (target.state != null) {
+                    // the value moved or copied is already projected as the target would
+                    if (from.state != null && from.state.sameAs(target.state)) {
+                        checkPositions(operation, path, target, source);
+                        if (operation.getOp() == PatchOperation.Op.MOVE) {
+                            checkPositions(operation, fromPath, from, source);
+                        }
+                        return Arrays.asList(operation);
+                    }
+                    throw new PatchApplicationException("Operation cannot be applied to the projection : " + operation);
+                }
+                List<PatchOperation> projected = operation.getOp() == PatchOperation.Op.MOVE
+                        ? remove(operation, operation.getFrom(), fromPath, from, source) : new ArrayList<>();
+                projected.addAll(placeholder(new PatchOperation(PatchOperation.Op.ADD, operation.getPath(), null, null), path, target, source));
+                return projected;
+            }
+
+            default:
+                return Arrays.asList(operation);
+        }
+    }
+
+    /**
+     * @return the removal to apply, none when the node removed is not in the projected document
+     */
+    private List<PatchOperation> remove(PatchOperation operation, String pointer, String[] path, Target target, JsonNode source) {
+        List<PatchOperation> projected = new ArrayList<>(1);
+        if (target.state != null || target.depth == path.length - 1 && isArrayElement(path, source)) {
+            checkPositions(operation, path, target, source);
+            projected.add(operation.getOp() == PatchOperation.Op.REMOVE && pointer.equals(operation.getPath()) ? operation
+                    : new PatchOperation(PatchOperation.Op.REMOVE, pointer, null, null));
+        }
+        return projected;
+    }
+
+    /**
+     * @return the addition of a null element when the node added outside the projection is an array element, nothing
+     * otherwise
+     */
+    private List<PatchOperation> placeholder(PatchOperation operation, String[] path, Target target, JsonNode source) {
+        List<PatchOperation> projected = new ArrayList<>(1);
+        if (operation.getOp() == PatchOperation.Op.ADD && target.depth == path.length - 1 && isArrayElement(path, source)) {
+            checkPositions(operation, path, target, source);
+            projected.add(new PatchOperation(PatchOperation.Op.ADD, operation.getPath(), null, NullNode.getInstance()));
+        }
+        return projected;
+    }
+
+    /**
+     * Checks that an element inserted or removed does not shift elements the projection selects by their index
+     */
+    private void checkPositions(PatchOperation operation, String[] path, Target target, JsonNode source) {
+        if (operation.getOp() != PatchOperation.Op.REPLACE && target.parent.positional && isArrayElement(path, source)) {
+            throw new PatchApplicationException("Operation shifts elements selected by their index : " + operation);
+        }
+    }
+
+    /**
+     * @return true if the path leads to an element of an array, told by the source document or by the last token when
+     * the parent is not in the source, such as a parent added by the same patch
+     */
+    private static boolean isArrayElement(String[] path, JsonNode source) {
+        if (path.length == 0) {
+            return false;
+        }
+        JsonNode parent = source;
+        for (int i = 0; parent != null && i < path.length - 1; i++) {
+            parent = parent.isArray() ? parent.get(index(path[i])) : parent.get(path[i]);
+        }
+        if (parent != null) {
+            return parent.isArray();
+        }
+        String last = path[path.length - 1];
+        return "-".equals(last) || index(last) >= 0;
+    }
+
+    private static int index(String token) {
+        if (token.isEmpty() || token.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(token);
+    }
+
+    /**
+     * @return the state of the path, or where it leaves the projection
+     */
+    private Target target(String[] path) {
+        State state = root;
+        State parent = root;
+        for (int i = 0; i < path.length; i++) {
+            parent = state;
+            state = child(state, path[i]);
+            if (state == null) {
+                return new Target(null, parent, i);
+            }
+        }
+        return new Target(state, parent, path.length);
+    }
+
+    /**
+     * @return the state of a child, null if it is outside the projection
+     */
+    private static State child(State state, String token) {
+        if (state.isWhole()) {
+            return state;
+        }
+        Node[] excludes = step(state.excludes, token);
+        for (Node node : excludes) {
+            if (node.terminal) {
+                return null;
+            }
+        }
+        if (state.included) {
+            return state(true, NONE, excludes);
+        }
+        Node[] includes = step(state.includes, token);
+        for (Node node : includes) {
+            if (node.terminal) {
+                return state(true, NONE, excludes);
+            }
+        }
+        return includes.length == 0 ? null : state(false, includes, excludes);
+    }
+
+    private static State state(boolean included, Node[] includes, Node[] excludes) {
+        return included && excludes.length == 0 ? State.WHOLE : new State(included, includes, excludes);
+    }
+
+    /**
+     * @return the trie nodes reached from the given ones by a token
+     */
+    private static Node[] step(Node[] nodes, String token) {
+        if (nodes.length == 0) {
+            return NONE;
+        }
+        List<Node> reached = new ArrayList<>(nodes.length);
+        for (Node node : nodes) {
+            if (node.anyDepth) {
+                // ** also matches this token
+                add(reached, node);
+            }
+            Node child = node.children.get(token);
+            if (child != null) {
+                add(reached, child);
+            }
+            if (node.wildcard != null) {
+                add(reached, node.wildcard);
+            }
+        }
+        return closure(reached.toArray(NONE));
+    }
+
+    private static void add(List<Node> nodes, Node node) {
+        if (!nodes.contains(node)) {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * @return the nodes along with the ** nodes below them, which also match no token at all
+     */
+    private static Node[] closure(Node[] nodes) {
+        List<Node> closed = null;
+        for (Node node : nodes) {
+            for (Node next = node.deeper; next != null; next = next.deeper) {
+                if (closed == null) {
+                    closed = new ArrayList<>(Arrays.asList(nodes));
+                }
+                add(closed, next);
+            }
+        }
+        return closed == null ? nodes : closed.toArray(NONE);
+    }
+
+    /**
+     * A node of a rules trie
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final boolean anyDepth;
+        private Node wildcard;
+        // the ** child
+        private Node deeper;
+        private boolean terminal;
+        // whether a child is an array index
+        private boolean indexed;
+
+        private Node(boolean anyDepth) {
+            this.anyDepth = anyDepth;
+        }
+
+        private Node child(String token) {
+            if (WILDCARD.equals(token)) {
+                if (wildcard == null) {
+                    wildcard = new Node(false);
+                }
+                return wildcard;
+            }
+            if (ANY_DEPTH.equals(token)) {
+                if (deeper == null) {
+                    deeper = new Node(true);
+                }
+                return deeper;
+            }
+            indexed |= "-".equals(token) || index(token) >= 0;
+            return children.computeIfAbsent(token, name -> new Node(false));
+        }
+    }
+
+    /**
+     * Where a path is in the projection
+     */
+    private static final class State {
+
+        // fully included, nothing excluded below
+        private static final State WHOLE = new State(true, NONE, NONE);
+
+        private final boolean included;
+        private final Node[] includes;
+        private final Node[] excludes;
+        // whether a rule selects a child by its name or index
+        private final boolean positional;
+
+        private State(boolean included, Node[] includes, Node[] excludes) {
+            this.included = included;
+            this.includes = includes;
+            this.excludes = excludes;
+            boolean positional = false;
+            for (Node node : included ? excludes : concat(includes, excludes)) {
+                positional |= node.indexed;
+            }
+            this.positional = positional;
+        }
+
+        private boolean isWhole() {
+            return this == WHOLE;
+        }
+
+        /**
+         * @return true if the descendants of both states are projected the same way
+         */
+        private boolean sameAs(State other) {
+            return this == other || included == other.included
+                    && Arrays.equals(includes, other.includes) && Arrays.equals(excludes, other.excludes);
+        }
+
+        private static Node[] concat(Node[] first, Node[] second) {
+            Node[] all = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, all, first.length, second.length);
+            return all;
+        }
+    }
+
+    private static final class Target {
+
+        // null when the path is outside the projection
+        private final State state;
+        // the state of the parent of the path, or of the last node in the projection
+        private final State parent;
+        // number of tokens of the path in the projection
+        private final int depth;
+
+        private Target(State state, State parent, int depth) {
+            this.state = state;
+            this.parent = parent;
+            this.depth = depth;
+        }
+    }
+}
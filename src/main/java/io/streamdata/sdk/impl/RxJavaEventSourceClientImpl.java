@@ -1,22 +1,39 @@
 package io.streamdata.sdk.impl;
 
 import com.google.common.base.Preconditions;
+import io.reactivex.BackpressureOverflowStrategy;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Scheduler;
 import io.reactivex.schedulers.Schedulers;
+import io.streamdata.sdk.BackpressureMode;
 import io.streamdata.sdk.EventSourceClient;
+import io.streamdata.sdk.Projection;
+import io.streamdata.sdk.ReconnectPolicy;
 import io.streamdata.sdk.RxJavaEventSourceClient;
+import io.streamdata.sdk.metrics.StreamMetrics;
 
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 public class RxJavaEventSourceClientImpl implements RxJavaEventSourceClient {
 
 
-    private EventSourceClient eventSourceClient;
+    private EventSourceClientImpl eventSourceClient;
+
+    private BackpressureMode backpressureMode = BackpressureMode.DROP;
+    private int bufferCapacity = 1024;
+    private Runnable onOverflow;
+
+    // created on the first call to toSharedFlowable()
+    private SharedEventStream shared;
 
     public RxJavaEventSourceClientImpl(String apiUrl, String appKey) throws URISyntaxException {
-        this.eventSourceClient = new EventSourceClientImpl(apiUrl, appKey);
+        this(apiUrl, appKey, StreamdataClientImpl.shared());
+    }
+
+    public RxJavaEventSourceClientImpl(String apiUrl, String appKey, StreamdataClientImpl context) throws URISyntaxException {
+        this.eventSourceClient = new EventSourceClientImpl(apiUrl, appKey, context);
     }
 
     @Override
@@ -31,31 +48,147 @@ public class RxJavaEventSourceClientImpl implements RxJavaEventSourceClient {
         return this;
     }
 
+    @Override
+    public RxJavaEventSourceClient diffSnapshots(boolean diffSnapshots) {
+        this.eventSourceClient.diffSnapshots(diffSnapshots);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient compactSnapshots(boolean compactSnapshots) {
+        this.eventSourceClient.compactSnapshots(compactSnapshots);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient projection(Projection projection) {
+        this.eventSourceClient.projection(projection);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient throttle(long intervalMillis) {
+        this.eventSourceClient.throttle(intervalMillis);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient reconnect(ReconnectPolicy policy) {
+        this.eventSourceClient.reconnect(policy);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient stallAfter(long stallAfterMillis, boolean reconnect) {
+        this.eventSourceClient.stallAfter(stallAfterMillis, reconnect);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient checkpointTo(Path file, long intervalMillis) {
+        this.eventSourceClient.checkpointTo(file, intervalMillis);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient metrics(StreamMetrics metrics) {
+        this.eventSourceClient.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient timestampAt(String pattern) {
+        this.eventSourceClient.timestampAt(pattern);
+        return this;
+    }
+
     @Override
     public Flowable<Event> toFlowable() {
         return toFlowable(Schedulers.computation());
     }
 
+    @Override
+    public RxJavaEventSourceClient backpressure(BackpressureMode mode) {
+        this.backpressureMode = Preconditions.checkNotNull(mode, "mode cannot be null");
+        return this;
+    }
+
+    @Override
+    public RxJavaEventSourceClient bufferCapacity(int capacity, Runnable onOverflow) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be strictly positive");
+        this.bufferCapacity = capacity;
+        this.onOverflow = onOverflow;
+        return this;
+    }
+
     @Override
     public Flowable<Event> toFlowable(final Scheduler scheduler) {
 
         Preconditions.checkNotNull(scheduler, "You must provide a Schduler or call toFlowable() to get a default one");
 
-        return Flowable.<Event>create(emitter -> {
+        return withBackpressure(events(), scheduler);
+    }
+
+    @Override
+    public Flowable<Event> toSharedFlowable() {
+        return toSharedFlowable(Schedulers.computation());
+    }
 
-            this.eventSourceClient.onSnapshot(data -> emitter.onNext(Event.forSnapshot(data)));
-            this.eventSourceClient.onPatch(patch -> emitter.onNext(Event.forPatch(this.eventSourceClient.getCurrentSnapshot(), patch)));
+    @Override
+    public synchronized Flowable<Event> toSharedFlowable(Scheduler scheduler) {
+
+        Preconditions.checkNotNull(scheduler, "You must provide a Schduler or call toSharedFlowable() to get a default one");
+
+        if (this.shared == null) {
+            this.shared = new SharedEventStream(this.eventSourceClient);
+        }
+        return withBackpressure(this.shared.events(), scheduler);
+    }
+
+    /**
+     * Applies the backpressure mode to a source of events which ignores backpressure
+     */
+    private Flowable<Event> withBackpressure(Flowable<Event> events, Scheduler scheduler) {
+        switch (backpressureMode) {
+            case CONFLATE:
+                // events are merged while the subscriber is busy, no need to queue more than one on the scheduler side
+                return events
+                        .lift(new ConflatingOperator())
+                        .observeOn(scheduler, false, 1);
+
+            case BUFFER:
+                final Runnable overflowCallback = this.onOverflow;
+                return events
+                        .onBackpressureBuffer(bufferCapacity, () -> {
+                            if (overflowCallback != null) {
+                                overflowCallback.run();
+                            }
+                        }, BackpressureOverflowStrategy.ERROR)
+                        .observeOn(scheduler);
+
+            default:
+                // same as BackpressureStrategy.DROP, the dropped events being counted
+                return events
+                        .onBackpressureDrop(dropped -> this.eventSourceClient.metrics().onDropped())
+                        .observeOn(scheduler);
+        }
+
+    }
+
+    private Flowable<Event> events() {
+        return Flowable.create(emitter -> {
+
+            this.eventSourceClient.onVersionedSnapshot(snapshot -> emitter.onNext(Event.forSnapshot(snapshot.getVersion(), snapshot.getJsonNode())));
+            this.eventSourceClient.onVersionedPatch((snapshot, patch) -> emitter.onNext(Event.forPatch(snapshot.getVersion(), snapshot.getJsonNode(), patch)));
             this.eventSourceClient.onError(error -> emitter.onNext(Event.forError(error)));
-            this.eventSourceClient.onException(emitter::onError);
+            // the exceptions the client recovers from, such as a resync, do not end the flowable
+            this.eventSourceClient.onFailure(emitter::onError);
 
             emitter.setCancellable(this.eventSourceClient::close);
 
             this.eventSourceClient.open();
 
-        }, BackpressureStrategy.DROP)
-                .observeOn(scheduler);
-
-
+        }, BackpressureStrategy.MISSING);
     }
 
 
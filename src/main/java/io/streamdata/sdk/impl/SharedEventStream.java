@@ -0,0 +1,119 @@
+package io.streamdata.sdk.impl;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.streamdata.sdk.RxJavaEventSourceClient.Event;
+import io.streamdata.sdk.Snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>The events of a single client multicast to any number of subscribers : one connection and one patch application
+ * whatever the number of consumers.</p>
+ * <p>The client is opened with the first subscriber and closed with the last one. A subscriber joining an opened stream
+ * gets the current snapshot right away, then the live events : both are emitted under the same lock, so that no patch
+ * is missed nor received twice.</p>
+ * <p>Opening and closing the client is done by whichever thread changed the subscribers, the event threads included,
+ * but never waits : a thread finding the client being opened or closed leaves the work to the one doing it.</p>
+ * <p>The subscribers only fail once the client gives up : a patch failure resynchronized with a fresh snapshot does not
+ * end the stream.</p>
+ */
+final class SharedEventStream {
+
+    private final EventSourceClientImpl client;
+
+    // subscribers are added under this, which also guards the snapshot of the last event they got
+    private final List<FlowableEmitter<Event>> subscribers = new CopyOnWriteArrayList<>();
+    private Snapshot latest;
+
+    // guarded by lifecycle, dirty when the subscribers changed since the client was last opened or closed
+    private final ReentrantLock lifecycle = new ReentrantLock();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private boolean open;
+
+    SharedEventStream(EventSourceClientImpl client) {
+        this.client = client;
+        client.onVersionedSnapshot(snapshot -> publish(Event.forSnapshot(snapshot.getVersion(), snapshot.getJsonNode()), snapshot));
+        client.onVersionedPatch((snapshot, patch) -> publish(Event.forPatch(snapshot.getVersion(), snapshot.getJsonNode(), patch), snapshot));
+        client.onError(error -> publish(Event.forError(error), null));
+        // the exceptions the client recovers from, such as a resync, are left to its exception callback
+        client.onFailure(this::fail);
+    }
+
+    /**
+     * @return the events, without backpressure : each subscriber gets its own strategy downstream
+     */
+    Flowable<Event> events() {
+        return Flowable.create(this::subscribe, BackpressureStrategy.MISSING);
+    }
+
+    private void subscribe(FlowableEmitter<Event> emitter) {
+        synchronized (this) {
+            if (latest != null) {
+                // replay the latest state, live events follow
+                emitter.onNext(Event.forSnapshot(latest.getVersion(), latest.getJsonNode()));
+            }
+            subscribers.add(emitter);
+        }
+        // set once added, an emitter cancelled in the meantime is removed right away
+        emitter.setCancellable(() -> unsubscribe(emitter));
+        reconcile();
+    }
+
+    private void unsubscribe(FlowableEmitter<Event> emitter) {
+        subscribers.remove(emitter);
+        reconcile();
+    }
+
+    /**
+     * Opens the client when there are subscribers and closes it otherwise, until the subscribers stop changing
+     */
+    private void reconcile() {
+        dirty.set(true);
+        while (dirty.get() && lifecycle.tryLock()) {
+            try {
+                dirty.set(false);
+                boolean wanted = !subscribers.isEmpty();
+                if (wanted && !open) {
+                    open = true;
+                    client.open();
+                } else if (!wanted && open) {
+                    open = false;
+                    client.close();
+                    synchronized (this) {
+                        // the next subscribers get a fresh snapshot
+                        latest = null;
+                    }
+                }
+            } finally {
+                lifecycle.unlock();
+            }
+        }
+    }
+
+    private synchronized void publish(Event event, Snapshot snapshot) {
+        if (snapshot != null) {
+            latest = snapshot;
+        }
+        for (FlowableEmitter<Event> subscriber : subscribers) {
+            subscriber.onNext(event);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        List<FlowableEmitter<Event>> failed;
+        synchronized (this) {
+            failed = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        // the last cancellation closes the client
+        for (FlowableEmitter<Event> subscriber : failed) {
+            subscriber.onError(throwable);
+        }
+    }
+}
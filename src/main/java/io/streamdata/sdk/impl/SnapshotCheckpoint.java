@@ -0,0 +1,138 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.streamdata.sdk.Snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Checkpoint of a stream : its snapshot and the id of the last event applied to it, in a memory-mapped file.</p>
+ * <p>The snapshot is encoded in Smile, the binary JSON format of Jackson, which is smaller than JSON and faster to parse,
+ * field names repeated across the document being written once. The layout is :</p>
+ * <pre>
+ * magic (4) | format (4) | snapshot version (8) | event id length (4) | event id (UTF-8) | payload length (4) | payload CRC32 (8) | payload (Smile)
+ * </pre>
+ * <p>A checkpoint is written to a temporary file then moved over the previous one, so a crash never leaves a partial checkpoint.</p>
+ */
+final class SnapshotCheckpoint {
+
+    private static final int MAGIC = 0x53444350; // "SDCP"
+    private static final int FORMAT = 1;
+
+    // Smile mapper, shared as it is thread-safe once configured
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+
+    private final Snapshot snapshot;
+    private final String lastEventId;
+
+    SnapshotCheckpoint(Snapshot snapshot, String lastEventId) {
+        this.snapshot = snapshot;
+        this.lastEventId = lastEventId;
+    }
+
+    Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * @param file the checkpoint file
+     * @return the checkpoint, null if the file does not exist
+     * @throws IOException if the file cannot be read or is corrupted
+     */
+    static SnapshotCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot checkpoint : " + file);
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT) {
+                throw new IOException("Unsupported checkpoint format " + format + " : " + file);
+            }
+            long version = buffer.getLong();
+            int idLength = buffer.getInt();
+            String lastEventId = null;
+            if (idLength >= 0) {
+                byte[] id = new byte[idLength];
+                buffer.get(id);
+                lastEventId = new String(id, StandardCharsets.UTF_8);
+            }
+            int payloadLength = buffer.getInt();
+            long crc = buffer.getLong();
+            if (payloadLength != buffer.remaining()) {
+                throw new IOException("Truncated snapshot checkpoint : " + file);
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != crc) {
+                throw new IOException("Corrupted snapshot checkpoint : " + file);
+            }
+
+            // parsed straight from the mapped pages
+            try (InputStream payload = new ByteBufferBackedInputStream(buffer)) {
+                JsonNode root = SMILE_MAPPER.readTree(payload);
+                return new SnapshotCheckpoint(new Snapshot(version, root), lastEventId);
+            }
+        }
+    }
+
+    /**
+     * @param file the checkpoint file, replaced atomically
+     * @throws IOException if the checkpoint cannot be written
+     */
+    void write(Path file) throws IOException {
+        byte[] payload = SMILE_MAPPER.writeValueAsBytes(snapshot.getJsonNode());
+        byte[] id = lastEventId == null ? null : lastEventId.getBytes(StandardCharsets.UTF_8);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+
+        long size = 4 + 4 + 8 + 4 + (id == null ? 0 : id.length) + 4 + 8 + payload.length;
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC)
+                        .putInt(FORMAT)
+                        .putLong(snapshot.getVersion())
+                        .putInt(id == null ? -1 : id.length);
+                if (id != null) {
+                    buffer.put(id);
+                }
+                buffer.putInt(payload.length)
+                        .putLong(checksum.getValue())
+                        .put(payload);
+                buffer.force();
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Computes JSON Patches between successive snapshots when the proxy sends full snapshots (non-incremental mode).</p>
+ * <ul>
+ * <li>the raw payload is hashed first : an identical payload is skipped without being parsed</li>
+ * <li>containers of the new snapshot are hashed bottom-up, the hashes of the previous snapshot being kept from the last diff,
+ * so unchanged subtrees are skipped by comparing two longs instead of being walked</li>
+ * </ul>
+ * <p>Not thread-safe, it is used by the event source thread only.</p>
+ */
+final class SnapshotDiffer {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private boolean hasPayload;
+    private long payloadHash;
+    private int payloadLength;
+
+    // hashes of the containers of the last snapshot
+    private Map<JsonNode, Long> hashes = new IdentityHashMap<>();
+
+    /**
+     * @param payload the raw payload of a snapshot
+     * @return true if it is the same as the previous payload
+     */
+    boolean isSamePayload(byte[] payload) {
+        long hash = FNV_OFFSET;
+        for (byte b : payload) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+        boolean same = hasPayload && payloadLength == payload.length && payloadHash == hash;
+        this.hasPayload = true;
+        this.payloadHash = hash;
+        this.payloadLength = payload.length;
+        return same;
+    }
+
+    /**
+     * Compute the operations turning the previous snapshot into the next one
+     *
+     * @param previous the previous snapshot, null if there is none
+     * @param next     the next snapshot
+     * @return the operations, empty if both snapshots are equal
+     */
+    List<PatchOperation> diff(JsonNode previous, JsonNode next) {
+        Map<JsonNode, Long> nextHashes = new IdentityHashMap<>();
+        hash(next, nextHashes);
+
+        List<PatchOperation> operations = new ArrayList<>();
+        if (previous != null) {
+            diff("", previous, next, nextHashes, operations);
+        }
+        this.hashes = nextHashes;
+        return operations;
+    }
+
+    private void diff(String path, JsonNode previous, JsonNode next, Map<JsonNode, Long> nextHashes, List<PatchOperation> operations) {
+        if (previous.isContainerNode() && next.isContainerNode()) {
+            Long previousHash = hashes.get(previous);
+            if (previousHash != null && previousHash.equals(nextHashes.get(next))) {
+                // unchanged subtree
+                return;
+            }
+        }
+
+        if (previous.isObject() && next.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = previous.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String fieldPath = path + '/' + escape(field.getKey());
+                JsonNode nextValue = next.get(field.getKey());
+                if (nextValue == null) {
+                    operations.add(new PatchOperation(PatchOperation.Op.REMOVE, fieldPath, null, null));
+                } else {
+                    diff(fieldPath, field.getValue(), nextValue, nextHashes, operations);
+                }
+            }
+            fields = next.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!previous.has(field.getKey())) {
+                    operations.add(new PatchOperation(PatchOperation.Op.ADD, path + '/' + escape(field.getKey()), null, field.getValue()));
+                }
+            }
+        } else if (previous.isArray() && next.isArray()) {
+            int common = Math.min(previous.size(), next.size());
+            for (int i = 0; i < common; i++) {
+                diff(path + '/' + i, previous.get(i), next.get(i), nextHashes, operations);
+            }
+            for (int i = common; i < next.size(); i++) {
+                operations.add(new PatchOperation(PatchOperation.Op.ADD, path + '/' + i, null, next.get(i)));
+            }
+            // remove from the end so the indexes stay valid
+            for (int i = previous.size() - 1; i >= common; i--) {
+                operations.add(new PatchOperation(PatchOperation.Op.REMOVE, path + '/' + i, null, null));
+            }
+        } else if (!previous.equals(next)) {
+            operations.add(new PatchOperation(PatchOperation.Op.REPLACE, path, null, next));
+        }
+    }
+
+    private static long hash(JsonNode node, Map<JsonNode, Long> hashes) {
+        long hash;
+        if (node.isObject()) {
+            // order independent, as object equality
+            hash = 0x9E3779B97F4A7C15L;
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                hash += mix(hash(field.getKey()) * 31 + hash(field.getValue(), hashes));
+            }
+            hashes.put(node, hash);
+        } else if (node.isArray()) {
+            hash = 0x632BE59BD9B4E019L;
+            for (JsonNode element : node) {
+                hash = hash * 31 + hash(element, hashes);
+            }
+            hash = mix(hash);
+            hashes.put(node, hash);
+        } else {
+            hash = mix(node.getNodeType().ordinal() * 0x9E3779B97F4A7C15L + scalarHash(node));
+        }
+        return hash;
+    }
+
+    /**
+     * @return a 64 bits hash of the content of a scalar, as the 32 bits of JsonNode.hashCode() collide too often
+     */
+    private static long scalarHash(JsonNode node) {
+        if (node.isTextual()) {
+            return hash(node.textValue());
+        }
+        if (node.isIntegralNumber() && node.canConvertToLong()) {
+            // the class is part of the hash, as of the equality of the nodes
+            return node.longValue() * 31 + node.numberType().ordinal();
+        }
+        if (node.isDouble() || node.isFloat()) {
+            return Double.doubleToLongBits(node.doubleValue()) * 31 + node.numberType().ordinal();
+        }
+        if (node.isNumber()) {
+            return hash(node.numberValue().toString()) * 31 + node.numberType().ordinal();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue() ? 1 : 2;
+        }
+        if (node.isBinary()) {
+            return hash(node.asText());
+        }
+        // null, missing or POJO nodes
+        return node.hashCode();
+    }
+
+    /**
+     * @return the 64 bits FNV-1a hash of a text
+     */
+    private static long hash(String text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // murmur3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87c5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String escape(String token) {
+        if (token.indexOf('~') < 0 && token.indexOf('/') < 0) {
+            return token;
+        }
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+}
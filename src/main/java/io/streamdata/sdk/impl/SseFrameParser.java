@@ -0,0 +1,128 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.transport.SseEventHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Incremental parser of the Server-Sent Events framing (https://html.spec.whatwg.org/multipage/server-sent-events.html).
+ * Bytes are fed as they are read from the network, in buffers of any size, and the events are pushed to a handler as
+ * soon as their blank line is read.</p>
+ * <p>The line and data buffers are reused from one event to the other, only the data handed to the handler is copied.</p>
+ */
+final class SseFrameParser {
+
+    private final SseEventHandler handler;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lastWasCr;
+
+    private byte[] data = new byte[1024];
+    private int dataLength;
+    private boolean hasData;
+
+    private String eventName;
+    private String lastEventId;
+
+    SseFrameParser(SseEventHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param buffer bytes of the stream, fully consumed
+     */
+    void feed(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                if (lastWasCr) {
+                    // second half of a CRLF
+                    lastWasCr = false;
+                } else {
+                    endOfLine();
+                }
+            } else if (b == '\r') {
+                lastWasCr = true;
+                endOfLine();
+            } else {
+                lastWasCr = false;
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * @return the last event id read, null if none
+     */
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    private void endOfLine() {
+        if (lineLength == 0) {
+            dispatch();
+            return;
+        }
+        if (line[0] == ':') {
+            handler.onComment(new String(line, 1, lineLength - 1, StandardCharsets.UTF_8).trim());
+            lineLength = 0;
+            return;
+        }
+
+        int colon = 0;
+        while (colon < lineLength && line[colon] != ':') {
+            colon++;
+        }
+        int valueStart = colon + 1;
+        if (valueStart < lineLength && line[valueStart] == ' ') {
+            valueStart++;
+        }
+        int valueLength = Math.max(0, lineLength - valueStart);
+
+        if (is("data", colon)) {
+            int needed = dataLength + valueLength + 1;
+            if (needed > data.length) {
+                data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+            }
+            if (hasData) {
+                data[dataLength++] = '\n';
+            }
+            System.arraycopy(line, valueStart, data, dataLength, valueLength);
+            dataLength += valueLength;
+            hasData = true;
+        } else if (is("event", colon)) {
+            eventName = new String(line, valueStart, valueLength, StandardCharsets.UTF_8);
+        } else if (is("id", colon)) {
+            lastEventId = new String(line, valueStart, valueLength, StandardCharsets.UTF_8);
+        }
+        // retry and unknown fields are ignored
+        lineLength = 0;
+    }
+
+    private boolean is(String field, int length) {
+        if (field.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[i] != field.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        if (hasData) {
+            handler.onEvent(eventName == null ? "message" : eventName, lastEventId, Arrays.copyOf(data, dataLength));
+        }
+        hasData = false;
+        dataLength = 0;
+        eventName = null;
+    }
+}
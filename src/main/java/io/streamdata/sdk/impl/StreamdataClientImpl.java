@@ -0,0 +1,230 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.DispatchExecutors;
+import io.streamdata.sdk.EventSourceClient;
+import io.streamdata.sdk.ReconnectPolicy;
+import io.streamdata.sdk.RxJavaEventSourceClient;
+import io.streamdata.sdk.StreamdataClient;
+import io.streamdata.sdk.SubscriptionManager;
+import io.streamdata.sdk.TransportConfig;
+import io.streamdata.sdk.TypedEventSourceClient;
+import io.streamdata.sdk.transport.SseTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+public class StreamdataClientImpl implements StreamdataClient {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamdataClientImpl.class);
+
+    private final TransportConfig config;
+
+    // the transport shared by every event source
+    private final SseTransport transport;
+
+    // opened clients, closed along with this instance
+    private final Set<EventSourceClientImpl> openedClients = ConcurrentHashMap.newKeySet();
+
+    // subscription managers, closed along with this instance
+    private final Set<SubscriptionManagerImpl> managers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // true when this instance only serves a replay client, and is closed along with it
+    private final boolean closedWithClient;
+
+    // lazily created for the clients of a non-blocking transport that have no dispatch executor
+    private ExecutorService defaultDispatchExecutor;
+
+    // lazily created to schedule the reconnections and checkpoints of the clients
+    private ScheduledExecutorService scheduler;
+
+    // lazily created to detect the stalled streams of the clients
+    private LivenessWatchdog watchdog;
+
+    public StreamdataClientImpl(TransportConfig config) {
+        this(config, new JerseySseTransport(checkNotNull(config, "config cannot be null")));
+    }
+
+    /**
+     * @param config    the settings
+     * @param transport the transport, owned and closed by this instance
+     */
+    public StreamdataClientImpl(TransportConfig config, SseTransport transport) {
+        this(config, transport, false);
+    }
+
+    private StreamdataClientImpl(TransportConfig config, SseTransport transport, boolean closedWithClient) {
+        this.config = checkNotNull(config, "config cannot be null");
+        this.transport = checkNotNull(transport, "transport cannot be null");
+        this.closedWithClient = closedWithClient;
+    }
+
+    /**
+     * @return the process wide instance used by {@link StreamdataClient#createClient(String, String)}
+     */
+    public static StreamdataClientImpl shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * @param journalDirectory the directory of the journal
+     * @param realTime         true to replay at the recorded pace
+     * @return a client replaying the journal, on a StreamdataClient of its own that is closed along with the client
+     */
+    public static EventSourceClient replayClient(Path journalDirectory, boolean realTime) {
+        checkNotNull(journalDirectory, "journalDirectory cannot be null");
+        StreamdataClientImpl replay = new StreamdataClientImpl(TransportConfig.DEFAULT, new JournalReplayTransport(journalDirectory, realTime), true);
+        try {
+            // the url is never called, the transport reads the journal
+            return new EventSourceClientImpl(journalDirectory.toUri().toString(), "replay", replay)
+                    .reconnect(ReconnectPolicy.NONE);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public EventSourceClient newClient(String apiUrl, String appKey) throws URISyntaxException {
+        checkState(!closed.get(), "This StreamdataClient has been closed");
+        return new EventSourceClientImpl(apiUrl, appKey, this);
+    }
+
+    @Override
+    public RxJavaEventSourceClient newRxJavaClient(String apiUrl, String appKey) throws URISyntaxException {
+        checkState(!closed.get(), "This StreamdataClient has been closed");
+        return new RxJavaEventSourceClientImpl(apiUrl, appKey, this);
+    }
+
+    @Override
+    public <T> TypedEventSourceClient<T> newTypedClient(String apiUrl, String appKey, Class<T> type) throws URISyntaxException {
+        checkState(!closed.get(), "This StreamdataClient has been closed");
+        return new TypedEventSourceClientImpl<>(apiUrl, appKey, type, this);
+    }
+
+    @Override
+    public SubscriptionManager newSubscriptionManager() {
+        return newSubscriptionManager(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public SubscriptionManager newSubscriptionManager(int shards) {
+        checkState(!closed.get(), "This StreamdataClient has been closed");
+        SubscriptionManagerImpl manager = new SubscriptionManagerImpl(this, shards);
+        managers.add(manager);
+        return manager;
+    }
+
+    @Override
+    public void close() {
+        if (this == SharedHolder.INSTANCE) {
+            LOGGER.warn("The shared StreamdataClient cannot be closed, close its clients instead");
+            return;
+        }
+        if (closed.compareAndSet(false, true)) {
+            // copy to avoid concurrent modification as closing unregisters
+            for (SubscriptionManagerImpl manager : new ArrayList<>(managers)) {
+                manager.close();
+            }
+            for (EventSourceClientImpl client : new ArrayList<>(openedClients)) {
+                client.close();
+            }
+            this.transport.close();
+            synchronized (this) {
+                if (this.defaultDispatchExecutor != null) {
+                    this.defaultDispatchExecutor.shutdown();
+                }
+                if (this.scheduler != null) {
+                    this.scheduler.shutdownNow();
+                }
+                if (this.watchdog != null) {
+                    this.watchdog.close();
+                }
+            }
+        }
+    }
+
+    TransportConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the shared transport
+     */
+    SseTransport transport() {
+        checkState(!closed.get(), "This StreamdataClient has been closed");
+        return transport;
+    }
+
+    /**
+     * @return the executor running the events of the clients that did not call dispatchOn(), when the transport thread
+     * must not be blocked by their processing, closing the replaced connections of a blocking transport and writing the
+     * checkpoints
+     */
+    synchronized ExecutorService defaultDispatchExecutor() {
+        if (this.defaultDispatchExecutor == null) {
+            this.defaultDispatchExecutor = DispatchExecutors.virtualThreadPerTask();
+        }
+        return this.defaultDispatchExecutor;
+    }
+
+    /**
+     * @return the scheduler of the background work of the clients : reconnections, checkpoints, lazy flushes and
+     * throttled deliveries. Shared by every client, it hands the checkpoints and the callbacks over to
+     * {@link #defaultDispatchExecutor()}.
+     */
+    synchronized ScheduledExecutorService scheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "streamdata-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.scheduler;
+    }
+
+    /**
+     * @return the watchdog of the clients detecting stalls, checking them every 100 ms
+     */
+    synchronized LivenessWatchdog watchdog() {
+        if (this.watchdog == null) {
+            this.watchdog = new LivenessWatchdog(100, 1024);
+        }
+        return this.watchdog;
+    }
+
+    void opened(EventSourceClientImpl client) {
+        openedClients.add(client);
+    }
+
+    void closed(EventSourceClientImpl client) {
+        openedClients.remove(client);
+        if (closedWithClient) {
+            // releases the transport and whatever the replay created lazily, such as the scheduler
+            close();
+        }
+    }
+
+    void closed(SubscriptionManagerImpl manager) {
+        managers.remove(manager);
+    }
+
+    // lazy and thread-safe initialization of the shared instance
+    private static final class SharedHolder {
+        private static final StreamdataClientImpl INSTANCE = new StreamdataClientImpl(TransportConfig.DEFAULT);
+    }
+}
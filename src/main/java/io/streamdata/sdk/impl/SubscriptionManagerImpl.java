@@ -0,0 +1,203 @@
+package io.streamdata.sdk.impl;
+
+import io.streamdata.sdk.EventSourceClient;
+import io.streamdata.sdk.SubscriptionHealth;
+import io.streamdata.sdk.SubscriptionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+public class SubscriptionManagerImpl implements SubscriptionManager {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionManagerImpl.class);
+
+    // owner of the shared transport
+    private final StreamdataClientImpl context;
+
+    // a single thread per shard : the events of its streams are processed in order, without contention with other shards
+    private final ExecutorService[] shards;
+
+    private final ConcurrentMap<String, EventSourceClientImpl> streams = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param context    the StreamdataClient owning the transport to use
+     * @param shardCount the number of worker threads
+     */
+    public SubscriptionManagerImpl(StreamdataClientImpl context, int shardCount) {
+        this.context = checkNotNull(context, "context cannot be null");
+        checkArgument(shardCount > 0, "shardCount must be strictly positive");
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "streamdata-shard-" + i;
+            this.shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public synchronized EventSourceClient register(String apiUrl, String appKey) throws URISyntaxException {
+        checkNotNull(apiUrl, "apiUrl cannot be null");
+        checkState(!closed, "This SubscriptionManager has been closed");
+        checkArgument(!streams.containsKey(apiUrl), "A stream is already registered for %s", apiUrl);
+        EventSourceClientImpl client = newStream(apiUrl, appKey);
+        streams.put(apiUrl, client);
+        return client;
+    }
+
+    @Override
+    public synchronized List<EventSourceClient> registerAll(Collection<String> apiUrls, String appKey, Consumer<EventSourceClient> configure) throws URISyntaxException {
+        checkNotNull(apiUrls, "apiUrls cannot be null");
+        checkNotNull(configure, "configure cannot be null");
+        checkState(!closed, "This SubscriptionManager has been closed");
+
+        // every url is checked before any stream is registered
+        Map<String, EventSourceClientImpl> registered = new LinkedHashMap<>();
+        for (String apiUrl : apiUrls) {
+            checkNotNull(apiUrl, "apiUrls cannot contain null");
+            checkArgument(!streams.containsKey(apiUrl) && !registered.containsKey(apiUrl), "A stream is already registered for %s", apiUrl);
+            registered.put(apiUrl, newStream(apiUrl, appKey));
+        }
+        List<EventSourceClient> clients = new ArrayList<>(registered.size());
+        for (EventSourceClientImpl client : registered.values()) {
+            configure.accept(client);
+            clients.add(client);
+        }
+        streams.putAll(registered);
+        LOGGER.info("{} streams registered, {} in total", registered.size(), streams.size());
+        return clients;
+    }
+
+    @Override
+    public EventSourceClient get(String apiUrl) {
+        return streams.get(checkNotNull(apiUrl, "apiUrl cannot be null"));
+    }
+
+    @Override
+    public boolean unregister(String apiUrl) {
+        EventSourceClientImpl client = streams.remove(checkNotNull(apiUrl, "apiUrl cannot be null"));
+        if (client == null) {
+            return false;
+        }
+        client.close();
+        return true;
+    }
+
+    @Override
+    public void openAll() {
+        checkState(!closed, "This SubscriptionManager has been closed");
+        int opened = 0;
+        for (Map.Entry<String, EventSourceClientImpl> stream : streams.entrySet()) {
+            // two concurrent calls may race on a same stream, one of them failing to open it
+            if (!stream.getValue().isOpen()) {
+                try {
+                    stream.getValue().open();
+                    opened++;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Stream {} cannot be opened", stream.getKey(), e);
+                }
+            }
+        }
+        LOGGER.info("{} streams opened", opened);
+    }
+
+    @Override
+    public void closeAll() {
+        for (EventSourceClientImpl client : streams.values()) {
+            client.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return streams.size();
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public SubscriptionHealth getHealth(long staleAfterMillis) {
+        checkArgument(staleAfterMillis > 0, "staleAfterMillis must be strictly positive");
+        long now = System.nanoTime();
+        long staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(staleAfterMillis);
+        int total = 0;
+        int open = 0;
+        int reconnecting = 0;
+        int stale = 0;
+        long oldestEventAgeNanos = 0;
+        int[] streamsPerShard = new int[shards.length];
+        for (Map.Entry<String, EventSourceClientImpl> stream : streams.entrySet()) {
+            EventSourceClientImpl client = stream.getValue();
+            total++;
+            streamsPerShard[shardOf(stream.getKey())]++;
+            if (!client.isOpen()) {
+                continue;
+            }
+            open++;
+            if (client.getFailedAttempts() > 0) {
+                reconnecting++;
+            }
+            long age = now - client.getLastEventNanos();
+            if (age > staleAfterNanos) {
+                stale++;
+            }
+            oldestEventAgeNanos = Math.max(oldestEventAgeNanos, age);
+        }
+        return new SubscriptionHealth(total, open, reconnecting, stale,
+                TimeUnit.NANOSECONDS.toMillis(oldestEventAgeNanos), streamsPerShard);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        closeAll();
+        streams.clear();
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        context.closed(this);
+    }
+
+    private EventSourceClientImpl newStream(String apiUrl, String appKey) throws URISyntaxException {
+        EventSourceClientImpl client = new EventSourceClientImpl(apiUrl, appKey, context);
+        client.dispatchOn(shards[shardOf(apiUrl)]);
+        return client;
+    }
+
+    /**
+     * @return the shard of a stream, spreading the bits of the hash code as URLs often differ by their last characters
+     */
+    private int shardOf(String apiUrl) {
+        int hash = apiUrl.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+}
@@ -0,0 +1,175 @@
+package io.streamdata.sdk.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.streamdata.sdk.ModelUpdate;
+import io.streamdata.sdk.ReconnectPolicy;
+import io.streamdata.sdk.Snapshot;
+import io.streamdata.sdk.TypedEventSourceClient;
+import io.streamdata.sdk.metrics.StreamMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public class TypedEventSourceClientImpl<T> implements TypedEventSourceClient<T> {
+
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypedEventSourceClientImpl.class);
+
+
+    private final EventSourceClientImpl eventSourceClient;
+    private final Class<T> type;
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private Consumer<ModelUpdate<T>> onUpdateCallback;
+    private Consumer<Throwable> onExceptionCallback = t -> LOGGER.error("An error occured while binding the model", t);
+
+    // only used by the thread notifying the callbacks
+    private ModelBinder<T> binder;
+    private JsonNode boundSnapshot;
+
+    private volatile T model;
+
+    public TypedEventSourceClientImpl(String apiUrl, String appKey, Class<T> type) throws URISyntaxException {
+        this(apiUrl, appKey, type, StreamdataClientImpl.shared());
+    }
+
+    public TypedEventSourceClientImpl(String apiUrl, String appKey, Class<T> type, StreamdataClientImpl context) throws URISyntaxException {
+        this.type = checkNotNull(type, "type cannot be null");
+        this.eventSourceClient = new EventSourceClientImpl(apiUrl, appKey, context);
+    }
+
+    @Override
+    public TypedEventSourceClient<T> addHeader(String name, String value) {
+        this.eventSourceClient.addHeader(name, value);
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> mapper(ObjectMapper mapper) {
+        this.mapper = checkNotNull(mapper, "mapper cannot be null");
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> reconnect(ReconnectPolicy policy) {
+        this.eventSourceClient.reconnect(policy);
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> dispatchOn(Executor executor) {
+        this.eventSourceClient.dispatchOn(executor);
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> throttle(long intervalMillis) {
+        this.eventSourceClient.throttle(intervalMillis);
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> metrics(StreamMetrics metrics) {
+        this.eventSourceClient.metrics(metrics);
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> onUpdate(Consumer<ModelUpdate<T>> listener) {
+        this.onUpdateCallback = listener;
+        return this;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> onException(Consumer<Throwable> callback) {
+        this.onExceptionCallback = callback;
+        return this;
+    }
+
+    @Override
+    public T getModel() {
+        return model;
+    }
+
+    @Override
+    public TypedEventSourceClient<T> open() {
+        checkNotNull(this.onUpdateCallback, "You must call onUpdate() with a non-null callback before calling open()");
+
+        this.binder = new ModelBinder<>(mapper, mapper.constructType(type));
+        this.eventSourceClient.onVersionedSnapshot(this::onSnapshot);
+        this.eventSourceClient.onVersionedPatch(this::onPatch);
+        this.eventSourceClient.onException(this::onException);
+        this.eventSourceClient.open();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        this.eventSourceClient.close();
+    }
+
+    private void onSnapshot(Snapshot snapshot) {
+        try {
+            model = binder.bind(snapshot.getJsonNode());
+        } catch (IOException e) {
+            // the next patch binds the whole model again
+            boundSnapshot = null;
+            onException(e);
+            return;
+        }
+        boundSnapshot = snapshot.getJsonNode();
+        onUpdateCallback.accept(new ModelUpdate<>(snapshot.getVersion(), model, Collections.singleton(""), true));
+    }
+
+    private void onPatch(Snapshot snapshot, JsonNode patch) {
+        List<PatchOperation> operations = PatchOperation.parse(patch);
+        Set<String> changedPaths = new LinkedHashSet<>();
+        for (PatchOperation operation : operations) {
+            if (operation.getOp() == PatchOperation.Op.TEST) {
+                continue;
+            }
+            if (operation.getOp() == PatchOperation.Op.MOVE) {
+                changedPaths.add(operation.getFrom());
+            }
+            changedPaths.add(operation.getPath());
+        }
+        try {
+            model = boundSnapshot == null ? binder.bind(snapshot.getJsonNode()) : update(snapshot, operations);
+        } catch (IOException e) {
+            // the next patch binds the whole model again
+            boundSnapshot = null;
+            onException(e);
+            return;
+        }
+        boundSnapshot = snapshot.getJsonNode();
+        onUpdateCallback.accept(new ModelUpdate<>(snapshot.getVersion(), model, changedPaths, false));
+    }
+
+    private T update(Snapshot snapshot, List<PatchOperation> operations) throws IOException {
+        try {
+            return binder.update(model, boundSnapshot, operations);
+        } catch (RuntimeException e) {
+            // the model no longer matches the document, start over from the snapshot
+            LOGGER.warn("Could not update the model in place, binding it again", e);
+            return binder.bind(snapshot.getJsonNode());
+        }
+    }
+
+    private void onException(Throwable t) {
+        if (onExceptionCallback != null) {
+            onExceptionCallback.accept(t);
+        }
+    }
+}
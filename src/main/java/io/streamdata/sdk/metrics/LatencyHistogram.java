@@ -0,0 +1,125 @@
+package io.streamdata.sdk.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A concurrent histogram of positive values, in the manner of HdrHistogram : each power of 2 is split in 32 linear
+ * buckets, so that percentiles are reported within about 3% of the recorded values whatever their magnitude. Values
+ * up to 2<sup>40</sup> (about 18 minutes in nanoseconds) are tracked, higher ones being counted in the last bucket.</p>
+ * <p>Recording is a couple of atomic increments on a fixed array, without allocation nor lock.</p>
+ */
+public final class LatencyHistogram {
+
+    // values below 2^SUB_BUCKET_BITS are counted exactly, then each power of 2 gets HALF buckets
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_EXPONENT = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * HALF + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value the value to record, negative values being recorded as 0
+     */
+    public void record(long value) {
+        long positive = Math.max(0, value);
+        counts.incrementAndGet(index(positive));
+        count.incrementAndGet();
+        sum.addAndGet(positive);
+        long current;
+        while (positive > (current = max.get()) && !max.compareAndSet(current, positive)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values, 0 when empty
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value equivalent to the one at the given percentile, 0 when empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                // the maximum is exact, never report more
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears the recorded values, concurrent recordings may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    private int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT) {
+            return counts.length() - 1;
+        }
+        // the HALF buckets of [2^exponent, 2^(exponent + 1))
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    private long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == counts.length() - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = (index - SUB_BUCKETS) / HALF + SUB_BUCKET_BITS;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.0f, p50=%d, p99=%d, p999=%d, max=%d", getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,202 @@
+package io.streamdata.sdk.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Built-in {@link StreamMetrics} : counters and a {@link LatencyHistogram} per {@link Stage}, read at any time
+ * through the getters. Recording allocates nothing, so it can stay enabled in production.</p>
+ * <p>An instance may be given to a single client for per stream figures, or shared by several for aggregated ones.</p>
+ * <p><b>Usage</b></p>
+ * <pre>
+ * MetricsRecorder metrics = new MetricsRecorder();
+ * client.metrics(metrics).open();
+ * ...
+ * LOGGER.info("patch application : {}", metrics.getHistogram(StreamMetrics.Stage.APPLY));
+ * </pre>
+ */
+public class MetricsRecorder implements StreamMetrics {
+
+    private final LongAdder dataEvents = new LongAdder();
+    private final LongAdder patchEvents = new LongAdder();
+    private final LongAdder errorEvents = new LongAdder();
+    private final LongAdder otherEvents = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder patchFailures = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final AtomicLong snapshotBytes = new AtomicLong();
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public MetricsRecorder() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onEventReceived(String name, int bytes) {
+        switch (name) {
+            case "data":
+                dataEvents.increment();
+                break;
+            case "patch":
+                patchEvents.increment();
+                break;
+            case "error":
+                errorEvents.increment();
+                break;
+            default:
+                otherEvents.increment();
+        }
+        bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void onStage(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onBytesRead(int compressedBytes, int rawBytes) {
+        this.compressedBytes.add(compressedBytes);
+        this.rawBytes.add(rawBytes);
+    }
+
+    @Override
+    public void onSnapshot(int bytes) {
+        snapshotBytes.set(bytes);
+    }
+
+    @Override
+    public void onPatchFailure() {
+        patchFailures.increment();
+    }
+
+    @Override
+    public void onReconnect() {
+        reconnects.increment();
+    }
+
+    @Override
+    public void onDropped() {
+        dropped.increment();
+    }
+
+    @Override
+    public void onStall(long silentMillis) {
+        stalls.increment();
+    }
+
+    public long getDataEvents() {
+        return dataEvents.sum();
+    }
+
+    public long getPatchEvents() {
+        return patchEvents.sum();
+    }
+
+    public long getErrorEvents() {
+        return errorEvents.sum();
+    }
+
+    /**
+     * @return the events with another name than <code>data</code>, <code>patch</code> or <code>error</code>
+     */
+    public long getOtherEvents() {
+        return otherEvents.sum();
+    }
+
+    /**
+     * @return the size of the data of the events received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * @return the bytes of the streams read from the network, compressed when the proxy compresses them
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return the bytes of the streams once decompressed, {@link #getCompressedBytes()} minus this being the bandwidth saved
+     */
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    /**
+     * @return the size of the last snapshot received in a <code>data</code> event
+     */
+    public long getSnapshotBytes() {
+        return snapshotBytes.get();
+    }
+
+    public long getPatchFailures() {
+        return patchFailures.sum();
+    }
+
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    /**
+     * @return the events dropped as the consumer could not keep up
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the stalls detected, streams that received nothing for longer than their delay
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * @param stage a stage of the events
+     * @return its durations in nanoseconds
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[checkNotNull(stage, "stage cannot be null").ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append("events : data=").append(getDataEvents())
+                .append(", patch=").append(getPatchEvents())
+                .append(", error=").append(getErrorEvents())
+                .append(", other=").append(getOtherEvents())
+                .append(", bytes=").append(getBytesReceived())
+                .append(", compressedBytes=").append(getCompressedBytes())
+                .append(", rawBytes=").append(getRawBytes())
+                .append(", snapshotBytes=").append(getSnapshotBytes())
+                .append(", patchFailures=").append(getPatchFailures())
+                .append(", reconnects=").append(getReconnects())
+                .append(", dropped=").append(getDropped())
+                .append(", stalls=").append(getStalls());
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            builder.append(String.format("%n%s (us) : count=%d, p50=%.1f, p99=%.1f, p999=%.1f, max=%.1f", stage,
+                    histogram.getCount(), micros(histogram.getValueAtPercentile(50)),
+                    micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                    micros(histogram.getMax())));
+        }
+        return builder.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
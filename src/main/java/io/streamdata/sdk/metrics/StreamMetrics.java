@@ -0,0 +1,103 @@
+package io.streamdata.sdk.metrics;
+
+import io.streamdata.sdk.EventSourceClient;
+
+/**
+ * <p>Receives the measures of a stream, set with {@link EventSourceClient#metrics(StreamMetrics)}. Every method has a
+ * no-op default so that an implementation only overrides what it records.</p>
+ * <p>Methods are called on the hot path, from the transport, processing and callback threads : implementations must be
+ * thread-safe, fast, and should not allocate. {@link MetricsRecorder} is a ready to use implementation.</p>
+ */
+public interface StreamMetrics {
+
+    /**
+     * Records nothing, the default. Timings are not even taken.
+     */
+    StreamMetrics NOOP = new StreamMetrics() {
+    };
+
+    /**
+     * The stages of an event, each one timed in nanoseconds
+     */
+    enum Stage {
+        /**
+         * From the reception of the event to the start of its processing, the lag of an asynchronous dispatch
+         */
+        DISPATCH,
+        /**
+         * Parsing of the JSON of a snapshot or a patch
+         */
+        PARSE,
+        /**
+         * Application of a patch to the snapshot
+         */
+        APPLY,
+        /**
+         * Callbacks and change listeners of a snapshot or a patch
+         */
+        CALLBACK,
+        /**
+         * From the reception of the event to the end of its callbacks
+         */
+        END_TO_END,
+        /**
+         * From the newest timestamp carried by the data of the event to the end of its callbacks, only recorded when
+         * timestamps are located with {@link EventSourceClient#timestampAt(String)}. The clock of the source must be in
+         * sync with the local one, the ages of events from the future being recorded as 0.
+         */
+        EVENT_AGE
+    }
+
+    /**
+     * @param name  the name of the event, <code>data</code>, <code>patch</code> or <code>error</code> usually
+     * @param bytes the size of its data
+     */
+    default void onEventReceived(String name, int bytes) {
+    }
+
+    /**
+     * @param stage the stage of an event which completed
+     * @param nanos how long it took
+     */
+    default void onStage(Stage stage, long nanos) {
+    }
+
+    /**
+     * @param compressedBytes bytes of the stream read from the network, once the transfer encoding is removed
+     * @param rawBytes        bytes decoded from them, the same count when the stream is not compressed
+     */
+    default void onBytesRead(int compressedBytes, int rawBytes) {
+    }
+
+    /**
+     * @param bytes the size of a snapshot received in a <code>data</code> event
+     */
+    default void onSnapshot(int bytes) {
+    }
+
+    /**
+     * A patch could not be applied, a fresh snapshot being requested
+     */
+    default void onPatchFailure() {
+    }
+
+    /**
+     * The stream has been reopened after a failure or a patch failure
+     */
+    default void onReconnect() {
+    }
+
+    /**
+     * An event has been dropped as the consumer could not keep up
+     */
+    default void onDropped() {
+    }
+
+    /**
+     * The stream received nothing for longer than the delay set with {@link EventSourceClient#stallAfter(long, boolean)}
+     *
+     * @param silentMillis how long it has been silent
+     */
+    default void onStall(long silentMillis) {
+    }
+}
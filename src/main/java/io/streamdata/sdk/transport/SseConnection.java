@@ -0,0 +1,25 @@
+package io.streamdata.sdk.transport;
+
+/**
+ * A stream opened by a {@link SseTransport}.
+ */
+public interface SseConnection {
+
+    /**
+     * Stops reading the stream until {@link #resume()} is called, so the socket buffers fill up and the server slows down.
+     * Blocking transports may ignore it, their handler blocking the reading thread instead.
+     */
+    default void pause() {
+    }
+
+    /**
+     * Resumes the reading of a paused stream
+     */
+    default void resume() {
+    }
+
+    /**
+     * Closes the stream, the handler is not notified afterwards
+     */
+    void close();
+}
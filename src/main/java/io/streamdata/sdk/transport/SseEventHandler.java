@@ -0,0 +1,54 @@
+package io.streamdata.sdk.transport;
+
+/**
+ * Receives what a {@link SseConnection} reads.
+ */
+public interface SseEventHandler {
+
+    /**
+     * Called once the server has accepted the stream
+     */
+    default void onOpen() {
+    }
+
+    /**
+     * Called for every event of the stream
+     *
+     * @param name the name of the event, <code>message</code> when the event has none
+     * @param id   the last event id received on the stream, null if none
+     * @param data the raw data of the event, lines being joined by <code>\n</code>. It belongs to the handler.
+     */
+    void onEvent(String name, String id, byte[] data);
+
+    /**
+     * Called as the body of the stream is read, before the events it holds. The counts may be given in several calls,
+     * such as the compressed bytes when read and the raw ones when decoded.
+     *
+     * @param compressedBytes bytes read, as sent by the server once the transfer encoding is removed
+     * @param rawBytes        bytes decoded from them, the same count when the stream is not compressed
+     */
+    default void onBytesRead(int compressedBytes, int rawBytes) {
+    }
+
+    /**
+     * Called for every comment line of the stream, usually sent as heartbeats
+     *
+     * @param comment the comment
+     */
+    default void onComment(String comment) {
+    }
+
+    /**
+     * Called when the stream cannot be opened or is interrupted. The connection is closed afterwards.
+     *
+     * @param throwable the cause
+     */
+    void onFailure(Throwable throwable);
+
+    /**
+     * Called when the stream has ended for good and must not be reconnected, such as a replayed journal. The connection
+     * is closed afterwards.
+     */
+    default void onComplete() {
+    }
+}
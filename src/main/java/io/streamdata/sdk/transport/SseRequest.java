@@ -0,0 +1,39 @@
+package io.streamdata.sdk.transport;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A request opening a Server-Sent Events stream.
+ */
+public final class SseRequest {
+
+    private final URI uri;
+    private final Map<String, String> headers;
+
+    /**
+     * @param uri     the uri of the stream
+     * @param headers the headers to send, including <code>Accept</code>
+     */
+    public SseRequest(URI uri, Map<String, String> headers) {
+        this.uri = checkNotNull(uri, "uri cannot be null");
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return "SseRequest{uri=" + uri + "}";
+    }
+}
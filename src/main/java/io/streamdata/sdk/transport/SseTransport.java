@@ -0,0 +1,34 @@
+package io.streamdata.sdk.transport;
+
+/**
+ * <p>SPI of the transports opening Server-Sent Events streams. A transport is shared by all the clients of a same
+ * {@link io.streamdata.sdk.StreamdataClient} and owns the network resources (connections, threads, selectors).</p>
+ * <p>Built-in implementations are available through {@link SseTransports}.</p>
+ */
+public interface SseTransport extends AutoCloseable {
+
+    /**
+     * Opens a stream. Events are pushed to the handler until the connection is closed or fails.
+     *
+     * @param request the request to send
+     * @param handler the handler of the events
+     * @return the connection
+     */
+    SseConnection connect(SseRequest request, SseEventHandler handler);
+
+    /**
+     * Tells whether handlers are called from a thread shared by many connections. In that case handlers must never block,
+     * they use {@link SseConnection#pause()} to stop the reading of a stream instead.
+     *
+     * @return true if the transport is non-blocking
+     */
+    default boolean isNonBlocking() {
+        return false;
+    }
+
+    /**
+     * Closes every connection and releases the resources of the transport
+     */
+    @Override
+    void close();
+}
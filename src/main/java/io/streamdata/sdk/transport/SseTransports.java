@@ -0,0 +1,37 @@
+package io.streamdata.sdk.transport;
+
+import io.streamdata.sdk.TransportConfig;
+import io.streamdata.sdk.impl.JerseySseTransport;
+import io.streamdata.sdk.impl.NioSseTransport;
+
+/**
+ * Built-in {@link SseTransport} implementations.
+ */
+public final class SseTransports {
+
+    private SseTransports() {
+    }
+
+    /**
+     * Transport based on the Jersey client (default) : each stream is read as a Jersey <code>EventInput</code> by a
+     * blocking thread of the transport, all the streams sharing a same Jersey client and its pool of connections, both
+     * bounded by {@link TransportConfig#getMaxConnections()}.
+     *
+     * @param config the transport settings
+     * @return a new transport
+     */
+    public static SseTransport jersey(TransportConfig config) {
+        return new JerseySseTransport(config);
+    }
+
+    /**
+     * Non-blocking transport : a single selector thread reads every stream, parsing the SSE framing incrementally.
+     * Suited to thousands of streams per JVM. Supports HTTP and HTTPS, HTTP/1.1 only.
+     *
+     * @param config the transport settings
+     * @return a new transport
+     */
+    public static SseTransport nio(TransportConfig config) {
+        return new NioSseTransport(config);
+    }
+}
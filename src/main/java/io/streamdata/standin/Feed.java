@@ -0,0 +1,265 @@
+package io.streamdata.standin;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A synthetic stream of stock quotes broadcast to the clients of a same API URL. Events are encoded once and queued to
+ * every subscriber, a subscriber whose queue is full being dropped as the proxy does with slow clients.
+ */
+final class Feed {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(Feed.class);
+
+    private static final ObjectMapper JSON_OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String[] SOURCES = {"NASDAQ", "NYSE", "EURONEXT", "LSE"};
+
+    private final String name;
+    private final int operationsPerPatch;
+    private final int errorEvery;
+    private final int historySize;
+    private final int queueCapacity;
+    private final Random random = new Random();
+    private final String sessionId = UUID.randomUUID().toString();
+
+    // guarded by this : the snapshot, the id of the last patch applied to it and the patches to resume from
+    private final ArrayNode quotes = JsonNodeFactory.instance.arrayNode();
+    private long sequence;
+    private long events;
+    private final ArrayDeque<Frame> history = new ArrayDeque<>();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    Feed(String name, int items, int operationsPerPatch, int errorEvery, int historySize, int queueCapacity) {
+        this.name = name;
+        this.operationsPerPatch = operationsPerPatch;
+        this.errorEvery = errorEvery;
+        this.historySize = historySize;
+        this.queueCapacity = queueCapacity;
+        String now = Instant.now().toString();
+        for (int i = 0; i < items; i++) {
+            quotes.addObject()
+                    .put("title", "Company " + i + " Inc.")
+                    .put("company", "Company " + i)
+                    .put("ticker", "C" + i)
+                    .put("source", SOURCES[i % SOURCES.length])
+                    .put("last", price())
+                    .put("dt", now)
+                    .put("volume", random.nextInt(1000000));
+        }
+    }
+
+    /**
+     * Opens a stream, resumed after the given id when the missed patches are still known, from a fresh snapshot
+     * otherwise.
+     *
+     * @param lastEventId   the <code>Last-Event-ID</code> header, may be null
+     * @param snapshotsOnly true when the client does not accept patches
+     * @return the subscriber, its first events queued
+     */
+    synchronized Subscriber subscribe(String lastEventId, boolean snapshotsOnly) {
+        Subscriber subscriber = new Subscriber(snapshotsOnly);
+        long resumeAfter = snapshotsOnly ? -1 : parseId(lastEventId);
+        Frame oldest = history.peekFirst();
+        if (resumeAfter == sequence) {
+            LOGGER.debug("Feed {} resumed at {}, nothing missed", name, resumeAfter);
+        } else if (resumeAfter >= 0 && resumeAfter < sequence && oldest != null && oldest.id <= resumeAfter + 1) {
+            LOGGER.debug("Feed {} resumed at {}, {} patches missed", name, resumeAfter, sequence - resumeAfter);
+            for (Frame frame : history) {
+                if (frame.id > resumeAfter) {
+                    subscriber.offer(frame.bytes);
+                }
+            }
+        } else {
+            subscriber.offer(frame(Long.toString(sequence), "data", quotes));
+        }
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.close();
+    }
+
+    /**
+     * Generates and broadcasts events
+     *
+     * @param count the number of events to generate
+     */
+    synchronized void emit(int count) {
+        for (int i = 0; i < count; i++) {
+            events++;
+            if (errorEvery > 0 && events % errorEvery == 0) {
+                byte[] error = error();
+                subscribers.forEach(subscriber -> deliver(subscriber, error));
+                continue;
+            }
+            byte[] patch = patch();
+            byte[] data = null;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.snapshotsOnly && data == null) {
+                    data = frame(Long.toString(sequence), "data", quotes);
+                }
+                deliver(subscriber, subscriber.snapshotsOnly ? data : patch);
+            }
+        }
+    }
+
+    void close() {
+        subscribers.forEach(Subscriber::close);
+        subscribers.clear();
+    }
+
+    private void deliver(Subscriber subscriber, byte[] frame) {
+        if (!subscriber.offer(frame)) {
+            LOGGER.warn("Feed {} : client too slow, {} events queued, closing its stream", name, queueCapacity);
+            unsubscribe(subscriber);
+        }
+    }
+
+    private byte[] patch() {
+        ArrayNode operations = JsonNodeFactory.instance.arrayNode();
+        int first = random.nextInt(quotes.size());
+        String now = Instant.now().toString();
+        ((ObjectNode) quotes.get(first)).put("dt", now);
+        operations.addObject().put("op", "replace").put("path", "/" + first + "/dt").put("value", now);
+        for (int i = 1; i < operationsPerPatch; i++) {
+            int index = random.nextInt(quotes.size());
+            ObjectNode quote = (ObjectNode) quotes.get(index);
+            ObjectNode operation = operations.addObject().put("op", "replace");
+            if (random.nextBoolean()) {
+                double last = price();
+                quote.put("last", last);
+                operation.put("path", "/" + index + "/last").put("value", last);
+            } else {
+                int volume = random.nextInt(1000000);
+                quote.put("volume", volume);
+                operation.put("path", "/" + index + "/volume").put("value", volume);
+            }
+        }
+        sequence++;
+        byte[] bytes = frame(Long.toString(sequence), "patch", operations);
+        if (historySize > 0) {
+            if (history.size() == historySize) {
+                history.removeFirst();
+            }
+            history.addLast(new Frame(sequence, bytes));
+        }
+        return bytes;
+    }
+
+    private byte[] error() {
+        ObjectNode error = JsonNodeFactory.instance.objectNode()
+                .put("status", 2005)
+                .put("cause", "Synthetic error of the stand-in proxy for " + name)
+                .put("message", "HTTP error. The Http response cannot be processed.")
+                .put("timestamp", System.currentTimeMillis())
+                .put("sessionId", sessionId);
+        return frame(null, "error", error);
+    }
+
+    private double price() {
+        return Math.round(random.nextDouble() * 100000) / 100.0;
+    }
+
+    private static byte[] frame(String id, String event, Object data) {
+        try {
+            StringBuilder frame = new StringBuilder();
+            if (id != null) {
+                frame.append("id: ").append(id).append('\n');
+            }
+            // compact JSON has no line break, the data fits in a single line
+            frame.append("event: ").append(event).append('\n')
+                    .append("data: ").append(JSON_OBJECT_MAPPER.writeValueAsString(data)).append("\n\n");
+            return frame.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long parseId(String id) {
+        if (id == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Frame {
+
+        private final long id;
+        private final byte[] bytes;
+
+        private Frame(long id, byte[] bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The events queued for a stream, written by its own thread.
+     */
+    final class Subscriber {
+
+        private final boolean snapshotsOnly;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private volatile boolean closed;
+
+        private Subscriber(boolean snapshotsOnly) {
+            this.snapshotsOnly = snapshotsOnly;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * @param timeoutMillis how long to wait for an event
+         * @return the next event, null on timeout or once closed
+         */
+        byte[] poll(long timeoutMillis) throws InterruptedException {
+            return closed ? null : queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return the next event if any, null otherwise or once closed
+         */
+        byte[] poll() {
+            return closed ? null : queue.poll();
+        }
+
+        private boolean offer(byte[] frame) {
+            return queue.offer(frame);
+        }
+
+        private void close() {
+            closed = true;
+            queue.clear();
+            // wakes the stream up
+            queue.offer(new byte[0]);
+        }
+    }
+}
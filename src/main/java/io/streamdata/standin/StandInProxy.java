@@ -0,0 +1,299 @@
+package io.streamdata.standin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.streamdata.sdk.TransportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A local stand-in for the streamdata.io proxy, to run the SDK offline : load tests, demos, failure scenarios.</p>
+ * <p>It speaks the protocol of the proxy : a <code>data</code> event with the whole snapshot, then <code>patch</code>
+ * events (or <code>data</code> events only when the client does not accept patches), <code>error</code> events, ids
+ * and <code>Last-Event-ID</code> resumption, and gzip compression when accepted. The API URL appended to the proxy URL is never called, it only names a
+ * feed : every client of a same API URL receives the same synthetic stream, which is how the fan-out is set.</p>
+ * <p>The snapshot is an array of stock quotes of the shape of the stock market demo API. Every patch updates the
+ * <code>dt</code> of a quote with the time it is sent, then the <code>last</code> or <code>volume</code> of random
+ * quotes.</p>
+ * <p><b>Usage</b></p>
+ * <pre>
+ * try (StandInProxy proxy = StandInProxy.builder().items(500).eventsPerSecond(50).start()) {
+ *     StreamdataClient streamdata = StreamdataClient.create(TransportConfig.builder().proxyUrl(proxy.getUrl()).build());
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StandInProxy implements AutoCloseable {
+
+    // define a slf4j logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(StandInProxy.class);
+
+    private static final byte[] KEEP_ALIVE = ":keep-alive\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Builder settings;
+    private final HttpServer server;
+    private final ExecutorService streams;
+    private final ScheduledExecutorService ticker;
+    private final ConcurrentMap<String, Feed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private StandInProxy(Builder settings) throws IOException {
+        this.settings = settings;
+        AtomicInteger threads = new AtomicInteger();
+        // a thread per stream, as the proxy holds every connection open
+        this.streams = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "streamdata-standin-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "streamdata-standin-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(streams);
+        this.server.start();
+        LOGGER.info("Stand-in proxy listening on {}", getUrl());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the base URL to give to {@link TransportConfig.Builder#proxyUrl(String)}
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return the number of streams currently open
+     */
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * Stops the feeds and closes every stream.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        feeds.values().forEach(Feed::close);
+        server.stop(0);
+        streams.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (!"GET".equals(exchange.getRequestMethod()) || path.length() <= 1) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (query == null || !query.contains("X-Sd-Token=")) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean snapshotsOnly = accept != null && accept.contains("application/json");
+            String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = settings.compression && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+            Feed feed = feeds.computeIfAbsent(path.substring(1), this::startFeed);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, 0);
+            Feed.Subscriber subscriber = feed.subscribe(lastEventId, snapshotsOnly);
+            subscribers.incrementAndGet();
+            try {
+                // every flush ends a deflate block, so the client decodes the events as they are sent
+                stream(subscriber, gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192, true) : exchange.getResponseBody());
+            } finally {
+                subscribers.decrementAndGet();
+                feed.unsubscribe(subscriber);
+            }
+        } catch (IOException e) {
+            // the client went away
+            LOGGER.debug("Stream closed : {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stream(Feed.Subscriber subscriber, OutputStream output) throws IOException, InterruptedException {
+        while (true) {
+            byte[] frame = subscriber.poll(settings.keepAliveMillis);
+            if (frame == null) {
+                if (subscriber.isClosed()) {
+                    return;
+                }
+                output.write(KEEP_ALIVE);
+            } else {
+                // batch whatever is queued in one flush
+                do {
+                    output.write(frame);
+                } while ((frame = subscriber.poll()) != null);
+            }
+            output.flush();
+        }
+    }
+
+    private Feed startFeed(String name) {
+        Feed feed = new Feed(name, settings.items, settings.operationsPerPatch, settings.errorEvery,
+                settings.historySize, settings.queueCapacity);
+        long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (TimeUnit.SECONDS.toNanos(1) / settings.eventsPerSecond));
+        long start = System.nanoTime();
+        long[] emitted = {0};
+        ticker.scheduleAtFixedRate(() -> {
+            // the period is at least a millisecond, higher rates emit several events per tick
+            long due = (long) ((System.nanoTime() - start) * settings.eventsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            if (due > emitted[0]) {
+                feed.emit((int) Math.min(due - emitted[0], Integer.MAX_VALUE));
+                emitted[0] = due;
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        LOGGER.info("Feed {} started at {} events/s", name, settings.eventsPerSecond);
+        return feed;
+    }
+
+    public static final class Builder {
+
+        private int port = 0;
+        private int items = 100;
+        private double eventsPerSecond = 10;
+        private int operationsPerPatch = 3;
+        private int errorEvery = 0;
+        private int historySize = 1000;
+        private int queueCapacity = 10000;
+        private long keepAliveMillis = 15000;
+        private boolean compression = true;
+
+        private Builder() {
+        }
+
+        /**
+         * @param port the port to listen to on the loopback interface, 0 (the default) for any free port
+         * @return this builder
+         */
+        public Builder port(int port) {
+            checkArgument(port >= 0 && port <= 65535, "port must be between 0 and 65535");
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param items the number of quotes of the snapshots, about 150 bytes each
+         * @return this builder
+         */
+        public Builder items(int items) {
+            checkArgument(items > 0, "items must be strictly positive");
+            this.items = items;
+            return this;
+        }
+
+        /**
+         * @param eventsPerSecond the rate of the events of each feed
+         * @return this builder
+         */
+        public Builder eventsPerSecond(double eventsPerSecond) {
+            checkArgument(eventsPerSecond > 0, "eventsPerSecond must be strictly positive");
+            this.eventsPerSecond = eventsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param operationsPerPatch the number of operations of a patch, the first one updating a <code>dt</code>
+         * @return this builder
+         */
+        public Builder operationsPerPatch(int operationsPerPatch) {
+            checkArgument(operationsPerPatch > 0, "operationsPerPatch must be strictly positive");
+            this.operationsPerPatch = operationsPerPatch;
+            return this;
+        }
+
+        /**
+         * @param errorEvery send an <code>error</code> event instead of every n-th event, 0 (the default) for none
+         * @return this builder
+         */
+        public Builder errorEvery(int errorEvery) {
+            checkArgument(errorEvery >= 0, "errorEvery must be positive");
+            this.errorEvery = errorEvery;
+            return this;
+        }
+
+        /**
+         * @param historySize the number of patches kept to resume a stream from its <code>Last-Event-ID</code>, older
+         *                    ids getting a fresh snapshot
+         * @return this builder
+         */
+        public Builder historySize(int historySize) {
+            checkArgument(historySize >= 0, "historySize must be positive");
+            this.historySize = historySize;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the number of events queued for a slow client before its stream is closed
+         * @return this builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            checkArgument(queueCapacity > 0, "queueCapacity must be strictly positive");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param keepAliveMillis the delay without events after which a comment is sent
+         * @return this builder
+         */
+        public Builder keepAliveMillis(long keepAliveMillis) {
+            checkArgument(keepAliveMillis > 0, "keepAliveMillis must be strictly positive");
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        /**
+         * @param compression true (the default) to compress the streams with gzip when the client accepts it
+         * @return this builder
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * @return the started stand-in
+         * @throws IOException when the port cannot be bound
+         */
+        public StandInProxy start() throws IOException {
+            return new StandInProxy(this);
+        }
+    }
+}